@@ -0,0 +1,85 @@
+#!/bin/bash -e
+#
+# Compares throughput and p99 latency of the bid and stats endpoints with the
+# service running on platform threads vs virtual threads.
+#
+# Requirements: a running MongoDB (`docker compose --profile mongo up -d`),
+# JMeter 5.6+ on the PATH and curl.
+#
+# Usage: ./benchmark-threads.sh [threads] [duration-seconds]
+
+THREADS=${1:-500}
+DURATION=${2:-120}
+PORT=${PORT:-8080}
+JAR=build/libs/hello-0.0.1-SNAPSHOT.jar
+OUT=build/benchmark
+
+./gradlew bootJar -q
+rm -rf "$OUT"
+mkdir -p "$OUT"
+
+wait_for_service() {
+    for _ in $(seq 1 60); do
+        if curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "Service did not start on port $PORT" >&2
+    return 1
+}
+
+seed_item() {
+    local end_time
+    end_time=$(date -d "+1 day" +%Y-%m-%dT%H:%M:%S)
+    curl -sf -X POST "http://localhost:$PORT/items" \
+        -H "Content-Type: application/json" \
+        -d "{\"name\": \"Benchmark item\", \"description\": \"Load test\", \"initialPrice\": 1.0, \"endTime\": \"$end_time\", \"creator\": \"bench@example.com\", \"category\": \"OTHER\"}" \
+        | sed -E 's/.*"id":"([^"]+)".*/\1/'
+}
+
+summarize() {
+    # Per sampler label: requests/second over the run and the 99th percentile of elapsed time (ms)
+    awk -F, 'NR > 1 {
+                 n[$3]++; lat[$3, n[$3]] = $2
+                 if (!($3 in first) || $1 < first[$3]) first[$3] = $1
+                 if ($1 > last[$3]) last[$3] = $1
+             }
+             END {
+                 for (label in n) {
+                     cnt = n[label]
+                     for (i = 1; i <= cnt; i++) sorted[i] = lat[label, i]
+                     asort(sorted)
+                     idx = int(cnt * 0.99); if (idx < 1) idx = 1
+                     secs = (last[label] - first[label]) / 1000; if (secs <= 0) secs = 1
+                     printf "  %-28s %10.1f req/s   p99 %6d ms\n", label, cnt / secs, sorted[idx]
+                     delete sorted
+                 }
+             }' "$1"
+}
+
+for MODE in platform virtual; do
+    VIRTUAL=false
+    if [ "$MODE" = "virtual" ]; then
+        VIRTUAL=true
+    fi
+
+    VIRTUAL_THREADS_ENABLED=$VIRTUAL java -jar "$JAR" --server.port="$PORT" > "$OUT/$MODE-service.log" 2>&1 &
+    SERVICE_PID=$!
+    trap 'kill $SERVICE_PID 2> /dev/null || true' EXIT
+
+    wait_for_service
+    ITEM_ID=$(seed_item)
+
+    jmeter -n -t jmeter-threads-benchmark.jmx \
+        -Jport="$PORT" -Jthreads="$THREADS" -Jduration="$DURATION" -JitemId="$ITEM_ID" \
+        -l "$OUT/$MODE.jtl" -e -o "$OUT/$MODE-report" > "$OUT/$MODE-jmeter.log"
+
+    kill $SERVICE_PID
+    wait $SERVICE_PID 2> /dev/null || true
+
+    echo "$MODE threads ($THREADS users, ${DURATION}s):"
+    summarize "$OUT/$MODE.jtl"
+done
+
+echo "HTML reports: $OUT/platform-report/index.html and $OUT/virtual-report/index.html"
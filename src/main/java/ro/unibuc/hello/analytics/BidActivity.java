@@ -0,0 +1,115 @@
+package ro.unibuc.hello.analytics;
+
+import ro.unibuc.hello.data.BidRollupEntity;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bidding activity over time, summed from bid rollups instead of from the bids themselves.
+ */
+public class BidActivity {
+
+    private long totalBids;
+    private double amountSum;
+    private LocalDateTime firstBidAt;
+    private LocalDateTime lastBidAt;
+    private final long[] bidsByHour = new long[24];
+    private final Map<DayOfWeek, Long> bidsByDayOfWeek = new HashMap<>();
+
+    public void add(BidRollupEntity rollup) {
+        if (rollup.getBidCount() == 0) {
+            return;
+        }
+
+        totalBids += rollup.getBidCount();
+        amountSum += rollup.getAmountSum();
+        if (firstBidAt == null || rollup.getFirstBidAt().isBefore(firstBidAt)) {
+            firstBidAt = rollup.getFirstBidAt();
+        }
+        if (lastBidAt == null || rollup.getLastBidAt().isAfter(lastBidAt)) {
+            lastBidAt = rollup.getLastBidAt();
+        }
+        rollup.hourCounts().forEach((hour, count) -> bidsByHour[hour] += count);
+        bidsByDayOfWeek.merge(rollup.getBucketStart().getDayOfWeek(), rollup.getBidCount(), Long::sum);
+    }
+
+    /**
+     * Adds a single bid, for the parts of a time window no whole rollup bucket covers.
+     */
+    public void addBid(LocalDateTime createdAt, double amount) {
+        totalBids++;
+        amountSum += amount;
+        if (firstBidAt == null || createdAt.isBefore(firstBidAt)) {
+            firstBidAt = createdAt;
+        }
+        if (lastBidAt == null || createdAt.isAfter(lastBidAt)) {
+            lastBidAt = createdAt;
+        }
+        bidsByHour[createdAt.getHour()]++;
+        bidsByDayOfWeek.merge(createdAt.getDayOfWeek(), 1L, Long::sum);
+    }
+
+    public long getTotalBids() {
+        return totalBids;
+    }
+
+    public double getAmountSum() {
+        return amountSum;
+    }
+
+    public LocalDateTime getFirstBidAt() {
+        return firstBidAt;
+    }
+
+    public LocalDateTime getLastBidAt() {
+        return lastBidAt;
+    }
+
+    /**
+     * Bids per day between the first and the last bid, both days included.
+     */
+    public double getBidsPerDay() {
+        if (totalBids == 0) {
+            return 0;
+        }
+        long daysBetween = Duration.between(firstBidAt, lastBidAt).toDays() + 1;
+        return (double) totalBids / daysBetween;
+    }
+
+    /**
+     * Bids per hour of day, with every hour from "0" to "23" present.
+     */
+    public Map<String, Integer> getBidsByHour() {
+        Map<String, Integer> distribution = new HashMap<>();
+        for (int hour = 0; hour < 24; hour++) {
+            distribution.put(String.valueOf(hour), (int) bidsByHour[hour]);
+        }
+        return distribution;
+    }
+
+    /**
+     * Bids per hour of day, only for the hours that had bids.
+     */
+    public Map<String, Integer> getActiveHours() {
+        Map<String, Integer> distribution = new HashMap<>();
+        for (int hour = 0; hour < 24; hour++) {
+            if (bidsByHour[hour] > 0) {
+                distribution.put(String.valueOf(hour), (int) bidsByHour[hour]);
+            }
+        }
+        return distribution;
+    }
+
+    /**
+     * Bids per day of week (e.g. "MONDAY"), only for the days that had bids.
+     */
+    public Map<String, Integer> getBidsByDayOfWeek() {
+        Map<String, Integer> distribution = new HashMap<>();
+        bidsByDayOfWeek.forEach((day, count) -> distribution.put(day.toString(), count.intValue()));
+        return distribution;
+    }
+}
@@ -0,0 +1,106 @@
+package ro.unibuc.hello.analytics;
+
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.dto.BidAmountDistribution;
+import ro.unibuc.hello.util.StringDictionary;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Totals of the bids matched by one {@link BidColumnStore#aggregate} scan.
+ */
+public class BidAggregate {
+
+    // The scanned store's bidder emails, indexing bidsByBidder
+    private final StringDictionary bidderIds;
+    private final long[] bidsByCategory = new long[Category.values().length];
+    private int[] bidsByBidder;
+    private long count;
+    private double amountSum;
+    private double maxAmount;
+    private QuantileSketch amountSketch;
+
+    BidAggregate(StringDictionary bidderIds, int bidderCount) {
+        this.bidderIds = bidderIds;
+        this.bidsByBidder = new int[bidderCount];
+    }
+
+    void add(double amount, byte category, int bidder) {
+        count++;
+        amountSum += amount;
+        if (amount > maxAmount) {
+            maxAmount = amount;
+        }
+        if (category >= 0) {
+            bidsByCategory[category]++;
+        }
+        if (bidder >= bidsByBidder.length) {
+            // A bidder first seen after the scan started
+            bidsByBidder = Arrays.copyOf(bidsByBidder, Math.max(bidder + 1, bidsByBidder.length * 2));
+        }
+        bidsByBidder[bidder]++;
+    }
+
+    void setAmountSketch(QuantileSketch amountSketch) {
+        this.amountSketch = amountSketch;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAmountSum() {
+        return amountSum;
+    }
+
+    public double getMaxAmount() {
+        return maxAmount;
+    }
+
+    public double getAverageAmount() {
+        return count == 0 ? 0 : amountSum / count;
+    }
+
+    public long getBidsInCategory(Category category) {
+        return bidsByCategory[category.ordinal()];
+    }
+
+    /**
+     * Exact number of distinct bidders.
+     */
+    public long getDistinctBidders() {
+        return Arrays.stream(bidsByBidder).filter(bids -> bids > 0).count();
+    }
+
+    /**
+     * The {@code limit} bidders with the most bids, most first.
+     */
+    public Map<String, Integer> getTopBidders(int limit) {
+        Map<String, Integer> topBidders = new LinkedHashMap<>();
+        IntStream.range(0, bidsByBidder.length)
+                .filter(bidder -> bidsByBidder[bidder] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer bidder) -> bidsByBidder[bidder]).reversed())
+                .limit(limit)
+                .forEach(bidder -> topBidders.put(bidderIds.valueOf(bidder), bidsByBidder[bidder]));
+        return topBidders;
+    }
+
+    /**
+     * Median and tail amounts of the matched bids; empty if the scan covered the whole history.
+     */
+    public BidAmountDistribution getAmountDistribution() {
+        if (amountSketch == null || amountSketch.count() == 0) {
+            return new BidAmountDistribution();
+        }
+        return new BidAmountDistribution(
+                amountSketch.count(),
+                amountSketch.quantile(0.5),
+                amountSketch.quantile(0.9),
+                amountSketch.quantile(0.99));
+    }
+}
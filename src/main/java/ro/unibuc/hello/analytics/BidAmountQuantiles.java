@@ -0,0 +1,73 @@
+package ro.unibuc.hello.analytics;
+
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.dto.BidAmountDistribution;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bid amount quantiles per item, per category and overall, kept as {@link QuantileSketch}es so the median
+ * and tail prices are read without sorting any bids. Values are within 1% of the exact quantiles.
+ * A bid counts towards the category its item had when it was placed; a category change triggers a rebuild.
+ */
+@Component
+public class BidAmountQuantiles implements BidAnalytics {
+
+    private volatile Sketches sketches = new Sketches();
+
+    @Override
+    public void record(BidEntity bid, ItemEntity item) {
+        Sketches sketches = this.sketches;
+        sketches.byItem.computeIfAbsent(bid.getItemId(), itemId -> new QuantileSketch()).add(bid.getAmount());
+        if (item != null && item.getCategory() != null) {
+            sketches.byCategory.computeIfAbsent(item.getCategory(), category -> new QuantileSketch())
+                    .add(bid.getAmount());
+        }
+        sketches.overall.add(bid.getAmount());
+    }
+
+    @Override
+    public BidAmountQuantiles emptyCopy() {
+        return new BidAmountQuantiles();
+    }
+
+    @Override
+    public void replaceWith(BidAnalytics rebuilt) {
+        sketches = ((BidAmountQuantiles) rebuilt).sketches;
+    }
+
+    public BidAmountDistribution forItem(String itemId) {
+        return distribution(sketches.byItem.get(itemId));
+    }
+
+    public BidAmountDistribution forCategory(Category category) {
+        return distribution(sketches.byCategory.get(category));
+    }
+
+    public BidAmountDistribution overall() {
+        return distribution(sketches.overall);
+    }
+
+    private static BidAmountDistribution distribution(QuantileSketch sketch) {
+        if (sketch == null) {
+            return new BidAmountDistribution();
+        }
+
+        QuantileSketch snapshot = sketch.copy();
+        return new BidAmountDistribution(
+                snapshot.count(),
+                snapshot.quantile(0.5),
+                snapshot.quantile(0.9),
+                snapshot.quantile(0.99));
+    }
+
+    private static class Sketches {
+        private final Map<String, QuantileSketch> byItem = new ConcurrentHashMap<>();
+        private final Map<Category, QuantileSketch> byCategory = new ConcurrentHashMap<>();
+        private final QuantileSketch overall = new QuantileSketch();
+    }
+}
@@ -0,0 +1,29 @@
+package ro.unibuc.hello.analytics;
+
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+
+/**
+ * An in-memory summary of the bid history that is updated bid by bid instead of being recomputed
+ * from every stored bid. {@link BidAnalyticsUpdater} feeds it every placed bid and rebuilds it from
+ * the bids collection on startup and whenever bids are deleted. A rebuild fills an {@link #emptyCopy()}
+ * while the summary keeps serving, then swaps it in with {@link #replaceWith}.
+ */
+public interface BidAnalytics {
+
+    /**
+     * Adds one bid. {@code item} is null if the bid's item no longer exists.
+     */
+    void record(BidEntity bid, ItemEntity item);
+
+    /**
+     * A new, empty summary configured like this one, for a rebuild to fill off to the side.
+     */
+    BidAnalytics emptyCopy();
+
+    /**
+     * Switches to the contents of {@code rebuilt}, a filled {@link #emptyCopy()}, in one step, so readers see
+     * either the old or the rebuilt summary and never a partial one.
+     */
+    void replaceWith(BidAnalytics rebuilt);
+}
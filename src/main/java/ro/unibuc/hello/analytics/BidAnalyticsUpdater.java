@@ -0,0 +1,187 @@
+package ro.unibuc.hello.analytics;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.BidRepository;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.event.ItemCategoryChangedEvent;
+import ro.unibuc.hello.util.VersionCounters;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every {@link BidAnalytics} in step with the bids collection: placed bids are recorded as they
+ * are published, and the summaries are rebuilt from the stored bids on startup, after bids are
+ * deleted and after an item moves to another category (none of them can take a single bid back out).
+ * <p>
+ * A rebuild fills empty copies of the summaries from a cursor over the bids while the live ones keep
+ * serving and recording, then swaps the copies in. Bids placed meanwhile are replayed into the copies,
+ * except those the cursor already read. Rebuilds after deletes and category changes run on a background
+ * thread, and any number of them requested while one is waiting to start collapse into that one.
+ */
+@Component
+public class BidAnalyticsUpdater extends AbstractMongoEventListener<BidEntity> {
+
+    // A placed bid is published right after it is saved, well within this of its createdAt; streamed bids
+    // this recent are remembered so a rebuild does not replay them again
+    private static final Duration PUBLISH_MARGIN = Duration.ofMinutes(1);
+
+    @Autowired
+    private List<BidAnalytics> analytics;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private VersionCounters versionCounters;
+
+    // Bids are recorded concurrently; swapping in rebuilt summaries waits for them and holds them off
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    // Bids placed during the running rebuild, if any
+    private volatile List<PlacedBid> placedDuringRebuild;
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    Clock clock = Clock.systemDefaultZone();
+
+    // Ahead of the other listeners, so they read summaries that already include the bid
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBidPlaced(BidPlacedEvent event) {
+        BidEntity bid = event.getBid();
+        swapLock.readLock().lock();
+        try {
+            for (BidAnalytics summary : analytics) {
+                summary.record(bid, event.getItem());
+            }
+            List<PlacedBid> placed = placedDuringRebuild;
+            if (placed != null) {
+                placed.add(new PlacedBid(bid, event.getItem()));
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        swapLock.writeLock().lock();
+        try {
+            placedDuringRebuild = Collections.synchronizedList(new ArrayList<>());
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        try {
+            LocalDateTime recentFrom = LocalDateTime.now(clock).minus(PUBLISH_MARGIN);
+            List<BidAnalytics> rebuilt = analytics.stream().map(BidAnalytics::emptyCopy).toList();
+            Set<String> recentlyStreamed = new HashSet<>();
+
+            Map<String, ItemEntity> items = itemRepository.findAll().stream()
+                    .collect(Collectors.toMap(ItemEntity::getId, Function.identity()));
+            try (Stream<BidEntity> bids = bidRepository.streamAllByOrderByCreatedAtAsc()) {
+                bids.forEach(bid -> {
+                    record(rebuilt, bid, items.get(bid.getItemId()));
+                    if (!bid.getCreatedAt().isBefore(recentFrom)) {
+                        recentlyStreamed.add(bid.getId());
+                    }
+                });
+            }
+
+            swapLock.writeLock().lock();
+            try {
+                for (PlacedBid placed : placedDuringRebuild) {
+                    if (!recentlyStreamed.contains(placed.bid.getId())) {
+                        record(rebuilt, placed.bid, placed.item);
+                    }
+                }
+                for (int i = 0; i < analytics.size(); i++) {
+                    analytics.get(i).replaceWith(rebuilt.get(i));
+                }
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            // Tags of anything read from the summaries (e.g. item popularity) were handed out for the old
+            // totals, including those bumped by the delete or edit that asked for this rebuild
+            versionCounters.bumpAll();
+        } finally {
+            placedDuringRebuild = null;
+        }
+    }
+
+    /**
+     * Rebuilds in the background, unless a rebuild is already waiting to start.
+     */
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                // Cleared before starting, so changes made during this rebuild queue another one
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<BidEntity> event) {
+        requestRebuild();
+    }
+
+    @EventListener
+    public void onItemCategoryChanged(ItemCategoryChangedEvent event) {
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private static void record(List<BidAnalytics> summaries, BidEntity bid, ItemEntity item) {
+        for (BidAnalytics summary : summaries) {
+            summary.record(bid, item);
+        }
+    }
+
+    private static final class PlacedBid {
+        private final BidEntity bid;
+        private final ItemEntity item;
+
+        private PlacedBid(BidEntity bid, ItemEntity item) {
+            this.bid = bid;
+            this.item = item;
+        }
+    }
+}
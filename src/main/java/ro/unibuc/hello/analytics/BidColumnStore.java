@@ -0,0 +1,181 @@
+package ro.unibuc.hello.analytics;
+
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.util.StringDictionary;
+import ro.unibuc.hello.util.TimeWindow;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Every bid, stored column by column for the stats aggregations: primitive arrays of amounts and
+ * creation times, and dictionary-encoded item, bidder email and category ids. A bid fills 25 bytes of the
+ * columns (8 + 8 + 4 + 4 + 1) instead of a {@link BidEntity} with four strings and a date, though since the
+ * columns double when full they can take up to twice that per bid, and an aggregation is a sequential scan
+ * over a few contiguous arrays. The category column holds the item's category when the bid was placed; a category
+ * change triggers a rebuild.
+ */
+@Component
+public class BidColumnStore implements BidAnalytics {
+
+    private static final byte NO_CATEGORY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Item ids and emails get separate ids, so per-bidder counts of an aggregation are sized by the bidders
+    // alone; a rebuild starts new dictionaries, dropping values whose bids are gone
+    private StringDictionary itemIds = new StringDictionary();
+    private StringDictionary bidderIds = new StringDictionary();
+
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private int[] items = new int[INITIAL_CAPACITY];
+    private int[] bidders = new int[INITIAL_CAPACITY];
+    private byte[] categories = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    @Override
+    public synchronized void record(BidEntity bid, ItemEntity item) {
+        if (size == amounts.length) {
+            int capacity = size * 2;
+            amounts = Arrays.copyOf(amounts, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            items = Arrays.copyOf(items, capacity);
+            bidders = Arrays.copyOf(bidders, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+        }
+
+        amounts[size] = bid.getAmount();
+        createdAt[size] = toMillis(bid.getCreatedAt());
+        items[size] = itemIds.idOf(bid.getItemId());
+        bidders[size] = bidderIds.idOf(bid.getEmail());
+        categories[size] = item == null || item.getCategory() == null
+                ? NO_CATEGORY
+                : (byte) item.getCategory().ordinal();
+        size++;
+    }
+
+    @Override
+    public BidColumnStore emptyCopy() {
+        return new BidColumnStore();
+    }
+
+    @Override
+    public void replaceWith(BidAnalytics rebuilt) {
+        BidColumnStore store = (BidColumnStore) rebuilt;
+        double[] amounts;
+        long[] createdAt;
+        int[] items;
+        int[] bidders;
+        byte[] categories;
+        StringDictionary itemIds;
+        StringDictionary bidderIds;
+        int size;
+        synchronized (store) {
+            amounts = store.amounts;
+            createdAt = store.createdAt;
+            items = store.items;
+            bidders = store.bidders;
+            categories = store.categories;
+            itemIds = store.itemIds;
+            bidderIds = store.bidderIds;
+            size = store.size;
+        }
+        synchronized (this) {
+            this.amounts = amounts;
+            this.createdAt = createdAt;
+            this.items = items;
+            this.bidders = bidders;
+            this.categories = categories;
+            this.itemIds = itemIds;
+            this.bidderIds = bidderIds;
+            this.size = size;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Aggregates the bids placed within {@code window}, on items of {@code category} (any item if null),
+     * in one pass. Amount quantiles are only sketched for bounded windows, since the maintained
+     * {@link BidAmountQuantiles} already cover the whole history.
+     */
+    public BidAggregate aggregate(TimeWindow window, Category category) {
+        return scan(window, category, false)[0];
+    }
+
+    /**
+     * Aggregates the bids placed within {@code window} separately for every category, in the same single
+     * pass. Bids on items without a category are left out.
+     */
+    public Map<Category, BidAggregate> aggregateByCategory(TimeWindow window) {
+        BidAggregate[] aggregates = scan(window, null, true);
+        Map<Category, BidAggregate> byCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            byCategory.put(category, aggregates[category.ordinal()]);
+        }
+        return byCategory;
+    }
+
+    // One aggregate for all the matching rows, or one per category ordinal when grouped
+    private BidAggregate[] scan(TimeWindow window, Category category, boolean grouped) {
+        // Rows below size are never written again, so the scan can run outside the lock
+        double[] amounts;
+        long[] createdAt;
+        byte[] categories;
+        int[] bidders;
+        StringDictionary bidderIds;
+        int size;
+        synchronized (this) {
+            amounts = this.amounts;
+            createdAt = this.createdAt;
+            categories = this.categories;
+            bidders = this.bidders;
+            bidderIds = this.bidderIds;
+            size = this.size;
+        }
+
+        long from = toMillis(window.start());
+        long to = toMillis(window.end());
+        int categoryFilter = category == null ? Integer.MIN_VALUE : category.ordinal();
+
+        BidAggregate[] aggregates = new BidAggregate[grouped ? Category.values().length : 1];
+        QuantileSketch[] sketches = new QuantileSketch[aggregates.length];
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregates[i] = new BidAggregate(bidderIds, bidderIds.size());
+            sketches[i] = window.isUnbounded() ? null : new QuantileSketch();
+        }
+
+        for (int row = 0; row < size; row++) {
+            if (createdAt[row] < from || createdAt[row] >= to) {
+                continue;
+            }
+            if (categoryFilter != Integer.MIN_VALUE && categories[row] != categoryFilter) {
+                continue;
+            }
+            if (grouped && categories[row] == NO_CATEGORY) {
+                continue;
+            }
+            int target = grouped ? categories[row] : 0;
+            aggregates[target].add(amounts[row], categories[row], bidders[row]);
+            if (sketches[target] != null) {
+                sketches[target].add(amounts[row]);
+            }
+        }
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregates[i].setAmountSketch(sketches[i]);
+        }
+        return aggregates;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,109 @@
+package ro.unibuc.hello.analytics;
+
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Current bid rate per item: bids in the last minute (six 10-second slots) and the last hour (twelve
+ * 5-minute slots), kept in {@link SlidingWindowCounter}s. Each bid is an O(1) update, and hot items are
+ * listed from memory by their bids in the last hour, so they reflect current activity rather than
+ * lifetime averages. Items drop out once they have had no bid for an hour.
+ */
+@Component
+public class BidRateTracker implements BidAnalytics {
+
+    private static final int MINUTE_SLOTS = 6;
+    private static final Duration MINUTE_SLOT = Duration.ofSeconds(10);
+    private static final int HOUR_SLOTS = 12;
+    private static final Duration HOUR_SLOT = Duration.ofMinutes(5);
+
+    private volatile Map<String, ItemRate> byItem = new ConcurrentHashMap<>();
+
+    Clock clock = Clock.systemDefaultZone();
+
+    @Override
+    public void record(BidEntity bid, ItemEntity item) {
+        // Bids that have already left the hour window are skipped, so a rebuild only tracks recent ones
+        if (bid.getCreatedAt().isBefore(LocalDateTime.now(clock).minus(HOUR_SLOT.multipliedBy(HOUR_SLOTS)))) {
+            return;
+        }
+        // Added inside compute, so it cannot land on an entry hotItems() is evicting at the same time
+        byItem.compute(bid.getItemId(), (itemId, rate) -> {
+            ItemRate updated = rate == null ? new ItemRate() : rate;
+            updated.add(bid.getCreatedAt());
+            return updated;
+        });
+    }
+
+    @Override
+    public BidRateTracker emptyCopy() {
+        BidRateTracker copy = new BidRateTracker();
+        copy.clock = clock;
+        return copy;
+    }
+
+    @Override
+    public void replaceWith(BidAnalytics rebuilt) {
+        byItem = ((BidRateTracker) rebuilt).byItem;
+    }
+
+    /**
+     * Number of the current 10-second slot. An item's rates only change when one of its bids is recorded or
+     * when this moves on (hour slots are whole multiples of it).
+     */
+    public long currentSlot() {
+        return Math.floorDiv(LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC), MINUTE_SLOT.toSeconds());
+    }
+
+    public long bidsLastMinute(String itemId) {
+        ItemRate rate = byItem.get(itemId);
+        return rate == null ? 0 : rate.lastMinute.count(LocalDateTime.now(clock));
+    }
+
+    public long bidsLastHour(String itemId) {
+        ItemRate rate = byItem.get(itemId);
+        return rate == null ? 0 : rate.lastHour.count(LocalDateTime.now(clock));
+    }
+
+    /**
+     * Ids of the items with at least {@code minBidsPerHour} bids in the last hour, busiest first.
+     */
+    public List<String> hotItems(long minBidsPerHour) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<String, ItemRate> byItem = this.byItem;
+        // Items without a bid in the last hour will not be hot again until their next bid re-adds them
+        // Re-checked inside computeIfPresent, so an entry a bid was just recorded on is kept
+        for (String itemId : byItem.keySet()) {
+            byItem.computeIfPresent(itemId, (id, rate) -> rate.lastHour.count(now) == 0 ? null : rate);
+        }
+
+        Map<String, Long> bidsLastHour = byItem.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().lastHour.count(now)));
+        return bidsLastHour.entrySet().stream()
+                .filter(entry -> entry.getValue() >= minBidsPerHour)
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static class ItemRate {
+        private final SlidingWindowCounter lastMinute = new SlidingWindowCounter(MINUTE_SLOTS, MINUTE_SLOT);
+        private final SlidingWindowCounter lastHour = new SlidingWindowCounter(HOUR_SLOTS, HOUR_SLOT);
+
+        void add(LocalDateTime time) {
+            lastMinute.add(time);
+            lastHour.add(time);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ro.unibuc.hello.analytics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Items ranked by exponentially time-decayed bid activity, kept in a sorted index.
+ * <p>
+ * A bid placed at time t counts as {@code 2^(-(now - t) / halfLife)} bids. Instead of decaying every score
+ * as time passes, each bid adds {@code 2^((t - EPOCH) / halfLife)} to its item's score, which is stored as a
+ * natural logarithm so it never overflows. Every score is then the decayed score times the same factor
+ * {@code 2^((now - EPOCH) / halfLife)}, so the order of the index stays valid forever and only the item
+ * that received a bid is re-sorted. Current decayed scores are derived when read.
+ */
+@Component
+public class DecayedPopularityIndex implements BidAnalytics {
+
+    // Fixed origin of the log-scale scores; any instant works, it only has to never change
+    static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble((Entry entry) -> entry.logScore)
+            .reversed()
+            .thenComparing(entry -> entry.itemId);
+
+    private volatile Scores scores = new Scores();
+
+    @Value("${stats.popularity.half-life:1d}")
+    private Duration halfLife = Duration.ofDays(1);
+
+    Clock clock = Clock.systemDefaultZone();
+
+    @Override
+    public void record(BidEntity bid, ItemEntity item) {
+        double logWeight = logGrowth(bid.getCreatedAt());
+        Scores scores = this.scores;
+        scores.byItem.compute(bid.getItemId(), (itemId, previous) -> {
+            Entry updated = new Entry(itemId, previous == null
+                    ? logWeight
+                    : logAddExp(previous.logScore, logWeight));
+            if (previous != null) {
+                scores.ranking.remove(previous);
+            }
+            scores.ranking.add(updated);
+            return updated;
+        });
+    }
+
+    @Override
+    public DecayedPopularityIndex emptyCopy() {
+        DecayedPopularityIndex copy = new DecayedPopularityIndex();
+        copy.halfLife = halfLife;
+        copy.clock = clock;
+        return copy;
+    }
+
+    @Override
+    public void replaceWith(BidAnalytics rebuilt) {
+        scores = ((DecayedPopularityIndex) rebuilt).scores;
+    }
+
+    /**
+     * Item ids from the most to the least popular. The iterator is weakly consistent, so it can be walked
+     * while bids are placed.
+     */
+    public Iterator<String> ranked() {
+        Iterator<Entry> entries = scores.ranking.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return entries.next().itemId;
+            }
+        };
+    }
+
+    /**
+     * Bids of an item, each weighted by how recent it is: 1 for a bid placed now, 0.5 for one placed a
+     * half-life ago.
+     */
+    public double decayedScore(String itemId) {
+        Entry entry = scores.byItem.get(itemId);
+        return entry == null ? 0 : Math.exp(entry.logScore - logGrowth(LocalDateTime.now(clock)));
+    }
+
+    private double logGrowth(LocalDateTime time) {
+        double halfLives = (double) Duration.between(EPOCH, time).toMillis() / halfLife.toMillis();
+        return halfLives * Math.log(2);
+    }
+
+    // log(e^a + e^b) without overflowing
+    private static double logAddExp(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    private static class Scores {
+        private final Map<String, Entry> byItem = new ConcurrentHashMap<>();
+        private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    }
+
+    private static final class Entry {
+        private final String itemId;
+        private final double logScore;
+
+        private Entry(String itemId, double logScore) {
+            this.itemId = itemId;
+            this.logScore = logScore;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package ro.unibuc.hello.analytics;
+
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Active items ordered by end time, soonest first, in concurrent skip lists (one over all items and one per
+ * category), so the "ending soon" feed reads a page straight off the head of a list.
+ * <p>
+ * Item saves and deletes move or drop an item's entry as they happen, and the lists are rebuilt from the
+ * active items on startup and, in the background, after items are deleted by a query. A rebuild fills new lists while the current ones keep serving, replays the saves
+ * and deletes that arrived meanwhile onto them and then swaps them in. Auctions that have ended are always at
+ * the head of the lists, so every read first drops the ones whose end time has passed, whether or not the
+ * item has been deactivated yet. Pages continue from an opaque cursor naming the last entry returned, so
+ * they stay stable while items are added or removed in front of it; the last page that still has an open
+ * auction on it carries no cursor.
+ */
+@Component
+public class EndingSoonIndex extends AbstractMongoEventListener<ItemEntity> {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing((Entry entry) -> entry.endTime)
+            .thenComparing(entry -> entry.itemId);
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    Clock clock = Clock.systemDefaultZone();
+
+    private volatile Lists lists = new Lists();
+
+    // Saves and deletes apply concurrently; swapping in rebuilt lists waits for them and holds them off
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    // Saves and deletes applied during the running rebuild, if any, in the order they arrived
+    private volatile List<Consumer<Lists>> changedDuringRebuild;
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        swapLock.writeLock().lock();
+        try {
+            changedDuringRebuild = Collections.synchronizedList(new ArrayList<>());
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Lists rebuilt = new Lists();
+        boolean filled = false;
+        try {
+            itemRepository.findByActive(true).forEach(rebuilt::index);
+            filled = true;
+        } finally {
+            swapLock.writeLock().lock();
+            try {
+                if (filled) {
+                    // The items read may predate these changes, so they are applied on top
+                    changedDuringRebuild.forEach(change -> change.accept(rebuilt));
+                    lists = rebuilt;
+                }
+                changedDuringRebuild = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<ItemEntity> event) {
+        index(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<ItemEntity> event) {
+        Object id = event.getSource().get("_id");
+        if (id instanceof ObjectId || id instanceof String) {
+            remove(id.toString());
+        } else {
+            // Deleted by a query rather than by id
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Rebuilds in the background, unless a rebuild is already waiting to start.
+     */
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                // Cleared before starting, so changes made during this rebuild queue another one
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Adds an item, moves it to its current end time or category, or drops it once it is no longer active.
+     */
+    public void index(ItemEntity item) {
+        apply(lists -> lists.index(item));
+    }
+
+    public void remove(String itemId) {
+        apply(lists -> lists.remove(itemId));
+    }
+
+    private void apply(Consumer<Lists> change) {
+        swapLock.readLock().lock();
+        try {
+            change.accept(lists);
+            List<Consumer<Lists>> changed = changedDuringRebuild;
+            if (changed != null) {
+                changed.add(change);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} active items of {@code category} (any category if null) that end after the entry
+     * named by {@code cursor} (from the start if null), soonest first.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public Page page(Category category, String cursor, int limit) {
+        Lists lists = this.lists;
+        lists.expire();
+
+        NavigableSet<Entry> entries = category == null ? lists.all : lists.byCategory.get(category);
+        if (cursor != null) {
+            entries = entries.tailSet(decode(cursor), false);
+        }
+
+        Page page = new Page();
+        LocalDateTime now = LocalDateTime.now(clock);
+        Iterator<Entry> iterator = entries.iterator();
+        Entry last = null;
+        while (iterator.hasNext() && page.itemIds.size() < limit) {
+            Entry entry = iterator.next();
+            if (entry.endTime.isAfter(now)) {
+                page.itemIds.add(entry.itemId);
+                last = entry;
+            }
+        }
+        // Only offered while an auction after this page is still open, so a client never follows it to an empty page
+        if (last != null && iterator.hasNext() && iterator.next().endTime.isAfter(now)) {
+            page.nextCursor = encode(last);
+        }
+        return page;
+    }
+
+    /**
+     * The entry of every listed item, in one list over all items and one per category.
+     */
+    private final class Lists {
+
+        private final Map<String, Entry> byItem = new ConcurrentHashMap<>();
+        private final NavigableSet<Entry> all = new ConcurrentSkipListSet<>(ORDER);
+        private final Map<Category, NavigableSet<Entry>> byCategory = new EnumMap<>(Category.class);
+
+        private Lists() {
+            for (Category category : Category.values()) {
+                byCategory.put(category, new ConcurrentSkipListSet<>(ORDER));
+            }
+        }
+
+        private void index(ItemEntity item) {
+            boolean listed = item.isActive() && item.getEndTime() != null
+                    && item.getEndTime().isAfter(LocalDateTime.now(clock));
+            byItem.compute(item.getId(), (itemId, previous) -> {
+                if (previous != null) {
+                    unlink(previous);
+                }
+                if (!listed) {
+                    return null;
+                }
+                Entry entry = new Entry(itemId, item.getEndTime(), item.getCategory());
+                link(entry);
+                return entry;
+            });
+        }
+
+        private void remove(String itemId) {
+            byItem.computeIfPresent(itemId, (id, previous) -> {
+                unlink(previous);
+                return null;
+            });
+        }
+
+        private void expire() {
+            LocalDateTime now = LocalDateTime.now(clock);
+            expire(all, now);
+            byCategory.values().forEach(entries -> expire(entries, now));
+        }
+
+        private void expire(NavigableSet<Entry> entries, LocalDateTime now) {
+            for (Entry entry : entries) {
+                if (entry.endTime.isAfter(now)) {
+                    return;
+                }
+                // The item may have been re-indexed meanwhile, in which case only this stale entry goes
+                byItem.remove(entry.itemId, entry);
+                unlink(entry);
+            }
+        }
+
+        private void link(Entry entry) {
+            all.add(entry);
+            if (entry.category != null) {
+                byCategory.get(entry.category).add(entry);
+            }
+        }
+
+        private void unlink(Entry entry) {
+            all.remove(entry);
+            if (entry.category != null) {
+                byCategory.get(entry.category).remove(entry);
+            }
+        }
+    }
+
+    private static String encode(Entry entry) {
+        String position = entry.endTime + "|" + entry.itemId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Entry decode(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new Entry(position.substring(separator + 1), LocalDateTime.parse(position.substring(0, separator)), null);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * One page of the feed; {@code nextCursor} is null on the last page.
+     */
+    public static class Page {
+
+        private final List<String> itemIds = new ArrayList<>();
+        private String nextCursor;
+
+        public List<String> getItemIds() {
+            return itemIds;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    private static final class Entry {
+        private final String itemId;
+        private final LocalDateTime endTime;
+        private final Category category;
+
+        private Entry(String itemId, LocalDateTime endTime, Category category) {
+            this.itemId = itemId;
+            this.endTime = endTime;
+            this.category = category;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ro.unibuc.hello.analytics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Running totals of one item's bids, updated bid by bid in the order they were placed.
+ */
+public class ItemBidSummary {
+
+    private long totalBids;
+    private LocalDateTime firstBidAt;
+    private LocalDateTime lastBidAt;
+    private double maxAmount;
+    private double lastAmount;
+    // Percentage increases between consecutive bids, for the bids that raised the previous one
+    private double increasePercentSum;
+    private long increaseCount;
+
+    public synchronized void add(LocalDateTime createdAt, double amount) {
+        if (totalBids > 0 && amount > lastAmount) {
+            increasePercentSum += (amount - lastAmount) / lastAmount * 100;
+            increaseCount++;
+        }
+        if (totalBids == 0 || amount > maxAmount) {
+            maxAmount = amount;
+        }
+        if (firstBidAt == null || createdAt.isBefore(firstBidAt)) {
+            firstBidAt = createdAt;
+        }
+        if (lastBidAt == null || createdAt.isAfter(lastBidAt)) {
+            lastBidAt = createdAt;
+        }
+        lastAmount = amount;
+        totalBids++;
+    }
+
+    public synchronized ItemBidSummary copy() {
+        ItemBidSummary copy = new ItemBidSummary();
+        copy.totalBids = totalBids;
+        copy.firstBidAt = firstBidAt;
+        copy.lastBidAt = lastBidAt;
+        copy.maxAmount = maxAmount;
+        copy.lastAmount = lastAmount;
+        copy.increasePercentSum = increasePercentSum;
+        copy.increaseCount = increaseCount;
+        return copy;
+    }
+
+    public long getTotalBids() {
+        return totalBids;
+    }
+
+    public LocalDateTime getFirstBidAt() {
+        return firstBidAt;
+    }
+
+    public LocalDateTime getLastBidAt() {
+        return lastBidAt;
+    }
+
+    public double getMaxAmount() {
+        return maxAmount;
+    }
+
+    /**
+     * Bids per day between the first and the last bid, both days included.
+     */
+    public double getBidFrequency() {
+        if (totalBids == 0) {
+            return 0;
+        }
+        long daysBetween = Duration.between(firstBidAt, lastBidAt).toDays() + 1;
+        return (double) totalBids / daysBetween;
+    }
+
+    /**
+     * Average percentage by which a bid raised the one before it, over the bids that did.
+     */
+    public double getBidIncreaseRate() {
+        return increaseCount > 0 ? increasePercentSum / increaseCount : 0;
+    }
+}
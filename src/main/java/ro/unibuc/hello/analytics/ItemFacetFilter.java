@@ -0,0 +1,59 @@
+package ro.unibuc.hello.analytics;
+
+import ro.unibuc.hello.data.Category;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Facet selection for {@link ItemFacetIndex#query}. Several categories or price bands match items in any
+ * of them; an empty set or a null value leaves that facet unfiltered.
+ */
+public class ItemFacetFilter {
+
+    private Set<Category> categories = Set.of();
+    private Boolean active;
+    private Set<String> priceBands = Set.of();
+    private LocalDateTime endsAfter;
+    private LocalDateTime endsBefore;
+
+    public Set<Category> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Set<Category> categories) {
+        this.categories = categories == null ? Set.of() : categories;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Set<String> getPriceBands() {
+        return priceBands;
+    }
+
+    public void setPriceBands(Set<String> priceBands) {
+        this.priceBands = priceBands == null ? Set.of() : priceBands;
+    }
+
+    public LocalDateTime getEndsAfter() {
+        return endsAfter;
+    }
+
+    public void setEndsAfter(LocalDateTime endsAfter) {
+        this.endsAfter = endsAfter;
+    }
+
+    public LocalDateTime getEndsBefore() {
+        return endsBefore;
+    }
+
+    public void setEndsBefore(LocalDateTime endsBefore) {
+        this.endsBefore = endsBefore;
+    }
+}
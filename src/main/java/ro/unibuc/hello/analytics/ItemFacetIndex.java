@@ -0,0 +1,450 @@
+package ro.unibuc.hello.analytics;
+
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.util.StringDictionary;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index over items for faceted browsing by category, active flag, price band and end time.
+ * <p>
+ * Every item gets a dense ordinal, and each facet value keeps a bitmap of the ordinals that have it
+ * (end times by UTC day, prices by the band of the current price, which bids raise as they are placed). A filter is a few bitmap ANDs and ORs, and a facet count the cardinality of one
+ * more AND, so queries cost a few words per thousand items and never touch Mongo. Item saves and
+ * deletes update the bitmaps as they happen; the index is rebuilt from the items collection on startup and,
+ * in the background, after items are deleted by a query, with the changes that arrive while the items are
+ * read applied again on top of them.
+ */
+@Component
+public class ItemFacetIndex extends AbstractMongoEventListener<ItemEntity> {
+
+    // Lower bounds of the price bands; the last band has no upper bound
+    static final double[] PRICE_BAND_BOUNDS = {0, 10, 50, 100, 500, 1000, 5000};
+    private static final String[] PRICE_BANDS = priceBandLabels();
+
+    // Buckets of the "ending" facet, by how long until the item ends
+    private static final Duration[] ENDING_WITHIN = {Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(7)};
+    private static final String[] ENDING_LABELS = {"ended", "1h", "24h", "7d", "later"};
+
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    Clock clock = Clock.systemDefaultZone();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ordinals are never reused, so a deleted item only leaves a cleared bit behind
+    private StringDictionary ordinals = new StringDictionary();
+    private final BitSet present = new BitSet();
+    private final Map<Category, BitSet> byCategory = new EnumMap<>(Category.class);
+    private final BitSet active = new BitSet();
+    private final BitSet[] byPriceBand = new BitSet[PRICE_BANDS.length];
+    private final NavigableMap<Long, BitSet> byEndDay = new TreeMap<>();
+    private long[] endTimes = new long[16];
+    private double[] prices = new double[16];
+
+    // Saves and deletes applied during the running rebuild, if any, in the order they arrived
+    private List<Runnable> changedDuringRebuild;
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    public ItemFacetIndex() {
+        for (Category category : Category.values()) {
+            byCategory.put(category, new BitSet());
+        }
+        for (int i = 0; i < byPriceBand.length; i++) {
+            byPriceBand[i] = new BitSet();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<ItemEntity> items = null;
+        try {
+            items = itemRepository.findAll();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (items != null) {
+                    ordinals = new StringDictionary();
+                    present.clear();
+                    active.clear();
+                    byCategory.values().forEach(BitSet::clear);
+                    Arrays.stream(byPriceBand).forEach(BitSet::clear);
+                    byEndDay.clear();
+                    items.forEach(this::put);
+                    // The items read may predate these changes, so they are applied on top
+                    changedDuringRebuild.forEach(Runnable::run);
+                }
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<ItemEntity> event) {
+        index(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<ItemEntity> event) {
+        Object id = event.getSource().get("_id");
+        if (id instanceof ObjectId || id instanceof String) {
+            remove(id.toString());
+        } else {
+            // Deleted by a query rather than by id
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Rebuilds in the background, unless a rebuild is already waiting to start.
+     */
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                // Cleared before starting, so changes made during this rebuild queue another one
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Adds an item, or moves it to the facet values it has now.
+     */
+    public void index(ItemEntity item) {
+        lock.writeLock().lock();
+        try {
+            put(item);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(() -> put(item));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String itemId) {
+        lock.writeLock().lock();
+        try {
+            delete(itemId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(() -> delete(itemId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves an item to the price band of {@code price} if that is above its current price; bids only raise
+     * the price, so one applied late does not lower it again.
+     */
+    public void raisePrice(String itemId, double price) {
+        lock.writeLock().lock();
+        try {
+            raise(itemId, price);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(() -> raise(itemId, price));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void raise(String itemId, double price) {
+        int ordinal = ordinals.find(itemId);
+        if (ordinal < 0 || !present.get(ordinal) || price <= prices[ordinal]) {
+            return;
+        }
+        byPriceBand[priceBandOf(prices[ordinal])].clear(ordinal);
+        byPriceBand[priceBandOf(price)].set(ordinal);
+        prices[ordinal] = price;
+    }
+
+    private void delete(String itemId) {
+        int ordinal = ordinals.find(itemId);
+        if (ordinal >= 0) {
+            clear(ordinal);
+        }
+    }
+
+    private void put(ItemEntity item) {
+        int ordinal = ordinals.idOf(item.getId());
+        clear(ordinal);
+
+        present.set(ordinal);
+        if (item.getCategory() != null) {
+            byCategory.get(item.getCategory()).set(ordinal);
+        }
+        if (item.isActive()) {
+            active.set(ordinal);
+        }
+        // Items stored before the current price was kept have none until it is backfilled
+        double price = Math.max(item.getCurrentPrice(), item.getInitialPrice());
+        if (ordinal >= prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(ordinal + 1, prices.length * 2));
+        }
+        prices[ordinal] = price;
+        byPriceBand[priceBandOf(price)].set(ordinal);
+        if (item.getEndTime() != null) {
+            long endTime = epochMillis(item.getEndTime());
+            if (ordinal >= endTimes.length) {
+                endTimes = Arrays.copyOf(endTimes, Math.max(ordinal + 1, endTimes.length * 2));
+            }
+            endTimes[ordinal] = endTime;
+            byEndDay.computeIfAbsent(Math.floorDiv(endTime, DAY_MILLIS), day -> new BitSet()).set(ordinal);
+        }
+    }
+
+    private void clear(int ordinal) {
+        if (!present.get(ordinal)) {
+            return;
+        }
+        present.clear(ordinal);
+        active.clear(ordinal);
+        byCategory.values().forEach(bits -> bits.clear(ordinal));
+        Arrays.stream(byPriceBand).forEach(bits -> bits.clear(ordinal));
+        if (ordinal < endTimes.length) {
+            BitSet endDay = byEndDay.get(Math.floorDiv(endTimes[ordinal], DAY_MILLIS));
+            if (endDay != null) {
+                endDay.clear(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Ids of the items matching {@code filter}, {@code limit} of them from {@code offset} in the order
+     * they were first indexed, with the total number of matches and the count of each facet value.
+     * A facet's counts apply every other facet of the filter but not its own, so they show how many items
+     * selecting that value instead (or as well) would give.
+     *
+     * @throws IllegalArgumentException if the filter names an unknown price band
+     */
+    public Result query(ItemFacetFilter filter, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryMask = categoryMask(filter);
+            BitSet activeMask = filter.getActive() == null ? present
+                    : filter.getActive() ? active : andNot(present, active);
+            BitSet priceMask = priceMask(filter);
+            BitSet endMask = filter.getEndsAfter() == null && filter.getEndsBefore() == null ? present
+                    : endingBetween(
+                            filter.getEndsAfter() == null ? Long.MIN_VALUE : epochMillis(filter.getEndsAfter()),
+                            filter.getEndsBefore() == null ? Long.MAX_VALUE : epochMillis(filter.getEndsBefore()));
+
+            BitSet matches = and(present, categoryMask, activeMask, priceMask, endMask);
+            Result result = new Result();
+            result.total = matches.cardinality();
+            for (int ordinal = skip(matches, offset); ordinal >= 0 && result.ids.size() < limit;
+                 ordinal = matches.nextSetBit(ordinal + 1)) {
+                result.ids.add(ordinals.valueOf(ordinal));
+            }
+
+            BitSet others = and(present, activeMask, priceMask, endMask);
+            Map<String, Long> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<Category, BitSet> entry : byCategory.entrySet()) {
+                categoryCounts.put(entry.getKey().name(), countAnd(others, entry.getValue()));
+            }
+            result.facets.put("category", categoryCounts);
+
+            others = and(present, categoryMask, priceMask, endMask);
+            Map<String, Long> activeCounts = new LinkedHashMap<>();
+            activeCounts.put("true", countAnd(others, active));
+            activeCounts.put("false", countAnd(others, andNot(present, active)));
+            result.facets.put("active", activeCounts);
+
+            others = and(present, categoryMask, activeMask, endMask);
+            Map<String, Long> priceCounts = new LinkedHashMap<>();
+            for (int band = 0; band < PRICE_BANDS.length; band++) {
+                priceCounts.put(PRICE_BANDS[band], countAnd(others, byPriceBand[band]));
+            }
+            result.facets.put("priceBand", priceCounts);
+
+            others = and(present, categoryMask, activeMask, priceMask);
+            Map<String, Long> endingCounts = new LinkedHashMap<>();
+            long now = epochMillis(LocalDateTime.now(clock));
+            long from = Long.MIN_VALUE;
+            for (int bucket = 0; bucket < ENDING_LABELS.length; bucket++) {
+                long to = bucket == 0 ? now
+                        : bucket <= ENDING_WITHIN.length ? now + ENDING_WITHIN[bucket - 1].toMillis()
+                        : Long.MAX_VALUE;
+                endingCounts.put(ENDING_LABELS[bucket], countAnd(others, endingBetween(from, to)));
+                from = to;
+            }
+            result.facets.put("ending", endingCounts);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet categoryMask(ItemFacetFilter filter) {
+        if (filter.getCategories().isEmpty()) {
+            return present;
+        }
+        BitSet mask = new BitSet();
+        filter.getCategories().forEach(category -> mask.or(byCategory.get(category)));
+        return mask;
+    }
+
+    private BitSet priceMask(ItemFacetFilter filter) {
+        if (filter.getPriceBands().isEmpty()) {
+            return present;
+        }
+        BitSet mask = new BitSet();
+        for (String label : filter.getPriceBands()) {
+            int band = Arrays.asList(PRICE_BANDS).indexOf(label);
+            if (band < 0) {
+                throw new IllegalArgumentException("Unknown price band: " + label);
+            }
+            mask.or(byPriceBand[band]);
+        }
+        return mask;
+    }
+
+    // Items ending in [from, to): whole days are taken as they are, the days at either edge item by item
+    private BitSet endingBetween(long from, long to) {
+        BitSet mask = new BitSet();
+        if (from >= to) {
+            return mask;
+        }
+        long firstDay = from == Long.MIN_VALUE ? Long.MIN_VALUE : Math.floorDiv(from, DAY_MILLIS);
+        long lastDay = to == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(to, DAY_MILLIS);
+        for (Map.Entry<Long, BitSet> entry : byEndDay.subMap(firstDay, true, lastDay, true).entrySet()) {
+            long dayStart = entry.getKey() * DAY_MILLIS;
+            if (dayStart >= from && dayStart + DAY_MILLIS <= to) {
+                mask.or(entry.getValue());
+            } else {
+                BitSet day = entry.getValue();
+                for (int ordinal = day.nextSetBit(0); ordinal >= 0; ordinal = day.nextSetBit(ordinal + 1)) {
+                    if (endTimes[ordinal] >= from && endTimes[ordinal] < to) {
+                        mask.set(ordinal);
+                    }
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static BitSet and(BitSet first, BitSet... others) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : others) {
+            result.and(other);
+        }
+        return result;
+    }
+
+    private static BitSet andNot(BitSet bits, BitSet removed) {
+        BitSet result = (BitSet) bits.clone();
+        result.andNot(removed);
+        return result;
+    }
+
+    private static long countAnd(BitSet a, BitSet b) {
+        return and(a, b).cardinality();
+    }
+
+    private static int skip(BitSet bits, int count) {
+        int ordinal = bits.nextSetBit(0);
+        for (int i = 0; i < count && ordinal >= 0; i++) {
+            ordinal = bits.nextSetBit(ordinal + 1);
+        }
+        return ordinal;
+    }
+
+    static int priceBandOf(double price) {
+        int band = 0;
+        while (band + 1 < PRICE_BAND_BOUNDS.length && price >= PRICE_BAND_BOUNDS[band + 1]) {
+            band++;
+        }
+        return band;
+    }
+
+    private static String[] priceBandLabels() {
+        String[] labels = new String[PRICE_BAND_BOUNDS.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i + 1 < labels.length
+                    ? format(PRICE_BAND_BOUNDS[i]) + "-" + format(PRICE_BAND_BOUNDS[i + 1])
+                    : format(PRICE_BAND_BOUNDS[i]) + "+";
+        }
+        return labels;
+    }
+
+    private static String format(double bound) {
+        return String.valueOf((long) bound);
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * One page of a facet query.
+     */
+    public static class Result {
+
+        private final List<String> ids = new ArrayList<>();
+        private long total;
+        private final Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+
+        public List<String> getIds() {
+            return ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public Map<String, Map<String, Long>> getFacets() {
+            return facets;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ro.unibuc.hello.analytics;
+
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-item {@link ItemBidSummary}s, so an item's popularity inputs (bid count, frequency, increase rate,
+ * highest bid) are read in O(1) instead of from a sorted list of all its bids. Bids are summarized in the
+ * order they are placed, which is their createdAt order.
+ */
+@Component
+public class ItemPopularityAccumulator implements BidAnalytics {
+
+    private volatile Map<String, ItemBidSummary> byItem = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(BidEntity bid, ItemEntity item) {
+        byItem.computeIfAbsent(bid.getItemId(), itemId -> new ItemBidSummary())
+                .add(bid.getCreatedAt(), bid.getAmount());
+    }
+
+    @Override
+    public ItemPopularityAccumulator emptyCopy() {
+        return new ItemPopularityAccumulator();
+    }
+
+    @Override
+    public void replaceWith(BidAnalytics rebuilt) {
+        byItem = ((ItemPopularityAccumulator) rebuilt).byItem;
+    }
+
+    /**
+     * Snapshot of an item's bid summary; empty if it has no bids.
+     */
+    public ItemBidSummary summaryOf(String itemId) {
+        ItemBidSummary summary = byItem.get(itemId);
+        return summary == null ? new ItemBidSummary() : summary.copy();
+    }
+}
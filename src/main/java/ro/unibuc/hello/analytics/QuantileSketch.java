@@ -0,0 +1,113 @@
+package ro.unibuc.hello.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch with relative-error guarantees, after DDSketch.
+ * <p>
+ * Positive values are counted in logarithmic buckets whose bounds grow by a factor of
+ * (1 + 1%) / (1 - 1%), so any quantile is answered within 1% of the true value. Memory depends only on the
+ * spread of the values (about 230 buckets per factor of 10), not on how many were added: bid amounts from
+ * 0.01 to 1,000,000,000 fit in under 1,300 counters. Values of zero or below share a single bucket.
+ */
+public class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // counts[i] holds the values in bucket (offset + i), i.e. in (GAMMA^(offset+i-1), GAMMA^(offset+i)]
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public synchronized void add(double value) {
+        if (value <= 0) {
+            zeroCount++;
+        } else {
+            int index = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+            ensureBucket(index);
+            counts[index - offset]++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized void merge(QuantileSketch other) {
+        QuantileSketch snapshot = other.copy();
+        if (snapshot.count == 0) {
+            return;
+        }
+
+        if (snapshot.counts.length > 0) {
+            ensureBucket(snapshot.offset);
+            ensureBucket(snapshot.offset + snapshot.counts.length - 1);
+            for (int i = 0; i < snapshot.counts.length; i++) {
+                counts[snapshot.offset + i - offset] += snapshot.counts[i];
+            }
+        }
+        zeroCount += snapshot.zeroCount;
+        count += snapshot.count;
+        min = Math.min(min, snapshot.min);
+        max = Math.max(max, snapshot.max);
+    }
+
+    public synchronized QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch();
+        copy.counts = counts.clone();
+        copy.offset = offset;
+        copy.zeroCount = zeroCount;
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Value at quantile {@code q} (0 to 1) of everything added so far, or 0 if the sketch is empty.
+     */
+    public synchronized double quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) (Math.max(0, Math.min(1, q)) * (count - 1));
+        if (rank < zeroCount) {
+            return Math.min(0, max);
+        }
+
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // The point of the bucket with the same relative distance to both of its bounds
+                double value = 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+                return Math.max(min, Math.min(max, value));
+            }
+        }
+        return max;
+    }
+
+    private void ensureBucket(int index) {
+        if (counts.length == 0) {
+            counts = new long[1];
+            offset = index;
+        } else if (index < offset) {
+            long[] grown = new long[counts.length + offset - index];
+            System.arraycopy(counts, 0, grown, offset - index, counts.length);
+            counts = grown;
+            offset = index;
+        } else if (index >= offset + counts.length) {
+            counts = Arrays.copyOf(counts, index - offset + 1);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ro.unibuc.hello.analytics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Counts events over a sliding time window with a ring buffer of fixed-length slots.
+ * <p>
+ * Adding an event is O(1) and reading the count O(slots), both allocation-free, and memory is two longs per
+ * slot whatever the event rate. The window slides one slot at a time, so the count covers between
+ * {@code (slots - 1) * slotLength} and {@code slots * slotLength} of history.
+ */
+public class SlidingWindowCounter {
+
+    private final long slotSeconds;
+    private final long[] counts;
+    // Slot number (seconds since the epoch / slotSeconds) each entry of counts belongs to
+    private final long[] slotIds;
+
+    public SlidingWindowCounter(int slots, Duration slotLength) {
+        this.slotSeconds = slotLength.toSeconds();
+        this.counts = new long[slots];
+        this.slotIds = new long[slots];
+        Arrays.fill(slotIds, Long.MIN_VALUE);
+    }
+
+    public synchronized void add(LocalDateTime time) {
+        long slot = slotOf(time);
+        int index = (int) Math.floorMod(slot, (long) counts.length);
+        if (slotIds[index] == slot) {
+            counts[index]++;
+        } else if (slotIds[index] < slot) {
+            // The entry still holds a slot that has slid out of the window
+            slotIds[index] = slot;
+            counts[index] = 1;
+        }
+        // Otherwise the event is older than a newer slot already in the ring, so it is outside every window
+    }
+
+    /**
+     * Events in the window ending at {@code now}.
+     */
+    public synchronized long count(LocalDateTime now) {
+        long current = slotOf(now);
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (slotIds[i] <= current && slotIds[i] > current - counts.length) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Length of history the window covers.
+     */
+    public Duration window() {
+        return Duration.ofSeconds(slotSeconds * counts.length);
+    }
+
+    private long slotOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), slotSeconds);
+    }
+}
@@ -0,0 +1,62 @@
+package ro.unibuc.hello.analytics;
+
+import org.springframework.stereotype.Component;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct bidder counts per item, per category and overall, kept as {@link HyperLogLog} sketches so a
+ * count is a constant-memory read instead of a set of every bidder email. A bid counts towards the category
+ * its item had when it was placed; a category change triggers a rebuild.
+ * Estimates are within about 1.6% (one standard error) and exact for items with up to 256 bidders.
+ */
+@Component
+public class UniqueBidderCounter implements BidAnalytics {
+
+    private volatile Sketches sketches = new Sketches();
+
+    @Override
+    public void record(BidEntity bid, ItemEntity item) {
+        Sketches sketches = this.sketches;
+        sketches.byItem.computeIfAbsent(bid.getItemId(), itemId -> new HyperLogLog()).add(bid.getEmail());
+        if (item != null && item.getCategory() != null) {
+            sketches.byCategory.computeIfAbsent(item.getCategory(), category -> new HyperLogLog())
+                    .add(bid.getEmail());
+        }
+        sketches.overall.add(bid.getEmail());
+    }
+
+    @Override
+    public UniqueBidderCounter emptyCopy() {
+        return new UniqueBidderCounter();
+    }
+
+    @Override
+    public void replaceWith(BidAnalytics rebuilt) {
+        sketches = ((UniqueBidderCounter) rebuilt).sketches;
+    }
+
+    public long countForItem(String itemId) {
+        HyperLogLog sketch = sketches.byItem.get(itemId);
+        return sketch == null ? 0 : sketch.estimate();
+    }
+
+    public long countForCategory(Category category) {
+        HyperLogLog sketch = sketches.byCategory.get(category);
+        return sketch == null ? 0 : sketch.estimate();
+    }
+
+    public long countAll() {
+        return sketches.overall.estimate();
+    }
+
+    private static class Sketches {
+        private final Map<String, HyperLogLog> byItem = new ConcurrentHashMap<>();
+        private final Map<Category, HyperLogLog> byCategory = new ConcurrentHashMap<>();
+        private final HyperLogLog overall = new HyperLogLog();
+    }
+}
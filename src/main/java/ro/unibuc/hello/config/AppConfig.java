@@ -1,14 +1,52 @@
 package ro.unibuc.hello.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.dto.AuctionStats;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.SingleFlightCache;
+import ro.unibuc.hello.util.VersionCounters;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     @Bean
     public RestTemplate getRestTemplate() {
         return new RestTemplate();
     }
+
+    @Bean
+    public SingleFlightCache<String, AuctionStats> auctionStatsCache(
+            @Value("${stats.cache.ttl}") Duration ttl,
+            @Value("${stats.cache.max-stale}") Duration maxStale) {
+        return new SingleFlightCache<>(ttl, maxStale);
+    }
+
+    // Versions of items for conditional GETs; see ItemService#getItemETag
+    @Bean
+    public VersionCounters versionCounters() {
+        return new VersionCounters();
+    }
+
+    @Bean
+    public BatchLoader<String, ItemEntity> itemLoader(
+            ItemRepository itemRepository,
+            @Value("${item-loader.batch-window}") Duration batchWindow,
+            @Value("${item-loader.max-batch-size}") int maxBatchSize) {
+        return new BatchLoader<>(
+                ids -> itemRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(ItemEntity::getId, Function.identity())),
+                batchWindow,
+                maxBatchSize);
+    }
 }
@@ -2,12 +2,16 @@ package ro.unibuc.hello.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ro.unibuc.hello.data.BidOrder;
 import ro.unibuc.hello.dto.Bid;
+import ro.unibuc.hello.dto.BidPage;
 import ro.unibuc.hello.exception.BidException;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.service.BidService;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 
@@ -18,6 +22,8 @@ public class BidController {
     @Autowired
     private BidService bidService;
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     @GetMapping
     public ResponseEntity<List<Bid>> getAllBids() {
         List<Bid> bids = bidService.getAllBids();
@@ -34,10 +40,59 @@ public class BidController {
         }
     }
 
+    /**
+     * All bids of an item, or with any of {@code limit}, {@code cursor} or {@code order} given, one page of them
+     * (highest first by default) with the cursor of the next page.
+     */
     @GetMapping("/item/{itemId}")
-    public ResponseEntity<List<Bid>> getBidsByItem(@PathVariable String itemId) {
-        List<Bid> bids = bidService.getBidsByItem(itemId);
-        return new ResponseEntity<>(bids, HttpStatus.OK);
+    public ResponseEntity<?> getBidsByItem(
+            @PathVariable String itemId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) BidOrder order) {
+
+        if (limit == null && cursor == null && order == null) {
+            List<Bid> bids = bidService.getBidsByItem(itemId);
+            return new ResponseEntity<>(bids, HttpStatus.OK);
+        }
+
+        try {
+            BidPage page = bidService.getBidHistory(itemId, order == null ? BidOrder.AMOUNT_DESC : order, cursor,
+                    limit == null ? DEFAULT_PAGE_SIZE : limit);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * All bids of an item, each narrowed to the fields listed in {@code fields}, e.g.
+     * {@code /bids/item/{itemId}?fields=amount,createdAt}; only those fields are read from Mongo and written.
+     * Pages always carry whole bids, so {@code fields} cannot be combined with paging.
+     */
+    @GetMapping(value = "/item/{itemId}", params = "fields")
+    public ResponseEntity<?> getBidFieldsByItem(
+            @PathVariable String itemId,
+            @RequestParam List<String> fields,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) BidOrder order) {
+        if (limit != null || cursor != null || order != null) {
+            return new ResponseEntity<>("fields cannot be combined with limit, cursor or order", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(bidService.getBidsByItem(itemId, fields), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #getBidsByItem}, selected with {@code Accept: application/x-ndjson}.
+     */
+    @GetMapping(value = "/item/{itemId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Bid> streamBidsByItem(@PathVariable String itemId) {
+        return bidService.streamBidsByItem(itemId);
     }
 
     @GetMapping("/bidder/{bidderName}")
@@ -75,4 +130,28 @@ public class BidController {
         List<Bid> bids = bidService.getBidsByEmail(email);
         return new ResponseEntity<>(bids, HttpStatus.OK);
     }
+
+    /**
+     * Same as {@link #getBidsByEmail(String)} with each bid narrowed to the fields listed in {@code fields}.
+     */
+    @GetMapping(value = "/bidder-email/{email}", params = "fields")
+    public ResponseEntity<?> getBidFieldsByEmail(@PathVariable String email, @RequestParam List<String> fields) {
+        try {
+            return new ResponseEntity<>(bidService.getBidsByEmail(email, fields), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #getBidsByEmail(String)}, selected with {@code Accept: application/x-ndjson}.
+     */
+    @GetMapping(value = "/bidder-email/{email}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Bid>> streamBidsByEmail(@PathVariable String email) {
+        try {
+            return new ResponseEntity<>(bidService.streamBidsByEmail(email), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
 }
\ No newline at end of file
@@ -1,14 +1,32 @@
 package ro.unibuc.hello.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import ro.unibuc.hello.analytics.ItemFacetFilter;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemSort;
 import ro.unibuc.hello.dto.Item;
+import ro.unibuc.hello.dto.ItemBatch;
+import ro.unibuc.hello.dto.ItemFeed;
+import ro.unibuc.hello.dto.ItemPage;
+import ro.unibuc.hello.dto.PriceUpdate;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.service.ItemService;
+import ro.unibuc.hello.service.PriceStreamService;
+import ro.unibuc.hello.util.VersionCounters;
+import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/items")
@@ -17,9 +35,39 @@ public class ItemController {
     @Autowired
     private ItemService itemService;
 
+    @Autowired
+    private PriceStreamService priceStreamService;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    // Comment events sent on idle price streams, so proxies keep them open and closed clients are noticed
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    /**
+     * All items, or with any of {@code category}, {@code minPrice}, {@code maxPrice}, {@code sort}, {@code page}
+     * or {@code size} given, one page of the items matching them (price is the current highest bid).
+     */
     @GetMapping
     public ResponseEntity<List<Item>> getAllItems(
-            @RequestParam(required = false, defaultValue = "false") boolean activeOnly) {
+            @RequestParam(required = false, defaultValue = "false") boolean activeOnly,
+            @RequestParam(required = false) Category category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) ItemSort sort,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+
+        if (category != null || minPrice != null || maxPrice != null || sort != null || page != null || size != null) {
+            try {
+                List<Item> items = itemService.searchItems(category, minPrice, maxPrice, activeOnly,
+                        sort == null ? ItemSort.PRICE_DESC : sort,
+                        page == null ? 0 : page,
+                        size == null ? DEFAULT_PAGE_SIZE : size);
+                return new ResponseEntity<>(items, HttpStatus.OK);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
 
         List<Item> items;
         if (activeOnly) {
@@ -31,11 +79,152 @@ public class ItemController {
         return new ResponseEntity<>(items, HttpStatus.OK);
     }
 
+    /**
+     * Same as {@link #getAllItems} with each item narrowed to the fields listed in {@code fields}, e.g.
+     * {@code /items?fields=id,name,highestBid}; only those fields are read from Mongo and written.
+     */
+    @GetMapping(params = {"fields", "!ids"})
+    public ResponseEntity<List<Map<String, Object>>> getAllItemFields(
+            @RequestParam List<String> fields,
+            @RequestParam(required = false, defaultValue = "false") boolean activeOnly,
+            @RequestParam(required = false) Category category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) ItemSort sort,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            if (category != null || minPrice != null || maxPrice != null || sort != null || page != null || size != null) {
+                List<Map<String, Object>> items = itemService.searchItems(category, minPrice, maxPrice, activeOnly,
+                        sort == null ? ItemSort.PRICE_DESC : sort,
+                        page == null ? 0 : page,
+                        size == null ? DEFAULT_PAGE_SIZE : size,
+                        fields);
+                return new ResponseEntity<>(items, HttpStatus.OK);
+            }
+            return new ResponseEntity<>(itemService.getItems(activeOnly, fields), HttpStatus.OK);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Several items by id in one request, e.g. {@code /items?ids=a,b,c}, in the order given; ids that match
+     * no item are listed in {@code missingIds}.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<ItemBatch> getItemsByIds(@RequestParam List<String> ids) {
+        try {
+            return new ResponseEntity<>(itemService.getItemsByIds(ids), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Same as {@link #getItemsByIds}, with the ids as a JSON array in the body, for lists too long for a URL.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ItemBatch> getItemsByIdsBatch(@RequestBody List<String> ids) {
+        return getItemsByIds(ids);
+    }
+
+    /**
+     * Streaming variant of {@link #getAllItems}, selected with {@code Accept: application/x-ndjson}.
+     * Items are written one JSON document per line, as fast as the client reads them.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Item> streamAllItems(
+            @RequestParam(required = false, defaultValue = "false") boolean activeOnly) {
+        return itemService.streamItems(activeOnly);
+    }
+
+    /**
+     * Items filtered by any combination of facets, one page at a time, with the count of every facet value.
+     * Repeating {@code category} or {@code priceBand} matches items in any of the given values.
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<ItemPage> browseItems(
+            @RequestParam(required = false) Set<Category> category,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) Set<String> priceBand,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endsAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endsBefore,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false, defaultValue = "20") int size) {
+
+        ItemFacetFilter filter = new ItemFacetFilter();
+        filter.setCategories(category);
+        filter.setActive(active);
+        filter.setPriceBands(priceBand);
+        filter.setEndsAfter(endsAfter);
+        filter.setEndsBefore(endsBefore);
+        try {
+            return new ResponseEntity<>(itemService.browseItems(filter, page, size), HttpStatus.OK);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Active auctions by time left, soonest first. {@code cursor} is the {@code nextCursor} of the previous page.
+     */
+    @GetMapping("/ending-soon")
+    public ResponseEntity<ItemFeed> getEndingSoon(
+            @RequestParam(required = false) Category category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+        try {
+            return new ResponseEntity<>(itemService.getEndingSoon(category, cursor, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Server-sent events with the price, highest bidder and bid count of an item: its current state first,
+     * then one {@code price} event per accepted bid. A slow client skips to the latest state.
+     */
+    @GetMapping(value = "/{id}/price-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<PriceUpdate>>> streamPrice(@PathVariable String id) {
+        return streamPrices(List.of(id));
+    }
+
+    /**
+     * Same as {@link #streamPrice} for a watched set of items, e.g. {@code /items/price-stream?ids=a,b,c}.
+     * Ids that match no item are left out.
+     */
+    @GetMapping(value = "/price-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<PriceUpdate>>> streamPrices(@RequestParam List<String> ids) {
+        try {
+            Flux<ServerSentEvent<PriceUpdate>> prices = priceStreamService.watch(ids)
+                    .map(update -> ServerSentEvent.builder(update).event("price").build());
+            Flux<ServerSentEvent<PriceUpdate>> heartbeats = Flux.interval(HEARTBEAT_INTERVAL)
+                    .onBackpressureDrop()
+                    .map(tick -> ServerSentEvent.<PriceUpdate>builder().comment("heartbeat").build());
+            return new ResponseEntity<>(Flux.merge(1, prices, heartbeats), HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * An item, with a weak ETag; a request whose {@code If-None-Match} names the current tag gets a 304
+     * answered from memory.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Item> getItemById(@PathVariable String id) {
+    public ResponseEntity<Item> getItemById(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = itemService.getItemETag(id);
+        if (VersionCounters.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
             Item item = itemService.getItemById(id);
-            return new ResponseEntity<>(item, HttpStatus.OK);
+            return ResponseEntity.status(HttpStatus.OK).eTag(eTag).body(item);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -1,15 +1,23 @@
 package ro.unibuc.hello.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ro.unibuc.hello.dto.AuctionStats;
+import ro.unibuc.hello.dto.BidAmountDistribution;
 import ro.unibuc.hello.dto.ItemPopularity;
+import ro.unibuc.hello.dto.StatsChanges;
 import ro.unibuc.hello.dto.UserStats;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.QueryTimeoutException;
 import ro.unibuc.hello.service.StatsService;
+import ro.unibuc.hello.util.TimeWindow;
+import ro.unibuc.hello.util.VersionCounters;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -21,9 +29,30 @@ public class StatsController {
     private StatsService statsService;
 
     @GetMapping("/overview")
-    public ResponseEntity<AuctionStats> getOverallStats() {
-        AuctionStats stats = statsService.getOverallStats();
-        return new ResponseEntity<>(stats, HttpStatus.OK);
+    public ResponseEntity<AuctionStats> getOverallStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            AuctionStats stats = statsService.getOverallStats(TimeWindow.of(from, to));
+            return new ResponseEntity<>(stats, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (QueryTimeoutException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * What changed in the overview since the one with version {@code since}; see {@link StatsChanges}.
+     */
+    @GetMapping("/overview/changes")
+    public ResponseEntity<StatsChanges> getOverallStatsChanges(@RequestParam long since) {
+        try {
+            StatsChanges changes = statsService.getOverallStatsChanges(since);
+            return new ResponseEntity<>(changes, HttpStatus.OK);
+        } catch (QueryTimeoutException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
     }
 
     @GetMapping("/user/{email}")
@@ -33,26 +62,98 @@ public class StatsController {
             return new ResponseEntity<>(stats, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (QueryTimeoutException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
+    /**
+     * An item's popularity, with a weak ETag; a request whose {@code If-None-Match} names the current tag
+     * gets a 304 answered from memory.
+     */
     @GetMapping("/item/{itemId}")
-    public ResponseEntity<ItemPopularity> getItemPopularity(@PathVariable String itemId) {
+    public ResponseEntity<ItemPopularity> getItemPopularity(
+            @PathVariable String itemId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String eTag = statsService.getItemPopularityETag(itemId);
+        if (VersionCounters.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         try {
             ItemPopularity stats = statsService.getItemPopularity(itemId);
-            return new ResponseEntity<>(stats, HttpStatus.OK);
+            return ResponseEntity.status(HttpStatus.OK).eTag(eTag).body(stats);
         } catch (EntityNotFoundException e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Popularity of several items at once, e.g. {@code /stats/items?ids=a,b,c}, in the order given.
+     * Unknown ids are left out; no ids, or more than {@code items.batch.max-ids}, is a bad request.
+     */
+    @GetMapping("/items")
+    public ResponseEntity<List<ItemPopularity>> getItemsPopularity(@RequestParam List<String> ids) {
+        try {
+            List<ItemPopularity> popularity = statsService.getItemPopularity(ids);
+            return new ResponseEntity<>(popularity, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @GetMapping("/category/{category}")
-    public ResponseEntity<AuctionStats> getCategoryStats(@PathVariable String category) {
+    public ResponseEntity<AuctionStats> getCategoryStats(
+            @PathVariable String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            AuctionStats stats = statsService.getCategoryStats(category, TimeWindow.of(from, to));
+            return new ResponseEntity<>(stats, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Statistics of every category, keyed by category name, computed together in one pass.
+     */
+    @GetMapping("/categories")
+    public ResponseEntity<Map<String, AuctionStats>> getAllCategoryStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         try {
-            AuctionStats stats = statsService.getCategoryStats(category);
+            Map<String, AuctionStats> stats = statsService.getAllCategoryStats(TimeWindow.of(from, to));
             return new ResponseEntity<>(stats, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (QueryTimeoutException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @GetMapping("/bid-amounts")
+    public ResponseEntity<BidAmountDistribution> getBidAmountDistribution() {
+        BidAmountDistribution distribution = statsService.getBidAmountDistribution();
+        return new ResponseEntity<>(distribution, HttpStatus.OK);
+    }
+
+    @GetMapping("/category/{category}/bid-amounts")
+    public ResponseEntity<BidAmountDistribution> getCategoryBidAmountDistribution(@PathVariable String category) {
+        try {
+            BidAmountDistribution distribution = statsService.getCategoryBidAmountDistribution(category);
+            return new ResponseEntity<>(distribution, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/item/{itemId}/bid-amounts")
+    public ResponseEntity<BidAmountDistribution> getItemBidAmountDistribution(@PathVariable String itemId) {
+        try {
+            BidAmountDistribution distribution = statsService.getItemBidAmountDistribution(itemId);
+            return new ResponseEntity<>(distribution, HttpStatus.OK);
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
@@ -65,21 +166,35 @@ public class StatsController {
 
     @GetMapping("/popular-categories")
     public ResponseEntity<Map<String, Double>> getPopularCategories() {
-        Map<String, Double> popularCategories = statsService.getPopularCategories();
-        return new ResponseEntity<>(popularCategories, HttpStatus.OK);
+        try {
+            Map<String, Double> popularCategories = statsService.getPopularCategories();
+            return new ResponseEntity<>(popularCategories, HttpStatus.OK);
+        } catch (QueryTimeoutException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
     }
 
     @GetMapping("/active-users")
     public ResponseEntity<List<UserStats>> getMostActiveUsers(
             @RequestParam(required = false, defaultValue = "10") int limit) {
-        List<UserStats> activeUsers = statsService.getMostActiveUsers(limit);
-        return new ResponseEntity<>(activeUsers, HttpStatus.OK);
+        try {
+            List<UserStats> activeUsers = statsService.getMostActiveUsers(limit);
+            return new ResponseEntity<>(activeUsers, HttpStatus.OK);
+        } catch (QueryTimeoutException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
     }
 
     @GetMapping("/bidding-hours")
-    public ResponseEntity<Map<String, Integer>> getBiddingHourDistribution() {
-        Map<String, Integer> hourDistribution = statsService.getBiddingHourDistribution();
-        return new ResponseEntity<>(hourDistribution, HttpStatus.OK);
+    public ResponseEntity<Map<String, Integer>> getBiddingHourDistribution(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            Map<String, Integer> hourDistribution = statsService.getBiddingHourDistribution(TimeWindow.of(from, to));
+            return new ResponseEntity<>(hourDistribution, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     @GetMapping("/hot-items")
@@ -1,10 +1,15 @@
 package ro.unibuc.hello.data;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "bids")
+// Bid history pages of an item, highest bid or newest bid first
+@CompoundIndex(name = "item_amount_id", def = "{'itemId': 1, 'amount': -1, '_id': -1}")
+@CompoundIndex(name = "item_created_id", def = "{'itemId': 1, 'createdAt': -1, '_id': -1}")
 public class BidEntity {
 
     @Id
@@ -13,6 +18,7 @@ public class BidEntity {
     private String itemId;
     private String bidderName;
     private double amount;
+    @Indexed
     private LocalDateTime createdAt;
     private String email;
 
@@ -0,0 +1,22 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Orders of an item's bid history. Each ends with the id so a page boundary never falls between equal keys,
+ * and each matches one of the (itemId, ...) compound indexes on {@link BidEntity}.
+ */
+public enum BidOrder {
+    AMOUNT_DESC(Sort.by(Sort.Order.desc("amount"), Sort.Order.desc("_id"))),
+    TIME_DESC(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("_id")));
+
+    private final Sort sort;
+
+    BidOrder(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+}
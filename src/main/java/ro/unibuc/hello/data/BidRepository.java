@@ -1,19 +1,45 @@
 package ro.unibuc.hello.data;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BidRepository extends MongoRepository<BidEntity, String> {
     // Existing methods...
     List<BidEntity> findByItemId(String itemId);
-    List<BidEntity> findByItemIdOrderByAmountDesc(String itemId);
+    Optional<BidEntity> findFirstByItemIdOrderByAmountDesc(String itemId);
     List<BidEntity> findByBidderName(String bidderName);
     List<BidEntity> findByItemIdAndBidderName(String itemId, String bidderName);
 
     // Add these new methods for email-based queries
     List<BidEntity> findByEmail(String email);
     List<BidEntity> findByItemIdAndEmail(String itemId, String email);
-    List<BidEntity> findByItemIdAndEmailOrderByAmountDesc(String itemId, String email);
+    Optional<BidEntity> findFirstByItemIdAndEmailOrderByAmountDesc(String itemId, String email);
+
+    // Bid history pages: the first page, then the bids after the last one shown (see BidOrder for the sorts)
+    Slice<BidEntity> findByItemId(String itemId, Pageable pageable);
+
+    @Query("{ 'itemId': ?0, $or: [ { 'amount': { $lt: ?1 } }, { 'amount': ?1, '_id': { $lt: ?2 } } ] }")
+    Slice<BidEntity> findByItemIdAfterAmount(String itemId, double amount, ObjectId id, Pageable pageable);
+
+    @Query("{ 'itemId': ?0, $or: [ { 'createdAt': { $lt: ?1 } }, { 'createdAt': ?1, '_id': { $lt: ?2 } } ] }")
+    Slice<BidEntity> findByItemIdAfterCreatedAt(String itemId, LocalDateTime createdAt, ObjectId id, Pageable pageable);
+
+    // Bids placed in [from, to)
+    @Query("{ 'createdAt': { $gte: ?0, $lt: ?1 } }")
+    List<BidEntity> findByCreatedAtInRange(LocalDateTime from, LocalDateTime to);
+
+    // Reads the whole collection through a cursor instead of loading it into one list
+    Stream<BidEntity> streamAllBy();
+
+    // Same, in the order the bids were placed (walks the createdAt index)
+    Stream<BidEntity> streamAllByOrderByCreatedAtAsc();
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bid count and amount sum of one category over one minute, hour or day. Recent bids are counted in
+ * minute buckets, which are later compacted into hour and then day buckets.
+ */
+@Document(collection = "bid_rollups")
+@CompoundIndex(name = "granularity_bucket", def = "{'granularity': 1, 'bucketStart': 1}")
+public class BidRollupEntity {
+
+    @Id
+    private String id;
+
+    private RollupGranularity granularity;
+    private LocalDateTime bucketStart;
+    private Category category;
+    private long bidCount;
+    private double amountSum;
+    private LocalDateTime firstBidAt;
+    private LocalDateTime lastBidAt;
+
+    // Bids per hour of day; only kept for day buckets, the hour of finer buckets is their bucketStart
+    private Map<String, Long> bidsByHour;
+
+    // Ids of the finer buckets compacted into this one, so a compaction cut short can be rerun safely
+    private List<String> compactedFrom;
+
+    public BidRollupEntity() {
+    }
+
+    public BidRollupEntity(RollupGranularity granularity, LocalDateTime bucketStart, Category category) {
+        this.id = idOf(granularity, bucketStart, category);
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.category = category;
+        if (granularity == RollupGranularity.DAY) {
+            this.bidsByHour = new HashMap<>();
+        }
+    }
+
+    /**
+     * One document per bucket and category, so concurrent writers upsert the same document.
+     */
+    public static String idOf(RollupGranularity granularity, LocalDateTime bucketStart, Category category) {
+        return granularity + ":" + bucketStart + ":" + (category == null ? "NONE" : category.name());
+    }
+
+    public void add(LocalDateTime createdAt, double amount) {
+        bidCount++;
+        amountSum += amount;
+        if (firstBidAt == null || createdAt.isBefore(firstBidAt)) {
+            firstBidAt = createdAt;
+        }
+        if (lastBidAt == null || createdAt.isAfter(lastBidAt)) {
+            lastBidAt = createdAt;
+        }
+        if (bidsByHour != null) {
+            bidsByHour.merge(String.valueOf(createdAt.getHour()), 1L, Long::sum);
+        }
+    }
+
+    public void merge(BidRollupEntity other) {
+        bidCount += other.bidCount;
+        amountSum += other.amountSum;
+        if (firstBidAt == null || (other.firstBidAt != null && other.firstBidAt.isBefore(firstBidAt))) {
+            firstBidAt = other.firstBidAt;
+        }
+        if (lastBidAt == null || (other.lastBidAt != null && other.lastBidAt.isAfter(lastBidAt))) {
+            lastBidAt = other.lastBidAt;
+        }
+        if (bidsByHour != null) {
+            other.hourCounts().forEach((hour, count) -> bidsByHour.merge(String.valueOf(hour), count, Long::sum));
+        }
+    }
+
+    /**
+     * Bids of this bucket per hour of day.
+     */
+    public Map<Integer, Long> hourCounts() {
+        Map<Integer, Long> counts = new HashMap<>();
+        if (granularity == RollupGranularity.DAY) {
+            if (bidsByHour != null) {
+                bidsByHour.forEach((hour, count) -> counts.put(Integer.parseInt(hour), count));
+            }
+        } else if (bidCount > 0) {
+            counts.put(bucketStart.getHour(), bidCount);
+        }
+        return counts;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public RollupGranularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(RollupGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public void setCategory(Category category) {
+        this.category = category;
+    }
+
+    public long getBidCount() {
+        return bidCount;
+    }
+
+    public void setBidCount(long bidCount) {
+        this.bidCount = bidCount;
+    }
+
+    public double getAmountSum() {
+        return amountSum;
+    }
+
+    public void setAmountSum(double amountSum) {
+        this.amountSum = amountSum;
+    }
+
+    public LocalDateTime getFirstBidAt() {
+        return firstBidAt;
+    }
+
+    public void setFirstBidAt(LocalDateTime firstBidAt) {
+        this.firstBidAt = firstBidAt;
+    }
+
+    public LocalDateTime getLastBidAt() {
+        return lastBidAt;
+    }
+
+    public void setLastBidAt(LocalDateTime lastBidAt) {
+        this.lastBidAt = lastBidAt;
+    }
+
+    public Map<String, Long> getBidsByHour() {
+        return bidsByHour;
+    }
+
+    public void setBidsByHour(Map<String, Long> bidsByHour) {
+        this.bidsByHour = bidsByHour;
+    }
+
+    public List<String> getCompactedFrom() {
+        return compactedFrom;
+    }
+
+    public void setCompactedFrom(List<String> compactedFrom) {
+        this.compactedFrom = compactedFrom;
+    }
+}
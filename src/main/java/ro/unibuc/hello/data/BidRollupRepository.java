@@ -0,0 +1,22 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BidRollupRepository extends MongoRepository<BidRollupEntity, String>, BidRollupRepositoryCustom {
+    List<BidRollupEntity> findByCategory(Category category);
+
+    // Buckets starting in [from, to)
+    @Query("{ 'bucketStart': { $gte: ?0, $lt: ?1 } }")
+    List<BidRollupEntity> findByBucketStartInRange(LocalDateTime from, LocalDateTime to);
+
+    @Query("{ 'category': ?0, 'bucketStart': { $gte: ?1, $lt: ?2 } }")
+    List<BidRollupEntity> findByCategoryAndBucketStartInRange(Category category, LocalDateTime from, LocalDateTime to);
+
+    List<BidRollupEntity> findByGranularityAndBucketStartBefore(RollupGranularity granularity, LocalDateTime before);
+}
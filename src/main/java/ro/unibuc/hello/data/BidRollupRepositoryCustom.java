@@ -0,0 +1,11 @@
+package ro.unibuc.hello.data;
+
+import java.util.Collection;
+
+public interface BidRollupRepositoryCustom {
+
+    /**
+     * Replaces every stored rollup with {@code rollups} in one step.
+     */
+    void replaceAll(Collection<BidRollupEntity> rollups);
+}
@@ -0,0 +1,42 @@
+package ro.unibuc.hello.data;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+
+import java.util.Collection;
+
+/**
+ * Writes rebuilt rollups to a side collection, with the indexes declared on {@link BidRollupEntity}, and
+ * renames it over bid_rollups, so readers see either the old rollups or the new ones but never an empty or
+ * half-written collection.
+ */
+public class BidRollupRepositoryImpl implements BidRollupRepositoryCustom {
+
+    private static final String REBUILD_COLLECTION = "bid_rollups_rebuild";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void replaceAll(Collection<BidRollupEntity> rollups) {
+        // Left over if an earlier rebuild failed before the rename
+        mongoTemplate.dropCollection(REBUILD_COLLECTION);
+
+        IndexOperations indexOps = mongoTemplate.indexOps(REBUILD_COLLECTION);
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(BidRollupEntity.class)
+                .forEach(indexOps::ensureIndex);
+        if (!rollups.isEmpty()) {
+            mongoTemplate.insert(rollups, REBUILD_COLLECTION);
+        }
+
+        MongoNamespace target = new MongoNamespace(mongoTemplate.getDb().getName(),
+                mongoTemplate.getCollectionName(BidRollupEntity.class));
+        mongoTemplate.getCollection(REBUILD_COLLECTION)
+                .renameCollection(target, new RenameCollectionOptions().dropTarget(true));
+    }
+}
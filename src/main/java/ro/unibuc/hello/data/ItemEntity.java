@@ -1,10 +1,17 @@
 package ro.unibuc.hello.data;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
+// Equality fields first, then the sort field (which also bounds price ranges), so filtered and sorted item
+// queries walk one index range instead of scanning and sorting in memory
 @Document(collection = "items")
+@CompoundIndex(name = "category_active_price", def = "{'category': 1, 'active': 1, 'currentPrice': -1, '_id': 1}")
+@CompoundIndex(name = "active_price", def = "{'active': 1, 'currentPrice': -1, '_id': 1}")
+@CompoundIndex(name = "category_active_end", def = "{'category': 1, 'active': 1, 'endTime': 1, '_id': 1}")
+@CompoundIndex(name = "active_end", def = "{'active': 1, 'endTime': 1, '_id': 1}")
 public class ItemEntity {
 
     @Id
@@ -17,6 +24,9 @@ public class ItemEntity {
     private LocalDateTime createdAt;
     private String creator;
     private Category category;
+    // Highest bid (the initial price until the first bid) and who placed it, kept in step by ItemService
+    private double currentPrice;
+    private String highestBidder;
 
     public ItemEntity() {
         this.createdAt = LocalDateTime.now();
@@ -28,11 +38,28 @@ public class ItemEntity {
         this.name = name;
         this.description = description;
         this.initialPrice = initialPrice;
+        this.currentPrice = initialPrice;
         this.endTime = endTime;
         this.creator = creator;
         this.category = category;
     }
 
+    public double getCurrentPrice() {
+        return currentPrice;
+    }
+
+    public void setCurrentPrice(double currentPrice) {
+        this.currentPrice = currentPrice;
+    }
+
+    public String getHighestBidder() {
+        return highestBidder;
+    }
+
+    public void setHighestBidder(String highestBidder) {
+        this.highestBidder = highestBidder;
+    }
+
     public Category getCategory() {
         return category;
     }
@@ -0,0 +1,23 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Sort orders of item queries. Each ends with the id so pages never overlap, and each matches one of the
+ * compound indexes on {@link ItemEntity}.
+ */
+public enum ItemSort {
+    PRICE_DESC(Sort.by(Sort.Order.desc("currentPrice"), Sort.Order.asc("_id"))),
+    PRICE_ASC(Sort.by(Sort.Order.asc("currentPrice"), Sort.Order.desc("_id"))),
+    ENDING_SOONEST(Sort.by(Sort.Order.asc("endTime"), Sort.Order.asc("_id")));
+
+    private final Sort sort;
+
+    ItemSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+}
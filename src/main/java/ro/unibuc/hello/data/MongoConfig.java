@@ -5,8 +5,13 @@ import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -24,15 +29,43 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
 
     @Override
     public MongoClient mongoClient() {
-        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
-                .applyConnectionString(new ConnectionString(connectionURL))
-                .build();
+        return MongoClients.create(mongoClientSettings());
+    }
+
+    /**
+     * Client for the reactive (streaming) read paths. It shares the connection settings
+     * and the mapping converter with the blocking client.
+     */
+    @Bean
+    public com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient() {
+        return com.mongodb.reactivestreams.client.MongoClients.create(mongoClientSettings());
+    }
 
-        return MongoClients.create(mongoClientSettings);
+    @Bean
+    public ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory(
+            com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient) {
+        return new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, getDatabaseName());
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory,
+                                                       MappingMongoConverter mappingMongoConverter) {
+        return new ReactiveMongoTemplate(reactiveMongoDatabaseFactory, mappingMongoConverter);
     }
 
     @Override
     public Collection<String> getMappingBasePackages() {
         return Collections.singleton("ro.unibuc.hello.data");
     }
+
+    // Indexes declared on the entities (e.g. the bid rollup buckets) are created on startup
+    @Override
+    protected boolean autoIndexCreation() {
+        return true;
+    }
+
+    @Override
+    protected void configureClientSettings(MongoClientSettings.Builder builder) {
+        builder.applyConnectionString(new ConnectionString(connectionURL));
+    }
 }
@@ -0,0 +1,16 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link BidRepository}, used by the streaming read endpoints.
+ */
+@Repository
+public interface ReactiveBidRepository extends ReactiveMongoRepository<BidEntity, String> {
+    Flux<BidEntity> findByItemId(String itemId);
+    Flux<BidEntity> findByEmail(String email);
+    Mono<BidEntity> findFirstByItemIdOrderByAmountDesc(String itemId);
+}
@@ -0,0 +1,13 @@
+package ro.unibuc.hello.data;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of {@link ItemRepository}, used by the streaming read endpoints.
+ */
+@Repository
+public interface ReactiveItemRepository extends ReactiveMongoRepository<ItemEntity, String> {
+    Flux<ItemEntity> findByActive(boolean active);
+}
@@ -11,6 +11,9 @@ public class AuctionStats {
     private double averageBids;
     private double highestBidAmount;
     private double averageBidAmount;
+    private double medianBidAmount;
+    private double p90BidAmount;
+    private double p99BidAmount;
     private Map<String, Integer> itemsByCategory;
 
     // Popularity metrics
@@ -24,6 +27,8 @@ public class AuctionStats {
     private Map<String, Integer> mostActiveTimes;
 
     private LocalDateTime generatedAt;
+    // Version of the overview, for asking /stats/overview/changes what changed since; null for other stats
+    private Long version;
 
     public AuctionStats() {
         this.generatedAt = LocalDateTime.now();
@@ -85,6 +90,30 @@ public class AuctionStats {
         this.averageBidAmount = averageBidAmount;
     }
 
+    public double getMedianBidAmount() {
+        return medianBidAmount;
+    }
+
+    public void setMedianBidAmount(double medianBidAmount) {
+        this.medianBidAmount = medianBidAmount;
+    }
+
+    public double getP90BidAmount() {
+        return p90BidAmount;
+    }
+
+    public void setP90BidAmount(double p90BidAmount) {
+        this.p90BidAmount = p90BidAmount;
+    }
+
+    public double getP99BidAmount() {
+        return p99BidAmount;
+    }
+
+    public void setP99BidAmount(double p99BidAmount) {
+        this.p99BidAmount = p99BidAmount;
+    }
+
     public Map<String, Integer> getItemsByCategory() {
         return itemsByCategory;
     }
@@ -164,4 +193,12 @@ public class AuctionStats {
     public void setGeneratedAt(LocalDateTime generatedAt) {
         this.generatedAt = generatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
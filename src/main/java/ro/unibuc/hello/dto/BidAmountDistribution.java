@@ -0,0 +1,50 @@
+package ro.unibuc.hello.dto;
+
+public class BidAmountDistribution {
+    private long totalBids;
+    private double medianBidAmount;
+    private double p90BidAmount;
+    private double p99BidAmount;
+
+    public BidAmountDistribution() {
+    }
+
+    public BidAmountDistribution(long totalBids, double medianBidAmount, double p90BidAmount, double p99BidAmount) {
+        this.totalBids = totalBids;
+        this.medianBidAmount = medianBidAmount;
+        this.p90BidAmount = p90BidAmount;
+        this.p99BidAmount = p99BidAmount;
+    }
+
+    public long getTotalBids() {
+        return totalBids;
+    }
+
+    public void setTotalBids(long totalBids) {
+        this.totalBids = totalBids;
+    }
+
+    public double getMedianBidAmount() {
+        return medianBidAmount;
+    }
+
+    public void setMedianBidAmount(double medianBidAmount) {
+        this.medianBidAmount = medianBidAmount;
+    }
+
+    public double getP90BidAmount() {
+        return p90BidAmount;
+    }
+
+    public void setP90BidAmount(double p90BidAmount) {
+        this.p90BidAmount = p90BidAmount;
+    }
+
+    public double getP99BidAmount() {
+        return p99BidAmount;
+    }
+
+    public void setP99BidAmount(double p99BidAmount) {
+        this.p99BidAmount = p99BidAmount;
+    }
+}
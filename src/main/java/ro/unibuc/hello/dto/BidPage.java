@@ -0,0 +1,33 @@
+package ro.unibuc.hello.dto;
+
+import java.util.List;
+
+public class BidPage {
+    private List<Bid> bids;
+    // Passed back as the cursor parameter to get the next page; null on the last page
+    private String nextCursor;
+
+    public BidPage() {
+    }
+
+    public BidPage(List<Bid> bids, String nextCursor) {
+        this.bids = bids;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Bid> getBids() {
+        return bids;
+    }
+
+    public void setBids(List<Bid> bids) {
+        this.bids = bids;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,34 @@
+package ro.unibuc.hello.dto;
+
+import java.util.List;
+
+public class ItemBatch {
+    // In the order the ids were requested, each item once
+    private List<Item> items;
+    // Requested ids that match no item
+    private List<String> missingIds;
+
+    public ItemBatch() {
+    }
+
+    public ItemBatch(List<Item> items, List<String> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public List<String> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<String> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
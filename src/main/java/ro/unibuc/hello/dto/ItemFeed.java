@@ -0,0 +1,33 @@
+package ro.unibuc.hello.dto;
+
+import java.util.List;
+
+public class ItemFeed {
+    private List<Item> items;
+    // Passed back as the cursor parameter to get the next page; null on the last page
+    private String nextCursor;
+
+    public ItemFeed() {
+    }
+
+    public ItemFeed(List<Item> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,64 @@
+package ro.unibuc.hello.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class ItemPage {
+    private List<Item> items;
+    private long total;
+    private int page;
+    private int size;
+    // Facet name -> facet value -> number of matching items
+    private Map<String, Map<String, Long>> facets;
+
+    public ItemPage() {
+    }
+
+    public ItemPage(List<Item> items, long total, int page, int size, Map<String, Map<String, Long>> facets) {
+        this.items = items;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.facets = facets;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Map<String, Map<String, Long>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Long>> facets) {
+        this.facets = facets;
+    }
+}
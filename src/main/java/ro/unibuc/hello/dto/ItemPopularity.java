@@ -14,6 +14,9 @@ public class ItemPopularity {
     private int viewCount; // if you want to track views in the future
     private double priceIncrease; // percentage increase from initial price
     private boolean isHot; // flag for especially active items
+    private long bidsLastMinute;
+    private long bidsLastHour;
+    private double decayedBidScore; // bids weighted by recency, halving every half-life
 
     public ItemPopularity() {
     }
@@ -105,4 +108,28 @@ public class ItemPopularity {
     public void setHot(boolean hot) {
         isHot = hot;
     }
+
+    public long getBidsLastMinute() {
+        return bidsLastMinute;
+    }
+
+    public void setBidsLastMinute(long bidsLastMinute) {
+        this.bidsLastMinute = bidsLastMinute;
+    }
+
+    public long getBidsLastHour() {
+        return bidsLastHour;
+    }
+
+    public void setBidsLastHour(long bidsLastHour) {
+        this.bidsLastHour = bidsLastHour;
+    }
+
+    public double getDecayedBidScore() {
+        return decayedBidScore;
+    }
+
+    public void setDecayedBidScore(double decayedBidScore) {
+        this.decayedBidScore = decayedBidScore;
+    }
 }
\ No newline at end of file
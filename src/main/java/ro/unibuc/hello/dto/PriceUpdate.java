@@ -0,0 +1,62 @@
+package ro.unibuc.hello.dto;
+
+import java.time.LocalDateTime;
+
+public class PriceUpdate {
+    private String itemId;
+    private double currentPrice;
+    private String highestBidder;
+    private long bidCount;
+    private LocalDateTime lastBidAt;
+
+    public PriceUpdate() {
+    }
+
+    public PriceUpdate(String itemId, double currentPrice, String highestBidder, long bidCount, LocalDateTime lastBidAt) {
+        this.itemId = itemId;
+        this.currentPrice = currentPrice;
+        this.highestBidder = highestBidder;
+        this.bidCount = bidCount;
+        this.lastBidAt = lastBidAt;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(String itemId) {
+        this.itemId = itemId;
+    }
+
+    public double getCurrentPrice() {
+        return currentPrice;
+    }
+
+    public void setCurrentPrice(double currentPrice) {
+        this.currentPrice = currentPrice;
+    }
+
+    public String getHighestBidder() {
+        return highestBidder;
+    }
+
+    public void setHighestBidder(String highestBidder) {
+        this.highestBidder = highestBidder;
+    }
+
+    public long getBidCount() {
+        return bidCount;
+    }
+
+    public void setBidCount(long bidCount) {
+        this.bidCount = bidCount;
+    }
+
+    public LocalDateTime getLastBidAt() {
+        return lastBidAt;
+    }
+
+    public void setLastBidAt(LocalDateTime lastBidAt) {
+        this.lastBidAt = lastBidAt;
+    }
+}
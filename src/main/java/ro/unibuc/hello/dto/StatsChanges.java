@@ -0,0 +1,57 @@
+package ro.unibuc.hello.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class StatsChanges {
+    // Passed back as the since parameter to get the next changes
+    private long version;
+    // True if changed holds the whole document, to replace rather than merge into what the client has
+    private boolean full;
+    // New values of changed fields; map-valued fields only hold their changed entries
+    private Map<String, Object> changed;
+    // Field -> keys of its removed map entries; an empty list means the field itself was removed
+    private Map<String, List<String>> removed;
+
+    public StatsChanges() {
+    }
+
+    public StatsChanges(long version, boolean full, Map<String, Object> changed, Map<String, List<String>> removed) {
+        this.version = version;
+        this.full = full;
+        this.changed = changed;
+        this.removed = removed;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public Map<String, Object> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(Map<String, Object> changed) {
+        this.changed = changed;
+    }
+
+    public Map<String, List<String>> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(Map<String, List<String>> removed) {
+        this.removed = removed;
+    }
+}
@@ -0,0 +1,26 @@
+package ro.unibuc.hello.event;
+
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+
+/**
+ * Published once a bid has been deleted, together with the item it was placed on (null if it is gone).
+ */
+public class BidDeletedEvent {
+
+    private final BidEntity bid;
+    private final ItemEntity item;
+
+    public BidDeletedEvent(BidEntity bid, ItemEntity item) {
+        this.bid = bid;
+        this.item = item;
+    }
+
+    public BidEntity getBid() {
+        return bid;
+    }
+
+    public ItemEntity getItem() {
+        return item;
+    }
+}
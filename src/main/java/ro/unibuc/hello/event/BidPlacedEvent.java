@@ -0,0 +1,26 @@
+package ro.unibuc.hello.event;
+
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+
+/**
+ * Published once a bid has been accepted and saved, together with the item it was placed on.
+ */
+public class BidPlacedEvent {
+
+    private final BidEntity bid;
+    private final ItemEntity item;
+
+    public BidPlacedEvent(BidEntity bid, ItemEntity item) {
+        this.bid = bid;
+        this.item = item;
+    }
+
+    public BidEntity getBid() {
+        return bid;
+    }
+
+    public ItemEntity getItem() {
+        return item;
+    }
+}
@@ -0,0 +1,31 @@
+package ro.unibuc.hello.event;
+
+import ro.unibuc.hello.data.Category;
+
+/**
+ * Published when an item is saved with a different category than it had before.
+ */
+public class ItemCategoryChangedEvent {
+
+    private final String itemId;
+    private final Category previousCategory;
+    private final Category category;
+
+    public ItemCategoryChangedEvent(String itemId, Category previousCategory, Category category) {
+        this.itemId = itemId;
+        this.previousCategory = previousCategory;
+        this.category = category;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public Category getPreviousCategory() {
+        return previousCategory;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+}
@@ -0,0 +1,12 @@
+package ro.unibuc.hello.exception;
+
+import java.time.Duration;
+
+public class QueryTimeoutException extends RuntimeException {
+
+    private static final String queryTimeoutTemplate = "Query did not complete within %d ms";
+
+    public QueryTimeoutException(Duration timeout) {
+        super(String.format(queryTimeoutTemplate, timeout.toMillis()));
+    }
+}
@@ -0,0 +1,510 @@
+package ro.unibuc.hello.service;
+
+import com.mongodb.client.result.UpdateResult;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ro.unibuc.hello.analytics.BidActivity;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.BidRepository;
+import ro.unibuc.hello.data.BidRollupEntity;
+import ro.unibuc.hello.data.BidRollupRepository;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.data.RollupGranularity;
+import ro.unibuc.hello.event.BidDeletedEvent;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.event.ItemCategoryChangedEvent;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.TimeWindow;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the bid_rollups collection: per-category bid counts and amount sums per minute, hour and day.
+ * <p>
+ * Every placed bid is one upsert into its minute bucket. Minute buckets older than
+ * {@code rollups.minute-retention} are compacted into hour buckets, and hour buckets older than
+ * {@code rollups.hour-retention} into day buckets, so time-distribution stats read a few hundred small
+ * documents however long the bid history is. Activity over a time window adds up the buckets that lie
+ * inside it and reads only the bids of the partly covered buckets at its edges.
+ * <p>
+ * Compaction folds each fine bucket into its coarse one with a single update that also records the fine
+ * bucket's id, and skips buckets already recorded, so a run cut short between folding and deleting can be
+ * repeated without counting any bid twice.
+ * <p>
+ * A deleted bid is taken out of the one bucket that holds it. A category change moves bids between buckets,
+ * so it rebuilds every rollup in the background: the rebuilt buckets are written to a side collection that
+ * replaces bid_rollups in one step. While a rebuild runs, placed bids are held back and upserted once it is
+ * done, except those it already read, and the buckets of bids deleted meanwhile are recounted.
+ */
+@Service
+public class BidRollupService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BidRollupRepository bidRollupRepository;
+
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @Value("${rollups.minute-retention:2h}")
+    private Duration minuteRetention = Duration.ofHours(2);
+
+    @Value("${rollups.hour-retention:2d}")
+    private Duration hourRetention = Duration.ofDays(2);
+
+    // A placed bid is published right after it is saved, well within this of its createdAt; streamed bids
+    // this recent are remembered so a rebuild does not upsert them again
+    private static final Duration PUBLISH_MARGIN = Duration.ofMinutes(1);
+
+    // Bids are upserted concurrently; starting and finishing a rebuild waits for them
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    // Bids placed and deleted during the running rebuild, if any
+    private List<BidPlacedEvent> placedDuringRebuild;
+    private List<BidDeletedEvent> deletedDuringRebuild;
+
+    // Held by compaction and by bid deletes, so a deleted bid's bucket is not folded into another meanwhile
+    private final Object bucketLock = new Object();
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    @EventListener
+    public void onBidPlaced(BidPlacedEvent event) {
+        rebuildLock.readLock().lock();
+        try {
+            if (placedDuringRebuild != null) {
+                // The rebuild replaces every bucket, so the bid is counted once it is done
+                placedDuringRebuild.add(event);
+            } else {
+                upsertMinuteBucket(event);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void upsertMinuteBucket(BidPlacedEvent event) {
+        BidEntity bid = event.getBid();
+        Category category = categoryOf(event.getItem());
+        LocalDateTime bucketStart = RollupGranularity.MINUTE.bucketStart(bid.getCreatedAt());
+
+        Update update = new Update()
+                .setOnInsert("granularity", RollupGranularity.MINUTE)
+                .setOnInsert("bucketStart", bucketStart)
+                .setOnInsert("category", category)
+                .inc("bidCount", 1)
+                .inc("amountSum", bid.getAmount())
+                .min("firstBidAt", bid.getCreatedAt())
+                .max("lastBidAt", bid.getCreatedAt());
+        upsert(BidRollupEntity.idOf(RollupGranularity.MINUTE, bucketStart, category), update);
+    }
+
+    /**
+     * Activity of all bids.
+     */
+    public BidActivity getActivity() {
+        return summarize(bidRollupRepository.findAll());
+    }
+
+    /**
+     * Activity of the bids placed on items of a category.
+     */
+    public BidActivity getActivity(Category category) {
+        return summarize(bidRollupRepository.findByCategory(category));
+    }
+
+    /**
+     * Activity of the bids placed within a time window.
+     */
+    public BidActivity getActivity(TimeWindow window) {
+        return getActivity(null, window);
+    }
+
+    /**
+     * Activity of the bids placed within a time window on items of a category, or on any item if
+     * {@code category} is null.
+     */
+    public BidActivity getActivity(Category category, TimeWindow window) {
+        if (window.isUnbounded()) {
+            return category == null ? getActivity() : getActivity(category);
+        }
+
+        // The coarsest bucket is a day, so any bucket overlapping the window starts at most a day before it
+        LocalDateTime earliestStart = window.start().minusDays(1);
+        List<BidRollupEntity> rollups = category == null
+                ? bidRollupRepository.findByBucketStartInRange(earliestStart, window.end())
+                : bidRollupRepository.findByCategoryAndBucketStartInRange(category, earliestStart, window.end());
+
+        BidActivity activity = new BidActivity();
+        List<LocalDateTime[]> edges = addCoveredBuckets(rollups, window, rollup -> activity);
+
+        // Buckets cut by the window are recounted from their bids, found through the createdAt index
+        for (LocalDateTime[] range : edges) {
+            List<BidEntity> bids = bidRepository.findByCreatedAtInRange(range[0], range[1]);
+            if (category != null) {
+                Map<String, ItemEntity> items = itemsOf(bids);
+                bids = bids.stream()
+                        .filter(bid -> items.containsKey(bid.getItemId())
+                                && items.get(bid.getItemId()).getCategory() == category)
+                        .collect(Collectors.toList());
+            }
+            bids.forEach(bid -> activity.addBid(bid.getCreatedAt(), bid.getAmount()));
+        }
+        return activity;
+    }
+
+    /**
+     * Activity of the bids placed within a time window, for every category at once: the rollups are read
+     * with one query and grouped by category, rather than queried category by category.
+     */
+    public Map<Category, BidActivity> getActivityByCategory(TimeWindow window) {
+        Map<Category, BidActivity> activities = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            activities.put(category, new BidActivity());
+        }
+
+        if (window.isUnbounded()) {
+            for (BidRollupEntity rollup : bidRollupRepository.findAll()) {
+                if (rollup.getCategory() != null) {
+                    activities.get(rollup.getCategory()).add(rollup);
+                }
+            }
+            return activities;
+        }
+
+        List<BidRollupEntity> rollups = bidRollupRepository.findByBucketStartInRange(
+                window.start().minusDays(1), window.end());
+        List<LocalDateTime[]> edges = addCoveredBuckets(rollups, window,
+                rollup -> rollup.getCategory() == null ? null : activities.get(rollup.getCategory()));
+
+        for (LocalDateTime[] range : edges) {
+            List<BidEntity> bids = bidRepository.findByCreatedAtInRange(range[0], range[1]);
+            Map<String, ItemEntity> items = itemsOf(bids);
+            for (BidEntity bid : bids) {
+                ItemEntity item = items.get(bid.getItemId());
+                if (item != null && item.getCategory() != null) {
+                    activities.get(item.getCategory()).addBid(bid.getCreatedAt(), bid.getAmount());
+                }
+            }
+        }
+        return activities;
+    }
+
+    // Adds the buckets lying inside the window to their activity (skipped when there is none) and returns
+    // the merged ranges of the buckets the window only partly covers
+    private static List<LocalDateTime[]> addCoveredBuckets(List<BidRollupEntity> rollups, TimeWindow window,
+                                                           Function<BidRollupEntity, BidActivity> activityOf) {
+        List<LocalDateTime[]> edges = new ArrayList<>();
+        for (BidRollupEntity rollup : rollups) {
+            LocalDateTime bucketStart = rollup.getBucketStart();
+            LocalDateTime bucketEnd = rollup.getGranularity().bucketEnd(bucketStart);
+            if (!bucketStart.isBefore(window.start()) && !bucketEnd.isAfter(window.end())) {
+                BidActivity activity = activityOf.apply(rollup);
+                if (activity != null) {
+                    activity.add(rollup);
+                }
+            } else if (bucketEnd.isAfter(window.start()) && bucketStart.isBefore(window.end())) {
+                edges.add(new LocalDateTime[]{
+                        max(bucketStart, window.start()),
+                        bucketEnd.isBefore(window.end()) ? bucketEnd : window.end()});
+            }
+        }
+        return union(edges);
+    }
+
+    private Map<String, ItemEntity> itemsOf(List<BidEntity> bids) {
+        return itemLoader.getAll(bids.stream()
+                .map(BidEntity::getItemId)
+                .collect(Collectors.toSet()));
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    // Merges overlapping [from, to) ranges, so each bid is read once
+    private static List<LocalDateTime[]> union(List<LocalDateTime[]> ranges) {
+        ranges.sort(Comparator.comparing(range -> range[0]));
+        List<LocalDateTime[]> merged = new ArrayList<>();
+        for (LocalDateTime[] range : ranges) {
+            LocalDateTime[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !range[0].isAfter(last[1])) {
+                last[1] = max(last[1], range[1]);
+            } else {
+                merged.add(range.clone());
+            }
+        }
+        return merged;
+    }
+
+    private static BidActivity summarize(List<BidRollupEntity> rollups) {
+        BidActivity activity = new BidActivity();
+        rollups.forEach(activity::add);
+        return activity;
+    }
+
+    @Scheduled(fixedDelayString = "${rollups.compaction-interval:5m}")
+    public synchronized void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (bucketLock) {
+            compact(RollupGranularity.MINUTE, RollupGranularity.HOUR, RollupGranularity.HOUR.bucketStart(now.minus(minuteRetention)));
+            compact(RollupGranularity.HOUR, RollupGranularity.DAY, RollupGranularity.DAY.bucketStart(now.minus(hourRetention)));
+        }
+    }
+
+    private void compact(RollupGranularity from, RollupGranularity to, LocalDateTime before) {
+        // Buckets this old no longer receive bids, so they can be folded into coarser ones
+        List<BidRollupEntity> expired = bidRollupRepository.findByGranularityAndBucketStartBefore(from, before);
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        // Every target exists before anything is folded into it, so folding is a plain conditional update
+        Map<String, BidRollupEntity> targets = new LinkedHashMap<>();
+        for (BidRollupEntity rollup : expired) {
+            LocalDateTime bucketStart = to.bucketStart(rollup.getBucketStart());
+            targets.computeIfAbsent(BidRollupEntity.idOf(to, bucketStart, rollup.getCategory()),
+                    id -> new BidRollupEntity(to, bucketStart, rollup.getCategory()));
+        }
+        for (BidRollupEntity target : targets.values()) {
+            upsert(target.getId(), new Update()
+                    .setOnInsert("granularity", to)
+                    .setOnInsert("bucketStart", target.getBucketStart())
+                    .setOnInsert("category", target.getCategory()));
+        }
+
+        for (BidRollupEntity rollup : expired) {
+            String targetId = BidRollupEntity.idOf(to, to.bucketStart(rollup.getBucketStart()), rollup.getCategory());
+            Update update = new Update()
+                    .inc("bidCount", rollup.getBidCount())
+                    .inc("amountSum", rollup.getAmountSum())
+                    .addToSet("compactedFrom", rollup.getId());
+            if (rollup.getBidCount() > 0) {
+                update.min("firstBidAt", rollup.getFirstBidAt()).max("lastBidAt", rollup.getLastBidAt());
+            }
+            if (to == RollupGranularity.DAY) {
+                rollup.hourCounts().forEach((hour, count) -> update.inc("bidsByHour." + hour, count));
+            }
+            // Matches nothing if an earlier run folded this bucket in but did not get to delete it
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(targetId).and("compactedFrom").ne(rollup.getId())),
+                    update, BidRollupEntity.class);
+        }
+        bidRollupRepository.deleteAll(expired);
+    }
+
+    private void upsert(String id, Update update) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)), update, BidRollupEntity.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        // Bids placed before rollups existed are only counted once
+        if (bidRollupRepository.count() == 0 && bidRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes every rollup from the bids collection, each bid going straight to the bucket
+     * granularity its age calls for.
+     */
+    public synchronized void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            // Appended to by concurrent bid threads, which all hold the read lock
+            placedDuringRebuild = Collections.synchronizedList(new ArrayList<>());
+            deletedDuringRebuild = Collections.synchronizedList(new ArrayList<>());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        Set<String> recentlyStreamed = new HashSet<>();
+        try {
+            rebuildBuckets(recentlyStreamed);
+        } finally {
+            rebuildLock.writeLock().lock();
+            try {
+                for (BidPlacedEvent event : placedDuringRebuild) {
+                    if (!recentlyStreamed.contains(event.getBid().getId())) {
+                        upsertMinuteBucket(event);
+                    }
+                }
+                for (BidDeletedEvent event : deletedDuringRebuild) {
+                    recount(event);
+                }
+                placedDuringRebuild = null;
+                deletedDuringRebuild = null;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void rebuildBuckets(Set<String> recentlyStreamed) {
+        Map<String, ItemEntity> items = itemRepository.findAll().stream()
+                .collect(Collectors.toMap(ItemEntity::getId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime minuteCutoff = RollupGranularity.HOUR.bucketStart(now.minus(minuteRetention));
+        LocalDateTime hourCutoff = RollupGranularity.DAY.bucketStart(now.minus(hourRetention));
+        LocalDateTime recentFrom = now.minus(PUBLISH_MARGIN);
+
+        Map<String, BidRollupEntity> rollups = new LinkedHashMap<>();
+        try (Stream<BidEntity> bids = bidRepository.streamAllBy()) {
+            bids.forEach(bid -> {
+                ItemEntity item = items.get(bid.getItemId());
+                Category category = item == null ? null : item.getCategory();
+                RollupGranularity granularity = bid.getCreatedAt().isBefore(hourCutoff) ? RollupGranularity.DAY
+                        : bid.getCreatedAt().isBefore(minuteCutoff) ? RollupGranularity.HOUR
+                        : RollupGranularity.MINUTE;
+                LocalDateTime bucketStart = granularity.bucketStart(bid.getCreatedAt());
+                rollups.computeIfAbsent(BidRollupEntity.idOf(granularity, bucketStart, category),
+                                id -> new BidRollupEntity(granularity, bucketStart, category))
+                        .add(bid.getCreatedAt(), bid.getAmount());
+                if (!bid.getCreatedAt().isBefore(recentFrom)) {
+                    recentlyStreamed.add(bid.getId());
+                }
+            });
+        }
+
+        bidRollupRepository.replaceAll(rollups.values());
+    }
+
+    /**
+     * Rebuilds in the background, unless a rebuild is already waiting to start.
+     */
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                // Cleared before starting, so changes made during this rebuild queue another one
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @EventListener
+    public void onBidDeleted(BidDeletedEvent event) {
+        rebuildLock.readLock().lock();
+        try {
+            if (deletedDuringRebuild != null) {
+                // Whether the rebuild read the bid before it was deleted is unknown, so its bucket is recounted
+                deletedDuringRebuild.add(event);
+            } else {
+                decrement(event);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    // Takes the bid out of whichever bucket holds it now; firstBidAt and lastBidAt are left as they are, so
+    // they remain bounds of the bucket's bids rather than exact times
+    private void decrement(BidDeletedEvent event) {
+        BidEntity bid = event.getBid();
+        Category category = categoryOf(event.getItem());
+        synchronized (bucketLock) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                String id = BidRollupEntity.idOf(granularity, granularity.bucketStart(bid.getCreatedAt()), category);
+                Update update = new Update()
+                        .inc("bidCount", -1)
+                        .inc("amountSum", -bid.getAmount());
+                if (granularity == RollupGranularity.DAY) {
+                    update.inc("bidsByHour." + bid.getCreatedAt().getHour(), -1);
+                }
+                UpdateResult result = mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(id).and("bidCount").gt(0)), update, BidRollupEntity.class);
+                if (result.getMatchedCount() > 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Recounts the bucket holding a deleted bid from the bids still stored
+    private void recount(BidDeletedEvent event) {
+        BidEntity bid = event.getBid();
+        Category category = categoryOf(event.getItem());
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            LocalDateTime bucketStart = granularity.bucketStart(bid.getCreatedAt());
+            String id = BidRollupEntity.idOf(granularity, bucketStart, category);
+            if (!bidRollupRepository.existsById(id)) {
+                continue;
+            }
+            BidRollupEntity rollup = new BidRollupEntity(granularity, bucketStart, category);
+            List<BidEntity> bids = bidRepository.findByCreatedAtInRange(bucketStart, granularity.bucketEnd(bucketStart));
+            Map<String, ItemEntity> items = itemsOf(bids);
+            for (BidEntity stored : bids) {
+                if (categoryOf(items.get(stored.getItemId())) == category) {
+                    rollup.add(stored.getCreatedAt(), stored.getAmount());
+                }
+            }
+            bidRollupRepository.save(rollup);
+            return;
+        }
+    }
+
+    private static Category categoryOf(ItemEntity item) {
+        return item == null ? null : item.getCategory();
+    }
+
+    @EventListener
+    public void onBidsDeleted(AfterDeleteEvent<?> event) {
+        Object id = event.getType() == BidEntity.class ? event.getSource().get("_id") : null;
+        if (event.getType() == BidEntity.class && !(id instanceof ObjectId || id instanceof String)) {
+            // Deleted by a query rather than by id; single bids are taken out through BidDeletedEvent
+            requestRebuild();
+        }
+    }
+
+    @EventListener
+    public void onItemCategoryChanged(ItemCategoryChangedEvent event) {
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -1,17 +1,41 @@
 package ro.unibuc.hello.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.BidOrder;
 import ro.unibuc.hello.data.BidRepository;
 import ro.unibuc.hello.data.ItemEntity;
 import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.data.ReactiveBidRepository;
+import ro.unibuc.hello.data.ReactiveItemRepository;
 import ro.unibuc.hello.dto.Bid;
+import ro.unibuc.hello.dto.BidPage;
+import ro.unibuc.hello.event.BidDeletedEvent;
+import ro.unibuc.hello.event.BidPlacedEvent;
 import ro.unibuc.hello.exception.BidException;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.SparseFields;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -24,35 +48,134 @@ public class BidService {
     @Autowired
     private ItemRepository itemRepository;
 
+    // Item name lookups of concurrent requests are resolved together with one findAllById
+    @Autowired
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @Autowired
+    private ReactiveBidRepository reactiveBidRepository;
+
+    @Autowired
+    private ReactiveItemRepository reactiveItemRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ItemService itemService;
+
+    // How many item name lookups a stream keeps in flight at once
+    private static final int STREAM_CONCURRENCY = 16;
+
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
             "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$"
     );
 
+    // Fields a list can be narrowed to with fields=, and the bid document fields each is read from
+    private static final SparseFields<Bid> BID_FIELDS = new SparseFields<Bid>()
+            .field("id", Bid::getId, "id")
+            .field("itemId", Bid::getItemId, "itemId")
+            .field("bidderName", Bid::getBidderName, "bidderName")
+            .field("amount", Bid::getAmount, "amount")
+            .field("createdAt", Bid::getCreatedAt, "createdAt")
+            .field("itemName", Bid::getItemName, "itemId")
+            .field("email", Bid::getEmail, "email");
+
     public List<Bid> getAllBids() {
         List<BidEntity> bids = bidRepository.findAll();
-        return bids.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(bids);
     }
 
     public List<Bid> getBidsByItem(String itemId) {
         List<BidEntity> bids = bidRepository.findByItemId(itemId);
-        return bids.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(bids);
+    }
+
+    /**
+     * All bids of an item, with only the given fields read from Mongo and returned. Item names are only looked
+     * up when {@code itemName} is asked for.
+     *
+     * @throws IllegalArgumentException if no field, or an unknown one, is named
+     */
+    public List<Map<String, Object>> getBidsByItem(String itemId, List<String> fields) {
+        return findBids(Criteria.where("itemId").is(itemId), fields);
+    }
+
+    /**
+     * One page of an item's bids in the given order, continuing after {@code cursor} (the {@code nextCursor}
+     * of the previous page). Each page is one index range read, however many bids the item has.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another order
+     */
+    public BidPage getBidHistory(String itemId, BidOrder order, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        Pageable pageable = PageRequest.of(0, limit, order.getSort());
+        Slice<BidEntity> slice;
+        if (cursor == null) {
+            slice = bidRepository.findByItemId(itemId, pageable);
+        } else {
+            String[] position = decodeCursor(cursor, order);
+            ObjectId lastId = new ObjectId(position[1]);
+            try {
+                slice = order == BidOrder.AMOUNT_DESC
+                        ? bidRepository.findByItemIdAfterAmount(itemId, Double.parseDouble(position[0]), lastId, pageable)
+                        : bidRepository.findByItemIdAfterCreatedAt(itemId, LocalDateTime.parse(position[0]), lastId, pageable);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+
+        List<BidEntity> bids = slice.getContent();
+        String nextCursor = slice.hasNext() ? encodeCursor(order, bids.get(bids.size() - 1)) : null;
+        return new BidPage(convertToDtos(bids), nextCursor);
+    }
+
+    // The cursor names the order and the sort key and id of the last bid shown
+    private static String encodeCursor(BidOrder order, BidEntity last) {
+        String key = order == BidOrder.AMOUNT_DESC ? Double.toString(last.getAmount()) : last.getCreatedAt().toString();
+        String position = order + "|" + key + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, BidOrder order) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || !parts[0].equals(order.name()) || !ObjectId.isValid(parts[2])) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new String[]{parts[1], parts[2]};
+    }
+
+    /**
+     * Streams the bids of an item from the reactive driver, reading them as the client consumes them.
+     */
+    public Flux<Bid> streamBidsByItem(String itemId) {
+        return streamWithItemNames(reactiveBidRepository.findByItemId(itemId));
+    }
+
+    public Flux<Bid> streamBidsByEmail(String email) {
+        // Validate email format
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+
+        return streamWithItemNames(reactiveBidRepository.findByEmail(email));
     }
 
     public List<Bid> getBidsByBidder(String bidderName) {
         List<BidEntity> bids = bidRepository.findByBidderName(bidderName);
-        return bids.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(bids);
     }
 
     public Bid getBidById(String id) {
         BidEntity bid = bidRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(id));
-        return convertToDto(bid);
+        return convertToDto(bid, itemLoader.get(bid.getItemId()).orElse(null));
     }
 
     public Bid placeBid(Bid bidDto) {
@@ -76,11 +199,9 @@ public class BidService {
         }
 
         // Check if bid amount is valid
-        double minimumBid = item.getInitialPrice();
-        List<BidEntity> existingBids = bidRepository.findByItemIdOrderByAmountDesc(item.getId());
-        if (!existingBids.isEmpty()) {
-            minimumBid = existingBids.get(0).getAmount();
-        }
+        double minimumBid = bidRepository.findFirstByItemIdOrderByAmountDesc(item.getId())
+                .map(BidEntity::getAmount)
+                .orElse(item.getInitialPrice());
 
         if (bidDto.getAmount() <= minimumBid) {
             throw BidException.bidTooLow();
@@ -88,9 +209,9 @@ public class BidService {
 
         // Modified: Check if the bid is higher than the last one from the same user email
         // for the same auction (instead of using bidderName)
-        List<BidEntity> userBids = bidRepository.findByItemIdAndEmailOrderByAmountDesc(item.getId(), bidDto.getEmail());
-        if (!userBids.isEmpty()) {
-            double lastUserBidAmount = userBids.get(0).getAmount();
+        Optional<BidEntity> userBid = bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc(item.getId(), bidDto.getEmail());
+        if (userBid.isPresent()) {
+            double lastUserBidAmount = userBid.get().getAmount();
             if (bidDto.getAmount() <= lastUserBidAmount) {
                 throw new IllegalArgumentException("Bid amount must be higher than your last bid");
             }
@@ -105,17 +226,58 @@ public class BidService {
         );
 
         BidEntity savedBid = bidRepository.save(bid);
-        return convertToDto(savedBid);
+        eventPublisher.publishEvent(new BidPlacedEvent(savedBid, item));
+        return convertToDto(savedBid, item);
     }
 
     public void deleteBid(String id) {
         BidEntity bid = bidRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(id));
         bidRepository.delete(bid);
+        eventPublisher.publishEvent(new BidDeletedEvent(bid, itemRepository.findById(bid.getItemId()).orElse(null)));
+        itemService.refreshCurrentPrice(bid.getItemId());
+    }
+
+    private List<Bid> convertToDtos(List<BidEntity> bidEntities) {
+        // One lookup for the items of all the bids instead of one per bid
+        Map<String, ItemEntity> items = itemLoader.getAll(bidEntities.stream()
+                .map(BidEntity::getItemId)
+                .collect(Collectors.toSet()));
+
+        return bidEntities.stream()
+                .map(bidEntity -> convertToDto(bidEntity, items.get(bidEntity.getItemId())))
+                .collect(Collectors.toList());
     }
 
-    private Bid convertToDto(BidEntity bidEntity) {
-        Bid bidDto = new Bid(
+    private Bid convertToDto(BidEntity bidEntity, ItemEntity item) {
+        Bid bidDto = newDto(bidEntity);
+
+        // Add item name if available
+        if (item != null) {
+            bidDto.setItemName(item.getName());
+        }
+
+        return bidDto;
+    }
+
+    private Flux<Bid> streamWithItemNames(Flux<BidEntity> bids) {
+        // Each item name is looked up once per stream, however many of its bids are streamed
+        Map<String, Mono<String>> itemNames = new ConcurrentHashMap<>();
+
+        return bids.flatMapSequential(bidEntity -> {
+            Bid bidDto = newDto(bidEntity);
+            return itemNames.computeIfAbsent(bidEntity.getItemId(),
+                            itemId -> reactiveItemRepository.findById(itemId).map(ItemEntity::getName).cache())
+                    .map(itemName -> {
+                        bidDto.setItemName(itemName);
+                        return bidDto;
+                    })
+                    .defaultIfEmpty(bidDto);
+        }, STREAM_CONCURRENCY);
+    }
+
+    private Bid newDto(BidEntity bidEntity) {
+        return new Bid(
                 bidEntity.getId(),
                 bidEntity.getItemId(),
                 bidEntity.getBidderName(),
@@ -123,13 +285,6 @@ public class BidService {
                 bidEntity.getCreatedAt(),
                 bidEntity.getEmail()
         );
-
-        // Add item name if available
-        itemRepository.findById(bidEntity.getItemId()).ifPresent(item -> {
-            bidDto.setItemName(item.getName());
-        });
-
-        return bidDto;
     }
 
     public List<Bid> getBidsByEmail(String email) {
@@ -139,8 +294,27 @@ public class BidService {
         }
 
         List<BidEntity> bids = bidRepository.findByEmail(email);
-        return bids.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(bids);
+    }
+
+    /**
+     * Same as {@link #getBidsByItem(String, List)} for the bids placed from an email address.
+     */
+    public List<Map<String, Object>> getBidsByEmail(String email, List<String> fields) {
+        // Validate email format
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+
+        return findBids(Criteria.where("email").is(email), fields);
+    }
+
+    private List<Map<String, Object>> findBids(Criteria criteria, List<String> fields) {
+        SparseFields.Selection<Bid> selection = BID_FIELDS.select(fields);
+        List<BidEntity> bids = mongoTemplate.find(selection.project(Query.query(criteria)), BidEntity.class);
+        List<Bid> dtos = selection.includes("itemName")
+                ? convertToDtos(bids)
+                : bids.stream().map(this::newDto).collect(Collectors.toList());
+        return selection.apply(dtos);
     }
 }
\ No newline at end of file
@@ -1,17 +1,50 @@
 // ItemService.java
 package ro.unibuc.hello.service;
 
+import com.mongodb.client.result.UpdateResult;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import ro.unibuc.hello.analytics.EndingSoonIndex;
+import ro.unibuc.hello.analytics.ItemFacetFilter;
+import ro.unibuc.hello.analytics.ItemFacetIndex;
 import ro.unibuc.hello.data.BidEntity;
 import ro.unibuc.hello.data.BidRepository;
+import ro.unibuc.hello.data.Category;
 import ro.unibuc.hello.data.ItemEntity;
 import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.data.ItemSort;
+import ro.unibuc.hello.data.ReactiveItemRepository;
 import ro.unibuc.hello.dto.Item;
+import ro.unibuc.hello.dto.ItemBatch;
+import ro.unibuc.hello.dto.ItemFeed;
+import ro.unibuc.hello.dto.ItemPage;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.event.ItemCategoryChangedEvent;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.SparseFields;
+import ro.unibuc.hello.util.VersionCounters;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -24,10 +57,50 @@ public class ItemService {
     @Autowired
     private BidRepository bidRepository;
 
+    // Lookups by id of concurrent requests are resolved together with one findAllById
+    @Autowired
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @Autowired
+    private ReactiveItemRepository reactiveItemRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ItemFacetIndex itemFacetIndex;
+
+    @Autowired
+    private EndingSoonIndex endingSoonIndex;
+
+    // Bumped whenever an item or its price changes, for the ETags of conditional GETs
+    @Autowired
+    private VersionCounters versionCounters;
+
+    // Largest number of ids one multi-get may ask for
+    @Value("${items.batch.max-ids:500}")
+    private int maxBatchIds = 500;
+
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
             "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$"
     );
 
+    // Fields a list can be narrowed to with fields=, and the item document fields each is read from
+    private static final SparseFields<Item> ITEM_FIELDS = new SparseFields<Item>()
+            .field("id", Item::getId, "id")
+            .field("name", Item::getName, "name")
+            .field("description", Item::getDescription, "description")
+            .field("initialPrice", Item::getInitialPrice, "initialPrice")
+            .field("endTime", Item::getEndTime, "endTime")
+            .field("active", Item::isActive, "active")
+            .field("highestBid", Item::getHighestBid, "currentPrice")
+            .field("highestBidder", Item::getHighestBidder, "highestBidder")
+            .field("creator", Item::getCreator, "creator")
+            .field("category", Item::getCategory, "category");
+
     public List<Item> getAllItems() {
         List<ItemEntity> items = itemRepository.findAll();
         return items.stream()
@@ -42,12 +115,172 @@ public class ItemService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * All items (or only the active ones), with only the given fields read from Mongo and returned.
+     *
+     * @throws IllegalArgumentException if no field, or an unknown one, is named
+     */
+    public List<Map<String, Object>> getItems(boolean activeOnly, List<String> fields) {
+        SparseFields.Selection<Item> selection = ITEM_FIELDS.select(fields);
+        Query query = activeOnly ? Query.query(Criteria.where("active").is(true)) : new Query();
+        return findItems(selection.project(query), selection);
+    }
+
+    /**
+     * Streams items straight from the reactive driver. Documents are read as the client
+     * consumes them, so a slow client does not force the whole collection into memory.
+     */
+    public Flux<Item> streamItems(boolean activeOnly) {
+        Flux<ItemEntity> items = activeOnly
+                ? reactiveItemRepository.findByActive(true)
+                : reactiveItemRepository.findAll();
+        return items.map(this::convertToDto);
+    }
+
+    /**
+     * One page of the items matching a category (any if null), a [minPrice, maxPrice] range on the current
+     * price (unbounded where null) and optionally only active ones, in the given order. The filter, the order
+     * and the page are all resolved by Mongo on one of the item compound indexes.
+     */
+    public List<Item> searchItems(Category category, Double minPrice, Double maxPrice, boolean activeOnly,
+                                  ItemSort sort, int page, int size) {
+        Query query = searchQuery(category, minPrice, maxPrice, activeOnly, sort, page, size);
+        return mongoTemplate.find(query, ItemEntity.class).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link #searchItems(Category, Double, Double, boolean, ItemSort, int, int)}, with only the given
+     * fields read from Mongo and returned.
+     */
+    public List<Map<String, Object>> searchItems(Category category, Double minPrice, Double maxPrice,
+                                                 boolean activeOnly, ItemSort sort, int page, int size,
+                                                 List<String> fields) {
+        SparseFields.Selection<Item> selection = ITEM_FIELDS.select(fields);
+        Query query = searchQuery(category, minPrice, maxPrice, activeOnly, sort, page, size);
+        return findItems(selection.project(query), selection);
+    }
+
+    private Query searchQuery(Category category, Double minPrice, Double maxPrice, boolean activeOnly,
+                              ItemSort sort, int page, int size) {
+        if (page < 0 || size <= 0) {
+            throw new IllegalArgumentException("Page must not be negative and size must be positive");
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+
+        Criteria criteria = new Criteria();
+        if (category != null) {
+            criteria.and("category").is(category);
+        }
+        // Both values are listed when not filtering, so the sort can still merge the index's two active ranges
+        criteria.and("active").in(activeOnly ? List.of(true) : List.of(true, false));
+        if (minPrice != null || maxPrice != null) {
+            Criteria price = criteria.and("currentPrice");
+            if (minPrice != null) {
+                price.gte(minPrice);
+            }
+            if (maxPrice != null) {
+                price.lte(maxPrice);
+            }
+        }
+
+        return Query.query(criteria)
+                .with(sort.getSort())
+                .skip(Math.multiplyExact((long) page, size))
+                .limit(size);
+    }
+
+    private List<Map<String, Object>> findItems(Query query, SparseFields.Selection<Item> selection) {
+        return mongoTemplate.find(query, ItemEntity.class).stream()
+                .map(item -> selection.apply(convertToDto(item)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * One page of the items matching a facet filter, with the facet counts for refining it.
+     * Matching and counting run on the in-memory facet index; only the page's items are loaded.
+     */
+    public ItemPage browseItems(ItemFacetFilter filter, int page, int size) {
+        if (page < 0 || size <= 0) {
+            throw new IllegalArgumentException("Page must not be negative and size must be positive");
+        }
+
+        ItemFacetIndex.Result result = itemFacetIndex.query(filter, Math.multiplyExact(page, size), size);
+        Map<String, ItemEntity> items = itemLoader.getAll(result.getIds());
+        List<Item> dtos = result.getIds().stream()
+                .filter(items::containsKey)
+                .map(id -> convertToDto(items.get(id)))
+                .collect(Collectors.toList());
+        return new ItemPage(dtos, result.getTotal(), page, size, result.getFacets());
+    }
+
+    /**
+     * Active items of a category (any if null) by time left, soonest first, continuing after {@code cursor}.
+     */
+    public ItemFeed getEndingSoon(Category category, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+
+        EndingSoonIndex.Page page = endingSoonIndex.page(category, cursor, limit);
+        Map<String, ItemEntity> items = itemLoader.getAll(page.getItemIds());
+        List<Item> dtos = page.getItemIds().stream()
+                .filter(items::containsKey)
+                .map(id -> convertToDto(items.get(id)))
+                .collect(Collectors.toList());
+        return new ItemFeed(dtos, page.getNextCursor());
+    }
+
+    /**
+     * Weak ETag of an item's current state, read from memory. Read it before loading the item, so the tag
+     * never names a newer state than the one returned.
+     */
+    public String getItemETag(String id) {
+        return versionCounters.eTag(versionKey(id));
+    }
+
+    /**
+     * Version counter key of an item, bumped after every change to the item, its price or its bids.
+     */
+    public static String versionKey(String itemId) {
+        return "item:" + itemId;
+    }
+
     public Item getItemById(String id) {
-        ItemEntity item = itemRepository.findById(id)
+        ItemEntity item = itemLoader.get(id)
                 .orElseThrow(() -> new EntityNotFoundException(id));
         return convertToDto(item);
     }
 
+    /**
+     * The items with the given ids, loaded together with one findAllById per item-loader batch, in the
+     * order requested. Ids that match no item are reported rather than failing the whole request.
+     *
+     * @throws IllegalArgumentException if no ids, or more than {@code items.batch.max-ids}, are given
+     */
+    public ItemBatch getItemsByIds(List<String> ids) {
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.isEmpty() || distinctIds.size() > maxBatchIds) {
+            throw new IllegalArgumentException("Between 1 and " + maxBatchIds + " ids must be given");
+        }
+
+        Map<String, ItemEntity> items = itemLoader.getAll(distinctIds);
+        List<Item> found = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : distinctIds) {
+            ItemEntity item = items.get(id);
+            if (item == null) {
+                missing.add(id);
+            } else {
+                found.add(convertToDto(item));
+            }
+        }
+        return new ItemBatch(found, missing);
+    }
+
     public Item searchItemByName(String name) {
         List<ItemEntity> items = itemRepository.findByNameContainingIgnoreCase(name);
         if (items.isEmpty()) {
@@ -93,15 +326,31 @@ public class ItemService {
             throw new IllegalArgumentException("End time must be in the future for active items");
         }
 
-        existingItem.setName(itemDto.getName());
-        existingItem.setDescription(itemDto.getDescription());
-        existingItem.setInitialPrice(itemDto.getInitialPrice());
-        existingItem.setEndTime(itemDto.getEndTime());
-        existingItem.setActive(itemDto.isActive());
-        existingItem.setCreator(itemDto.getCreator());
-        existingItem.setCategory(itemDto.getCategory());
+        // Only the editable fields are written, so a bid raising the price meanwhile is not overwritten
+        Category previousCategory = existingItem.getCategory();
+        ItemEntity updatedItem = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)),
+                new Update()
+                        .set("name", itemDto.getName())
+                        .set("description", itemDto.getDescription())
+                        .set("initialPrice", itemDto.getInitialPrice())
+                        .set("endTime", itemDto.getEndTime())
+                        .set("active", itemDto.isActive())
+                        .set("creator", itemDto.getCreator())
+                        .set("category", itemDto.getCategory()),
+                FindAndModifyOptions.options().returnNew(true),
+                ItemEntity.class);
+        if (updatedItem == null) {
+            throw new EntityNotFoundException(id);
+        }
+        // The price falls back to the new initial price without bids; the refresh also bumps the ETag
+        updatedItem = refreshCurrentPrice(updatedItem);
+        // An update fires no save event, so the indexes are told directly
+        itemFacetIndex.index(updatedItem);
+        endingSoonIndex.index(updatedItem);
 
-        ItemEntity updatedItem = itemRepository.save(existingItem);
+        if (previousCategory != updatedItem.getCategory()) {
+            eventPublisher.publishEvent(new ItemCategoryChangedEvent(id, previousCategory, updatedItem.getCategory()));
+        }
         return convertToDto(updatedItem);
     }
 
@@ -123,8 +372,108 @@ public class ItemService {
         }
     }
 
+    @EventListener
+    public void onBidPlaced(BidPlacedEvent event) {
+        BidEntity bid = event.getBid();
+        // Only raises the price, so bids saved concurrently cannot overwrite a higher one
+        UpdateResult raised = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(bid.getItemId()).and("currentPrice").lt(bid.getAmount())),
+                new Update().set("currentPrice", bid.getAmount()).set("highestBidder", bid.getBidderName()),
+                ItemEntity.class);
+        if (raised.getModifiedCount() > 0) {
+            itemFacetIndex.raisePrice(bid.getItemId(), bid.getAmount());
+        }
+        versionCounters.bump(versionKey(bid.getItemId()));
+    }
+
+    /**
+     * Recomputes an item's current price from its bids, e.g. after one of them was deleted.
+     */
+    public void refreshCurrentPrice(String itemId) {
+        // The price may have gone down, which raisePrice does not cover, so the item is re-indexed as written
+        itemRepository.findById(itemId).map(this::refreshCurrentPrice).ifPresent(itemFacetIndex::index);
+    }
+
+    /**
+     * Writes the price of {@code item} from its top bid, unless a bid changed the price since the item was read,
+     * then reads the top bid again: a bid below the price being replaced does not raise it in onBidPlaced, so
+     * it has to be picked up here. Starts over from a fresh read until both checks pass. Returns the item as
+     * written.
+     */
+    private ItemEntity refreshCurrentPrice(ItemEntity item) {
+        while (true) {
+            double readPrice = item.getCurrentPrice();
+            Optional<BidEntity> highestBid = setCurrentPrice(item);
+            // Items stored before the current price was denormalized have none to compare against
+            Criteria unchanged = new Criteria().orOperator(
+                    Criteria.where("currentPrice").is(readPrice),
+                    Criteria.where("currentPrice").exists(false));
+            UpdateResult written = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(item.getId()).andOperator(unchanged)),
+                    new Update().set("currentPrice", item.getCurrentPrice()).set("highestBidder", item.getHighestBidder()),
+                    ItemEntity.class);
+            if (written.getMatchedCount() > 0 && sameBid(highestBid,
+                    bidRepository.findFirstByItemIdOrderByAmountDesc(item.getId()))) {
+                versionCounters.bump(versionKey(item.getId()));
+                return item;
+            }
+
+            Optional<ItemEntity> reread = itemRepository.findById(item.getId());
+            if (reread.isEmpty()) {
+                return item;
+            }
+            item = reread.get();
+        }
+    }
+
+    private static boolean sameBid(Optional<BidEntity> bid, Optional<BidEntity> other) {
+        return bid.map(BidEntity::getId).equals(other.map(BidEntity::getId));
+    }
+
+    @EventListener
+    public void onItemSaved(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof ItemEntity item) {
+            versionCounters.bump(versionKey(item.getId()));
+        }
+    }
+
+    @EventListener
+    public void onItemsDeleted(AfterDeleteEvent<?> event) {
+        if (event.getType() != ItemEntity.class) {
+            return;
+        }
+        Object id = event.getSource().get("_id");
+        if (id instanceof ObjectId || id instanceof String) {
+            versionCounters.bump(versionKey(id.toString()));
+        } else {
+            // Deleted by a query rather than by id
+            versionCounters.bumpAll();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCurrentPrices() {
+        // Items stored before the current price was denormalized
+        mongoTemplate.find(Query.query(Criteria.where("currentPrice").exists(false)), ItemEntity.class)
+                .forEach(item -> refreshCurrentPrice(item.getId()));
+    }
+
+    private Optional<BidEntity> setCurrentPrice(ItemEntity item) {
+        Optional<BidEntity> highestBid = bidRepository.findFirstByItemIdOrderByAmountDesc(item.getId());
+        item.setCurrentPrice(highestBid.map(BidEntity::getAmount).orElse(item.getInitialPrice()));
+        item.setHighestBidder(highestBid.map(BidEntity::getBidderName).orElse(null));
+        return highestBid;
+    }
+
     private Item convertToDto(ItemEntity itemEntity) {
-        Item itemDto = new Item(
+        Item itemDto = newDto(itemEntity);
+        itemDto.setHighestBid(itemEntity.getCurrentPrice());
+        itemDto.setHighestBidder(itemEntity.getHighestBidder());
+        return itemDto;
+    }
+
+    private Item newDto(ItemEntity itemEntity) {
+        return new Item(
                 itemEntity.getId(),
                 itemEntity.getName(),
                 itemEntity.getDescription(),
@@ -134,17 +483,5 @@ public class ItemService {
                 itemEntity.getCreator(),
                 itemEntity.getCategory()
         );
-
-        // Add the highest bid information if available
-        List<BidEntity> bids = bidRepository.findByItemIdOrderByAmountDesc(itemEntity.getId());
-        if (!bids.isEmpty()) {
-            BidEntity highestBid = bids.get(0);
-            itemDto.setHighestBid(highestBid.getAmount());
-            itemDto.setHighestBidder(highestBid.getBidderName());
-        } else {
-            itemDto.setHighestBid(itemEntity.getInitialPrice());
-        }
-
-        return itemDto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package ro.unibuc.hello.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ro.unibuc.hello.analytics.ItemBidSummary;
+import ro.unibuc.hello.analytics.ItemPopularityAccumulator;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.dto.PriceUpdate;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes the price and bid count of items to live subscribers as bids are accepted.
+ * <p>
+ * Every item with at least one subscriber has a channel fed by {@link BidPlacedEvent}s, so a bid on an item
+ * nobody watches costs one map lookup and a watched item is never polled. A new subscriber gets the item's
+ * current state straight away and then every change. A subscriber that reads slower than bids arrive skips
+ * the updates superseded meanwhile: besides the one already handed on, only the latest update of each item
+ * is kept, so it catches up to the current price without holding up the bid or the other subscribers.
+ * A channel is dropped with its last subscriber.
+ */
+@Service
+public class PriceStreamService {
+
+    @Autowired
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    // Bid counts are read from the per-item summaries, which record a placed bid before other listeners run
+    @Autowired
+    private ItemPopularityAccumulator itemPopularityAccumulator;
+
+    // Largest number of items one subscription may watch
+    @Value("${items.batch.max-ids:500}")
+    private int maxWatchedItems = 500;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onBidPlaced(BidPlacedEvent event) {
+        BidEntity bid = event.getBid();
+        Channel channel = channels.get(bid.getItemId());
+        if (channel != null) {
+            channel.publish(bid, itemPopularityAccumulator.summaryOf(bid.getItemId()).getTotalBids());
+        }
+    }
+
+    /**
+     * Updates of the items with the given ids, each starting with its current state. Ids that match no item
+     * are left out.
+     *
+     * @throws EntityNotFoundException if none of the ids match an item
+     * @throws IllegalArgumentException if no ids, or more than {@code items.batch.max-ids}, are given
+     */
+    public Flux<PriceUpdate> watch(Collection<String> itemIds) {
+        Set<String> distinctIds = new LinkedHashSet<>(itemIds);
+        if (distinctIds.isEmpty() || distinctIds.size() > maxWatchedItems) {
+            throw new IllegalArgumentException("Between 1 and " + maxWatchedItems + " ids must be given");
+        }
+
+        Map<String, ItemEntity> items = itemLoader.getAll(distinctIds);
+        if (items.isEmpty()) {
+            throw new EntityNotFoundException(String.join(",", distinctIds));
+        }
+        List<Flux<PriceUpdate>> updates = items.values().stream()
+                .map(this::watch)
+                .collect(Collectors.toList());
+        // A prefetch of one keeps the merge from queueing updates the per-item streams would have coalesced
+        return Flux.merge(Flux.fromIterable(updates), updates.size(), 1);
+    }
+
+    int channelCount() {
+        return channels.size();
+    }
+
+    private Flux<PriceUpdate> watch(ItemEntity item) {
+        return Flux.defer(() -> {
+            Channel channel = channels.compute(item.getId(), (id, existing) -> {
+                Channel joined = existing == null ? new Channel(initialState(item)) : existing;
+                joined.subscribers++;
+                return joined;
+            });
+            return channel.sink.asFlux()
+                    .onBackpressureLatest()
+                    .doFinally(signal -> leave(item.getId(), channel));
+        });
+    }
+
+    private void leave(String itemId, Channel channel) {
+        channels.computeIfPresent(itemId, (id, current) ->
+                current == channel && --current.subscribers == 0 ? null : current);
+    }
+
+    private PriceUpdate initialState(ItemEntity item) {
+        ItemBidSummary summary = itemPopularityAccumulator.summaryOf(item.getId());
+        return new PriceUpdate(item.getId(), item.getCurrentPrice(), item.getHighestBidder(),
+                summary.getTotalBids(), summary.getLastBidAt());
+    }
+
+    private static final class Channel {
+        // Replays the latest update to each new subscriber, so it starts from the current state
+        private final Sinks.Many<PriceUpdate> sink = Sinks.many().replay().latest();
+        private PriceUpdate latest;
+        // Guarded by the channels map
+        private int subscribers;
+
+        private Channel(PriceUpdate initial) {
+            latest = initial;
+            sink.tryEmitNext(initial);
+        }
+
+        // Synchronized, since a sink must not be emitted to from several threads at once
+        private synchronized void publish(BidEntity bid, long bidCount) {
+            boolean raised = bid.getAmount() > latest.getCurrentPrice();
+            latest = new PriceUpdate(latest.getItemId(),
+                    raised ? bid.getAmount() : latest.getCurrentPrice(),
+                    raised ? bid.getBidderName() : latest.getHighestBidder(),
+                    bidCount,
+                    bid.getCreatedAt());
+            sink.tryEmitNext(latest);
+        }
+    }
+}
@@ -1,22 +1,46 @@
 package ro.unibuc.hello.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ro.unibuc.hello.analytics.BidActivity;
+import ro.unibuc.hello.analytics.BidAggregate;
+import ro.unibuc.hello.analytics.BidAmountQuantiles;
+import ro.unibuc.hello.analytics.BidColumnStore;
+import ro.unibuc.hello.analytics.BidRateTracker;
+import ro.unibuc.hello.analytics.DecayedPopularityIndex;
+import ro.unibuc.hello.analytics.ItemBidSummary;
+import ro.unibuc.hello.analytics.ItemPopularityAccumulator;
+import ro.unibuc.hello.analytics.UniqueBidderCounter;
 import ro.unibuc.hello.data.BidEntity;
 import ro.unibuc.hello.data.BidRepository;
 import ro.unibuc.hello.data.Category;
 import ro.unibuc.hello.data.ItemEntity;
 import ro.unibuc.hello.data.ItemRepository;
 import ro.unibuc.hello.dto.AuctionStats;
+import ro.unibuc.hello.dto.BidAmountDistribution;
 import ro.unibuc.hello.dto.ItemPopularity;
+import ro.unibuc.hello.dto.StatsChanges;
 import ro.unibuc.hello.dto.UserStats;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.ChangeTracker;
+import ro.unibuc.hello.util.QueryScope;
+import ro.unibuc.hello.util.SingleFlightCache;
+import ro.unibuc.hello.util.TimeWindow;
+import ro.unibuc.hello.util.VersionCounters;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -32,12 +56,77 @@ public class StatsService {
     @Autowired
     private ItemService itemService;
 
+    // Item lookups by id are resolved in batches with one findAllById
+    @Autowired
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    // Bid totals are scanned from a columnar copy of the bids instead of loaded as entities
+    @Autowired
+    private BidColumnStore bidColumnStore;
+
+    // Distinct bidder counts are read from sketches maintained as bids are placed
+    @Autowired
+    private UniqueBidderCounter uniqueBidderCounter;
+
+    // Bid amount quantiles are read from sketches maintained as bids are placed
+    @Autowired
+    private BidAmountQuantiles bidAmountQuantiles;
+
+    // Per-item bid totals are read from running summaries maintained as bids are placed
+    @Autowired
+    private ItemPopularityAccumulator itemPopularityAccumulator;
+
+    // Items ranked by time-decayed bid activity, kept sorted as bids are placed
+    @Autowired
+    private DecayedPopularityIndex decayedPopularityIndex;
+
+    // Current bid rates per item are read from sliding-window counters maintained as bids are placed
+    @Autowired
+    private BidRateTracker bidRateTracker;
+
+    // Bumped whenever an item or its bids change, for the ETags of conditional GETs
+    @Autowired
+    private VersionCounters versionCounters;
+
+    // Time distributions are summed from pre-aggregated rollups instead of every bid's createdAt
+    @Autowired
+    private BidRollupService bidRollupService;
+
+    // Concurrent identical stats requests share one computation; results are served stale while refreshing
+    @Autowired
+    private SingleFlightCache<String, AuctionStats> auctionStatsCache;
+
+    // Turns an overview into the field map the change tracker compares
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Removed map entries remembered for deltas, e.g. bidders who dropped out of the top bidders
+    private static final int OVERVIEW_MAX_TOMBSTONES = 1000;
+
+    // Overviews as they are recomputed, versioned field by field for /stats/overview/changes
+    private final ChangeTracker overviewChanges = new ChangeTracker(OVERVIEW_MAX_TOMBSTONES);
+
+    private static final String OVERVIEW_CACHE_KEY = "overview";
+    private static final String CATEGORY_CACHE_KEY_PREFIX = "category:";
+
+    // Independent queries of one stats request run concurrently, each on its own virtual thread
+    private final ExecutorService statsExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Deadline shared by all the queries of one stats request
+    @Value("${stats.query.timeout:10s}")
+    private Duration queryTimeout = Duration.ofSeconds(10);
+
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
             "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$"
     );
 
-    // Threshold for "hot" items (bids per day)
-    private static final double HOT_ITEM_THRESHOLD = 5.0;
+    // Threshold for "hot" items (bids in the last hour)
+    @Value("${stats.hot-items.min-bids-per-hour:5}")
+    private long hotItemMinBidsPerHour = 5;
+
+    // Largest number of ids one multi-item popularity request may ask for
+    @Value("${items.batch.max-ids:500}")
+    private int maxBatchIds = 500;
 
     // Weight factors for popularity score
     private static final double WEIGHT_TOTAL_BIDS = 0.3;
@@ -50,35 +139,72 @@ public class StatsService {
      * Get overall platform statistics
      */
     public AuctionStats getOverallStats() {
+        return getOverallStats(TimeWindow.ALL);
+    }
+
+    /**
+     * Get overall platform statistics, with bid figures limited to the bids placed within a time window.
+     * Windowed results are not cached, since every window would be a new cache entry.
+     */
+    public AuctionStats getOverallStats(TimeWindow window) {
+        if (window.isUnbounded()) {
+            return auctionStatsCache.get(OVERVIEW_CACHE_KEY, () -> versioned(computeOverallStats(window)));
+        }
+        return computeOverallStats(window);
+    }
+
+    /**
+     * The fields and map entries of the overview that changed since the overview with version {@code since}.
+     * Dashboards polling with the version of their last response only receive what changed meanwhile.
+     */
+    public StatsChanges getOverallStatsChanges(long since) {
+        // Records a newer overview first if the cached one is outdated
+        getOverallStats();
+        ChangeTracker.Delta delta = overviewChanges.changesSince(since);
+        return new StatsChanges(delta.getVersion(), delta.isFull(), delta.getChanged(), delta.getRemoved());
+    }
+
+    private AuctionStats versioned(AuctionStats stats) {
+        Map<String, Object> document = objectMapper.convertValue(stats, new TypeReference<Map<String, Object>>() {});
+        // Set on every computation, so not a change in itself
+        document.remove("generatedAt");
+        document.remove("version");
+        stats.setVersion(overviewChanges.record(document));
+        return stats;
+    }
+
+    private AuctionStats computeOverallStats(TimeWindow window) {
+        try (QueryScope scope = new QueryScope(statsExecutor, queryTimeout)) {
+            return getOverallStats(scope, window);
+        }
+    }
+
+    private AuctionStats getOverallStats(QueryScope scope, TimeWindow window) {
         AuctionStats stats = new AuctionStats();
 
-        // Get all items and bids
-        List<ItemEntity> allItems = itemRepository.findAll();
-        List<BidEntity> allBids = bidRepository.findAll();
+        // Get all items; bid totals come from one scan of the bid columns, filtered to the window
+        Future<List<ItemEntity>> allItemsTask = scope.fork(itemRepository::findAll);
+        Future<BidAggregate> bidsTask = scope.fork(() -> bidColumnStore.aggregate(window, null));
+        Future<BidActivity> activityTask = scope.fork(() -> bidRollupService.getActivity(window));
+        List<ItemEntity> allItems = scope.get(allItemsTask);
+        BidAggregate bids = scope.get(bidsTask);
 
         // Calculate basic stats
         stats.setTotalItems(allItems.size());
         stats.setActiveItems((int) allItems.stream().filter(ItemEntity::isActive).count());
         stats.setCompletedAuctions((int) allItems.stream().filter(item -> !item.isActive()).count());
-        stats.setTotalBids(allBids.size());
+        stats.setTotalBids((int) bids.getCount());
 
         // Calculate average bids per item
-        stats.setAverageBids(allItems.isEmpty() ? 0 : (double) allBids.size() / allItems.size());
+        stats.setAverageBids(allItems.isEmpty() ? 0 : (double) bids.getCount() / allItems.size());
         stats.setBidsPerItem(stats.getAverageBids());
 
-        // Find highest bid amount
-        double highestBid = allBids.stream()
-                .mapToDouble(BidEntity::getAmount)
-                .max()
-                .orElse(0.0);
-        stats.setHighestBidAmount(highestBid);
-
-        // Calculate average bid amount
-        double avgBidAmount = allBids.stream()
-                .mapToDouble(BidEntity::getAmount)
-                .average()
-                .orElse(0.0);
-        stats.setAverageBidAmount(avgBidAmount);
+        // Find highest and average bid amount
+        stats.setHighestBidAmount(bids.getMaxAmount());
+        stats.setAverageBidAmount(bids.getAverageAmount());
+        setBidAmountQuantiles(stats, window.isUnbounded()
+                ? bidAmountQuantiles.overall()
+                : bids.getAmountDistribution());
 
         // Count items by category
         Map<String, Integer> itemsByCategory = new HashMap<>();
@@ -91,50 +217,21 @@ public class StatsService {
         stats.setItemsByCategory(itemsByCategory);
 
         // Calculate unique bidders
-        Set<String> uniqueBidderEmails = allBids.stream()
-                .map(BidEntity::getEmail)
-                .collect(Collectors.toSet());
-        stats.setUniqueBidders(uniqueBidderEmails.size());
-
-        // Calculate bids per day
-        if (!allBids.isEmpty()) {
-            // Get earliest and latest bid dates
-            LocalDateTime earliestBid = allBids.stream()
-                    .map(BidEntity::getCreatedAt)
-                    .min(LocalDateTime::compareTo)
-                    .orElse(LocalDateTime.now());
-
-            LocalDateTime latestBid = allBids.stream()
-                    .map(BidEntity::getCreatedAt)
-                    .max(LocalDateTime::compareTo)
-                    .orElse(LocalDateTime.now());
+        stats.setUniqueBidders((int) (window.isUnbounded()
+                ? uniqueBidderCounter.countAll()
+                : bids.getDistinctBidders()));
 
-            // Calculate days between first and last bid
-            long daysBetween = Duration.between(earliestBid, latestBid).toDays() + 1; // add 1 to include the first day
-            stats.setBidsPerDay(daysBetween > 0 ? (double) allBids.size() / daysBetween : allBids.size());
-        } else {
-            stats.setBidsPerDay(0);
-        }
-
-        // Calculate bids by day of week
-        Map<String, Integer> bidsByDay = new HashMap<>();
-        for (BidEntity bid : allBids) {
-            String dayOfWeek = bid.getCreatedAt().getDayOfWeek().toString();
-            bidsByDay.put(dayOfWeek, bidsByDay.getOrDefault(dayOfWeek, 0) + 1);
-        }
-        stats.setBidsByDay(bidsByDay);
+        // Calculate bids per day and by day of week
+        BidActivity activity = scope.get(activityTask);
+        stats.setBidsPerDay(activity.getBidsPerDay());
+        stats.setBidsByDay(activity.getBidsByDayOfWeek());
 
         // Calculate category popularity (bids per item)
         Map<String, Double> categoryPopularity = new HashMap<>();
         for (Category category : Category.values()) {
             int categoryItems = itemsByCategory.getOrDefault(category.name(), 0);
             if (categoryItems > 0) {
-                int categoryBids = 0;
-                for (ItemEntity item : allItems) {
-                    if (item.getCategory() == category) {
-                        categoryBids += bidRepository.findByItemId(item.getId()).size();
-                    }
-                }
+                long categoryBids = bids.getBidsInCategory(category);
                 double popularityRatio = (double) categoryBids / categoryItems;
                 categoryPopularity.put(category.name(), popularityRatio);
             } else {
@@ -143,31 +240,11 @@ public class StatsService {
         }
         stats.setCategoryPopularity(categoryPopularity);
 
-        // Calculate top bidders
-        Map<String, Integer> bidderCounts = new HashMap<>();
-        for (BidEntity bid : allBids) {
-            bidderCounts.put(bid.getEmail(), bidderCounts.getOrDefault(bid.getEmail(), 0) + 1);
-        }
-
-        // Sort and limit to top 5 bidders
-        Map<String, Integer> topBidders = bidderCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(5)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
-        stats.setTopBidders(topBidders);
+        // Calculate top 5 bidders
+        stats.setTopBidders(bids.getTopBidders(5));
 
         // Calculate most active hours
-        Map<String, Integer> hourDistribution = new HashMap<>();
-        for (BidEntity bid : allBids) {
-            String hour = String.valueOf(bid.getCreatedAt().getHour());
-            hourDistribution.put(hour, hourDistribution.getOrDefault(hour, 0) + 1);
-        }
-        stats.setMostActiveTimes(hourDistribution);
+        stats.setMostActiveTimes(activity.getActiveHours());
 
         // Calculate overall popularity score (normalized scale of 0-100)
         // Based on unique bidders, bids per item, and bid frequency
@@ -181,6 +258,11 @@ public class StatsService {
         return stats;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        statsExecutor.close();
+    }
+
     /**
      * Get user-specific statistics
      */
@@ -190,15 +272,28 @@ public class StatsService {
             throw new IllegalArgumentException("Invalid email format");
         }
 
+        try (QueryScope scope = new QueryScope(statsExecutor, queryTimeout)) {
+            return getUserStats(scope, email);
+        }
+    }
+
+    private UserStats getUserStats(QueryScope scope, String email) {
         UserStats stats = new UserStats();
         stats.setEmail(email);
 
-        // Get user's items and bids
-        List<ItemEntity> userItems = itemRepository.findAll().stream()
+        // Start every independent query up front; dependent ones wait on their inputs inside the scope
+        Future<List<ItemEntity>> allItemsTask = scope.fork(itemRepository::findAll);
+        Future<List<BidEntity>> userBidsTask = scope.fork(() -> bidRepository.findByEmail(email));
+        Future<List<ItemEntity>> userItemsTask = scope.fork(() -> scope.get(allItemsTask).stream()
                 .filter(item -> item.getCreator().equals(email))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        Future<Winnings> winningsTask = scope.fork(() -> findWinnings(scope.get(allItemsTask), email));
+        Future<Double> earningsTask = scope.fork(() -> sumWinningBids(scope.get(userItemsTask)));
+        Future<Map<String, Integer>> bidsByCategoryTask = scope.fork(() -> countBidsByCategory(scope.get(userBidsTask)));
 
-        List<BidEntity> userBids = bidRepository.findByEmail(email);
+        // Get user's items and bids
+        List<ItemEntity> userItems = scope.get(userItemsTask);
+        List<BidEntity> userBids = scope.get(userBidsTask);
 
         // Calculate user's item stats
         stats.setTotalItemsListed(userItems.size());
@@ -216,36 +311,13 @@ public class StatsService {
         stats.setBidsMadeLastWeek(recentBids);
 
         // Count bids won (highest bid on completed auctions)
-        int bidsWon = 0;
-        double totalSpent = 0.0;
-
-        List<ItemEntity> allItems = itemRepository.findAll();
-        for (ItemEntity item : allItems) {
-            if (!item.isActive()) {
-                List<BidEntity> itemBids = bidRepository.findByItemIdOrderByAmountDesc(item.getId());
-                if (!itemBids.isEmpty()) {
-                    BidEntity highestBid = itemBids.get(0);
-                    if (highestBid.getEmail().equals(email)) {
-                        bidsWon++;
-                        totalSpent += highestBid.getAmount();
-                    }
-                }
-            }
-        }
+        Winnings winnings = scope.get(winningsTask);
+        int bidsWon = winnings.count;
         stats.setBidsWon(bidsWon);
-        stats.setTotalSpent(totalSpent);
+        stats.setTotalSpent(winnings.total);
 
         // Calculate user's earnings (sum of highest bids on user's completed auctions)
-        double totalEarned = 0.0;
-        for (ItemEntity item : userItems) {
-            if (!item.isActive()) {
-                List<BidEntity> itemBids = bidRepository.findByItemIdOrderByAmountDesc(item.getId());
-                if (!itemBids.isEmpty()) {
-                    totalEarned += itemBids.get(0).getAmount();
-                }
-            }
-        }
-        stats.setTotalEarned(totalEarned);
+        stats.setTotalEarned(scope.get(earningsTask));
 
         // Calculate user's bidding frequency (bids per day)
         if (!userBids.isEmpty()) {
@@ -279,19 +351,7 @@ public class StatsService {
         stats.setAverageBidAmount(avgBidAmount);
 
         // Calculate bids by category
-        Map<String, Integer> bidsByCategory = new HashMap<>();
-        for (Category category : Category.values()) {
-            bidsByCategory.put(category.name(), 0);
-        }
-
-        for (BidEntity bid : userBids) {
-            Optional<ItemEntity> itemOpt = itemRepository.findById(bid.getItemId());
-            if (itemOpt.isPresent()) {
-                String categoryName = itemOpt.get().getCategory().name();
-                bidsByCategory.put(categoryName, bidsByCategory.getOrDefault(categoryName, 0) + 1);
-            }
-        }
-        stats.setBidsByCategory(bidsByCategory);
+        stats.setBidsByCategory(scope.get(bidsByCategoryTask));
 
         // Calculate bidding time distribution
         Map<String, Integer> hourDistribution = new HashMap<>();
@@ -346,78 +406,125 @@ public class StatsService {
         return stats;
     }
 
+    /**
+     * Highest bids placed by the user on completed auctions
+     */
+    private Winnings findWinnings(List<ItemEntity> allItems, String email) {
+        Winnings winnings = new Winnings();
+        for (ItemEntity item : allItems) {
+            if (!item.isActive()) {
+                bidRepository.findFirstByItemIdOrderByAmountDesc(item.getId())
+                        .filter(highestBid -> highestBid.getEmail().equals(email))
+                        .ifPresent(highestBid -> {
+                            winnings.count++;
+                            winnings.total += highestBid.getAmount();
+                        });
+            }
+        }
+        return winnings;
+    }
+
+    private double sumWinningBids(List<ItemEntity> items) {
+        double total = 0.0;
+        for (ItemEntity item : items) {
+            if (!item.isActive()) {
+                total += bidRepository.findFirstByItemIdOrderByAmountDesc(item.getId())
+                        .map(BidEntity::getAmount)
+                        .orElse(0.0);
+            }
+        }
+        return total;
+    }
+
+    private Map<String, Integer> countBidsByCategory(List<BidEntity> bids) {
+        Map<String, Integer> bidsByCategory = new HashMap<>();
+        for (Category category : Category.values()) {
+            bidsByCategory.put(category.name(), 0);
+        }
+
+        Map<String, ItemEntity> items = itemLoader.getAll(bids.stream()
+                .map(BidEntity::getItemId)
+                .collect(Collectors.toSet()));
+
+        for (BidEntity bid : bids) {
+            ItemEntity item = items.get(bid.getItemId());
+            if (item != null) {
+                String categoryName = item.getCategory().name();
+                bidsByCategory.put(categoryName, bidsByCategory.getOrDefault(categoryName, 0) + 1);
+            }
+        }
+        return bidsByCategory;
+    }
+
+    private static class Winnings {
+        private int count;
+        private double total;
+    }
+
+    /**
+     * Weak ETag of an item's popularity, read from memory. It changes with the item and its bids, and every
+     * 10 seconds as the bid-rate windows slide (the time-decayed score drifts by well under 0.1% meanwhile).
+     */
+    public String getItemPopularityETag(String itemId) {
+        return versionCounters.eTag(ItemService.versionKey(itemId), bidRateTracker.currentSlot());
+    }
+
     /**
      * Get item popularity statistics
      */
     public ItemPopularity getItemPopularity(String itemId) {
         // Check if item exists
-        ItemEntity item = itemRepository.findById(itemId)
+        ItemEntity item = itemLoader.get(itemId)
                 .orElseThrow(() -> new EntityNotFoundException(itemId));
+        return popularityOf(item);
+    }
 
-        List<BidEntity> itemBids = bidRepository.findByItemId(itemId);
-        Collections.sort(itemBids, Comparator.comparing(BidEntity::getCreatedAt));
+    /**
+     * Popularity of several items, in the order requested; ids of items that do not exist are left out.
+     * The items are loaded with one query and everything else comes from the in-memory bid summaries.
+     *
+     * @throws IllegalArgumentException if no ids, or more than {@code items.batch.max-ids}, are given
+     */
+    public List<ItemPopularity> getItemPopularity(Collection<String> itemIds) {
+        Set<String> distinctIds = new LinkedHashSet<>(itemIds);
+        if (distinctIds.isEmpty() || distinctIds.size() > maxBatchIds) {
+            throw new IllegalArgumentException("Between 1 and " + maxBatchIds + " ids must be given");
+        }
+
+        Map<String, ItemEntity> items = itemLoader.getAll(distinctIds);
+        return items.values().stream()
+                .map(this::popularityOf)
+                .collect(Collectors.toList());
+    }
+
+    private ItemPopularity popularityOf(ItemEntity item) {
+        String itemId = item.getId();
+        ItemBidSummary summary = itemPopularityAccumulator.summaryOf(itemId);
 
         ItemPopularity popularity = new ItemPopularity();
         popularity.setItemId(itemId);
         popularity.setItemName(item.getName());
-        popularity.setTotalBids(itemBids.size());
+        popularity.setTotalBids((int) summary.getTotalBids());
 
         // Count unique bidders
-        Set<String> uniqueBidders = itemBids.stream()
-                .map(BidEntity::getEmail)
-                .collect(Collectors.toSet());
-        popularity.setUniqueBidders(uniqueBidders.size());
+        popularity.setUniqueBidders((int) uniqueBidderCounter.countForItem(itemId));
 
-        // Calculate bid frequency (bids per day)
-        if (!itemBids.isEmpty()) {
-            LocalDateTime firstBid = itemBids.get(0).getCreatedAt();
-            LocalDateTime lastBid = itemBids.get(itemBids.size() - 1).getCreatedAt();
-            popularity.setLastBidTime(lastBid);
-
-            long daysBetween = Duration.between(firstBid, lastBid).toDays() + 1;
-            double bidFrequency = daysBetween > 0 ? (double) itemBids.size() / daysBetween : itemBids.size();
-            popularity.setBidFrequency(bidFrequency);
-
-            // Mark as "hot" if bid frequency exceeds threshold
-            popularity.setHot(bidFrequency >= HOT_ITEM_THRESHOLD);
-
-            // Calculate bid increase rate
-            if (itemBids.size() >= 2) {
-                double totalIncreasePercent = 0;
-                double prevAmount = itemBids.get(0).getAmount();
-                int increaseCount = 0;
-
-                for (int i = 1; i < itemBids.size(); i++) {
-                    double currentAmount = itemBids.get(i).getAmount();
-                    if (currentAmount > prevAmount) {
-                        double increasePercent = (currentAmount - prevAmount) / prevAmount * 100;
-                        totalIncreasePercent += increasePercent;
-                        increaseCount++;
-                    }
-                    prevAmount = currentAmount;
-                }
+        // Bid frequency (bids per day) and average increase between consecutive bids
+        popularity.setLastBidTime(summary.getLastBidAt());
+        popularity.setBidFrequency(summary.getBidFrequency());
+        popularity.setBidIncreaseRate(summary.getBidIncreaseRate());
+        popularity.setDecayedBidScore(decayedPopularityIndex.decayedScore(itemId));
 
-                double avgIncreaseRate = increaseCount > 0 ? totalIncreasePercent / increaseCount : 0;
-                popularity.setBidIncreaseRate(avgIncreaseRate);
-            } else {
-                popularity.setBidIncreaseRate(0);
-            }
-        } else {
-            popularity.setBidFrequency(0);
-            popularity.setBidIncreaseRate(0);
-            popularity.setHot(false);
-        }
+        // Mark as "hot" if the current bid rate exceeds threshold
+        popularity.setBidsLastMinute(bidRateTracker.bidsLastMinute(itemId));
+        popularity.setBidsLastHour(bidRateTracker.bidsLastHour(itemId));
+        popularity.setHot(popularity.getBidsLastHour() >= hotItemMinBidsPerHour);
 
         // Calculate price increase from initial price
-        if (!itemBids.isEmpty()) {
+        if (summary.getTotalBids() > 0) {
             double initialPrice = item.getInitialPrice();
-            double currentHighestBid = itemBids.stream()
-                    .mapToDouble(BidEntity::getAmount)
-                    .max()
-                    .orElse(initialPrice);
-
             double priceIncrease = initialPrice > 0 ?
-                    (currentHighestBid - initialPrice) / initialPrice * 100 : 0;
+                    (summary.getMaxAmount() - initialPrice) / initialPrice * 100 : 0;
             popularity.setPriceIncrease(priceIncrease);
         } else {
             popularity.setPriceIncrease(0);
@@ -439,13 +546,8 @@ public class StatsService {
         double frequencyScore = Math.min(1.0, popularity.getBidFrequency() / 10.0) * 100; // Cap at 10 bids per day
         double priceIncreaseScore = Math.min(1.0, popularity.getPriceIncrease() / 200.0) * 100; // Cap at 200% increase
 
-        // Recency factor (higher score for more recent activity)
-        double recencyScore = 0;
-        if (popularity.getLastBidTime() != null) {
-            long hoursSinceLastBid = Duration.between(popularity.getLastBidTime(), LocalDateTime.now()).toHours();
-            recencyScore = Math.max(0, 100 - (hoursSinceLastBid / 24.0) * 100); // Full score if within last day, decreases over time
-            recencyScore = Math.max(0, recencyScore); // Ensure non-negative
-        }
+        // Recency factor (higher score for more recent activity), from the time-decayed bid count
+        double recencyScore = Math.min(1.0, popularity.getDecayedBidScore()) * 100; // Full score for a bid just placed
 
         // Weight the factors for final score
         double score = (bidScore * WEIGHT_TOTAL_BIDS) +
@@ -461,79 +563,102 @@ public class StatsService {
      * Get category statistics
      */
     public AuctionStats getCategoryStats(String categoryStr) {
+        return getCategoryStats(categoryStr, TimeWindow.ALL);
+    }
+
+    /**
+     * Get category statistics, with bid figures limited to the bids placed within a time window
+     */
+    public AuctionStats getCategoryStats(String categoryStr, TimeWindow window) {
+        Category category = parseCategory(categoryStr);
+        if (window.isUnbounded()) {
+            return auctionStatsCache.get(CATEGORY_CACHE_KEY_PREFIX + category.name(),
+                    () -> computeCategoryStats(category, window));
+        }
+        return computeCategoryStats(category, window);
+    }
+
+    private static Category parseCategory(String categoryStr) {
         // Validate category
-        Category category;
         try {
-            category = Category.valueOf(categoryStr.toUpperCase());
+            return Category.valueOf(categoryStr.toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid category: " + categoryStr);
         }
+    }
 
-        AuctionStats stats = new AuctionStats();
-
+    private AuctionStats computeCategoryStats(Category category, TimeWindow window) {
         // Get all items in this category
         List<ItemEntity> categoryItems = itemRepository.findAll().stream()
                 .filter(item -> item.getCategory() == category)
                 .collect(Collectors.toList());
 
-        // Calculate basic stats
-        stats.setTotalItems(categoryItems.size());
-        stats.setActiveItems((int) categoryItems.stream().filter(ItemEntity::isActive).count());
-        stats.setCompletedAuctions((int) categoryItems.stream().filter(item -> !item.isActive()).count());
+        // Calculate bid statistics with one scan of the bid columns
+        BidAggregate categoryBids = bidColumnStore.aggregate(window, category);
+        BidActivity activity = bidRollupService.getActivity(category, window);
 
-        // Calculate bid statistics
-        int totalBids = 0;
-        Set<String> uniqueBidderEmails = new HashSet<>();
-        double totalBidAmount = 0.0;
-        double highestBid = 0.0;
-        LocalDateTime earliestBid = null;
-        LocalDateTime latestBid = null;
-        Map<String, Integer> bidsByDayOfWeek = new HashMap<>();
-
-        for (ItemEntity item : categoryItems) {
-            List<BidEntity> itemBids = bidRepository.findByItemId(item.getId());
-            totalBids += itemBids.size();
-
-            for (BidEntity bid : itemBids) {
-                // Track unique bidders
-                uniqueBidderEmails.add(bid.getEmail());
-
-                // Track bid amounts
-                totalBidAmount += bid.getAmount();
-                if (bid.getAmount() > highestBid) {
-                    highestBid = bid.getAmount();
-                }
+        return buildCategoryStats(category, window, categoryItems, categoryBids, activity);
+    }
 
-                // Track bid times
-                if (earliestBid == null || bid.getCreatedAt().isBefore(earliestBid)) {
-                    earliestBid = bid.getCreatedAt();
-                }
-                if (latestBid == null || bid.getCreatedAt().isAfter(latestBid)) {
-                    latestBid = bid.getCreatedAt();
+    /**
+     * Get the statistics of every category, keyed by category name, in one pass: the items are loaded once
+     * and grouped by category, the bid columns are scanned once into per-category totals, and the rollups
+     * are read with one query.
+     */
+    public Map<String, AuctionStats> getAllCategoryStats(TimeWindow window) {
+        try (QueryScope scope = new QueryScope(statsExecutor, queryTimeout)) {
+            Future<List<ItemEntity>> allItemsTask = scope.fork(itemRepository::findAll);
+            Future<Map<Category, BidAggregate>> bidsTask = scope.fork(() -> bidColumnStore.aggregateByCategory(window));
+            Future<Map<Category, BidActivity>> activityTask = scope.fork(() -> bidRollupService.getActivityByCategory(window));
+
+            Map<Category, List<ItemEntity>> itemsByCategory = new EnumMap<>(Category.class);
+            for (Category category : Category.values()) {
+                itemsByCategory.put(category, new ArrayList<>());
+            }
+            for (ItemEntity item : scope.get(allItemsTask)) {
+                if (item.getCategory() != null) {
+                    itemsByCategory.get(item.getCategory()).add(item);
                 }
+            }
+            Map<Category, BidAggregate> bids = scope.get(bidsTask);
+            Map<Category, BidActivity> activities = scope.get(activityTask);
 
-                // Track day of week
-                String dayOfWeek = bid.getCreatedAt().getDayOfWeek().toString();
-                bidsByDayOfWeek.put(dayOfWeek, bidsByDayOfWeek.getOrDefault(dayOfWeek, 0) + 1);
+            Map<String, AuctionStats> stats = new LinkedHashMap<>();
+            for (Category category : Category.values()) {
+                stats.put(category.name(), buildCategoryStats(category, window,
+                        itemsByCategory.get(category), bids.get(category), activities.get(category)));
             }
+            return stats;
         }
+    }
+
+    private AuctionStats buildCategoryStats(Category category, TimeWindow window, List<ItemEntity> categoryItems,
+                                            BidAggregate categoryBids, BidActivity activity) {
+        AuctionStats stats = new AuctionStats();
+
+        // Calculate basic stats
+        stats.setTotalItems(categoryItems.size());
+        stats.setActiveItems((int) categoryItems.stream().filter(ItemEntity::isActive).count());
+        stats.setCompletedAuctions((int) categoryItems.stream().filter(item -> !item.isActive()).count());
+
+        // Calculate bid statistics
+        int totalBids = (int) categoryBids.getCount();
 
         stats.setTotalBids(totalBids);
-        stats.setUniqueBidders(uniqueBidderEmails.size());
+        stats.setUniqueBidders((int) (window.isUnbounded()
+                ? uniqueBidderCounter.countForCategory(category)
+                : categoryBids.getDistinctBidders()));
         stats.setAverageBids(categoryItems.isEmpty() ? 0 : (double) totalBids / categoryItems.size());
         stats.setBidsPerItem(stats.getAverageBids());
-        stats.setHighestBidAmount(highestBid);
-        stats.setAverageBidAmount(totalBids == 0 ? 0 : totalBidAmount / totalBids);
+        stats.setHighestBidAmount(categoryBids.getMaxAmount());
+        stats.setAverageBidAmount(categoryBids.getAverageAmount());
+        setBidAmountQuantiles(stats, window.isUnbounded()
+                ? bidAmountQuantiles.forCategory(category)
+                : categoryBids.getAmountDistribution());
 
-        // Calculate bids per day
-        if (earliestBid != null && latestBid != null) {
-            long daysBetween = Duration.between(earliestBid, latestBid).toDays() + 1;
-            stats.setBidsPerDay(daysBetween > 0 ? (double) totalBids / daysBetween : totalBids);
-        } else {
-            stats.setBidsPerDay(0);
-        }
-
-        stats.setBidsByDay(bidsByDayOfWeek);
+        // Calculate bids per day and by day of week
+        stats.setBidsPerDay(activity.getBidsPerDay());
+        stats.setBidsByDay(activity.getBidsByDayOfWeek());
 
         // Set category counter
         Map<String, Integer> categoryCount = new HashMap<>();
@@ -551,23 +676,59 @@ public class StatsService {
         return stats;
     }
 
+    /**
+     * Get median and tail bid amounts across all bids
+     */
+    public BidAmountDistribution getBidAmountDistribution() {
+        return bidAmountQuantiles.overall();
+    }
+
+    /**
+     * Get median and tail bid amounts for the items of a category
+     */
+    public BidAmountDistribution getCategoryBidAmountDistribution(String categoryStr) {
+        return bidAmountQuantiles.forCategory(parseCategory(categoryStr));
+    }
+
+    /**
+     * Get median and tail bid amounts for an item
+     */
+    public BidAmountDistribution getItemBidAmountDistribution(String itemId) {
+        // Check if item exists
+        itemLoader.get(itemId)
+                .orElseThrow(() -> new EntityNotFoundException(itemId));
+        return bidAmountQuantiles.forItem(itemId);
+    }
+
+    private static void setBidAmountQuantiles(AuctionStats stats, BidAmountDistribution distribution) {
+        stats.setMedianBidAmount(distribution.getMedianBidAmount());
+        stats.setP90BidAmount(distribution.getP90BidAmount());
+        stats.setP99BidAmount(distribution.getP99BidAmount());
+    }
+
     /**
      * Get most popular items based on popularity score
      */
     public List<ItemPopularity> getPopularItems(int limit) {
-        List<ItemEntity> activeItems = itemRepository.findByActive(true);
         List<ItemPopularity> popularityList = new ArrayList<>();
+        Iterator<String> ranked = decayedPopularityIndex.ranked();
 
-        for (ItemEntity item : activeItems) {
-            ItemPopularity popularity = getItemPopularity(item.getId());
-            popularityList.add(popularity);
-        }
+        // Walk the ranking (already sorted by decayed bid activity) a page at a time, skipping ended auctions
+        while (popularityList.size() < limit && ranked.hasNext()) {
+            List<String> page = new ArrayList<>();
+            while (page.size() < limit && ranked.hasNext()) {
+                page.add(ranked.next());
+            }
 
-        // Sort by popularity score in descending order and limit
-        return popularityList.stream()
-                .sorted(Comparator.comparing(ItemPopularity::getPopularityScore).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+            Map<String, ItemEntity> items = itemLoader.getAll(page);
+            for (String itemId : page) {
+                ItemEntity item = items.get(itemId);
+                if (item != null && item.isActive() && popularityList.size() < limit) {
+                    popularityList.add(popularityOf(item));
+                }
+            }
+        }
+        return popularityList;
     }
 
     /**
@@ -605,8 +766,8 @@ public class StatsService {
             try {
                 UserStats userStats = getUserStats(email);
                 allUserStats.add(userStats);
-            } catch (Exception e) {
-                // Skip users with invalid stats
+            } catch (IllegalArgumentException e) {
+                // Skip bidders whose stored email is not valid; a timeout fails the whole request
             }
         }
 
@@ -621,40 +782,35 @@ public class StatsService {
      * Get hourly distribution of bidding activity
      */
     public Map<String, Integer> getBiddingHourDistribution() {
-        List<BidEntity> allBids = bidRepository.findAll();
-        Map<String, Integer> hourDistribution = new HashMap<>();
-
-        // Initialize all hours with zero
-        for (int i = 0; i < 24; i++) {
-            hourDistribution.put(String.valueOf(i), 0);
-        }
-
-        // Count bids per hour
-        for (BidEntity bid : allBids) {
-            String hour = String.valueOf(bid.getCreatedAt().getHour());
-            hourDistribution.put(hour, hourDistribution.getOrDefault(hour, 0) + 1);
-        }
+        return getBiddingHourDistribution(TimeWindow.ALL);
+    }
 
-        return hourDistribution;
+    /**
+     * Get hourly distribution of the bids placed within a time window
+     */
+    public Map<String, Integer> getBiddingHourDistribution(TimeWindow window) {
+        return bidRollupService.getActivity(window).getBidsByHour();
     }
 
     /**
      * Get items with high bidding activity ("hot" items)
      */
     public List<ItemPopularity> getHotItems() {
-        List<ItemEntity> activeItems = itemRepository.findByActive(true);
-        List<ItemPopularity> hotItems = new ArrayList<>();
+        // Only the items the rate tracker reports as hot are looked up
+        List<String> hotItemIds = bidRateTracker.hotItems(hotItemMinBidsPerHour);
+        Map<String, ItemEntity> hotItems = itemLoader.getAll(hotItemIds);
 
-        for (ItemEntity item : activeItems) {
-            ItemPopularity popularity = getItemPopularity(item.getId());
-            if (popularity.isHot()) {
-                hotItems.add(popularity);
+        List<ItemPopularity> popularityList = new ArrayList<>();
+        for (String itemId : hotItemIds) {
+            ItemEntity item = hotItems.get(itemId);
+            if (item != null && item.isActive()) {
+                popularityList.add(popularityOf(item));
             }
         }
 
-        // Sort by bid frequency in descending order
-        return hotItems.stream()
-                .sorted(Comparator.comparing(ItemPopularity::getBidFrequency).reversed())
+        // Sort by bids in the last hour in descending order
+        return popularityList.stream()
+                .sorted(Comparator.comparing(ItemPopularity::getBidsLastHour).reversed())
                 .collect(Collectors.toList());
     }
 }
\ No newline at end of file
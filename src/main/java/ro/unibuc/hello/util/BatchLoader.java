@@ -0,0 +1,134 @@
+package ro.unibuc.hello.util;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Gathers single-key lookups issued within a short window and resolves them with one batch call,
+ * in the spirit of DataLoader.
+ * <p>
+ * The first key of a batch opens a window of {@code batchWindow}; every key requested meanwhile, from any
+ * thread, joins the same batch, and the same key is only asked for once per batch. The batch is dispatched
+ * when the window closes, when it reaches {@code maxBatchSize} keys, or straight away when a caller needs
+ * several keys at once ({@link #getAll(Collection)}). Each caller still gets its own result. Nothing is kept
+ * once a batch is resolved, so a later lookup always reads fresh data.
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batchFunction;
+    private final Duration batchWindow;
+    private final int maxBatchSize;
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+
+    public BatchLoader(Function<Set<K>, Map<K, V>> batchFunction, Duration batchWindow, int maxBatchSize) {
+        this(batchFunction, batchWindow, maxBatchSize, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    BatchLoader(Function<Set<K>, Map<K, V>> batchFunction, Duration batchWindow, int maxBatchSize, Executor executor) {
+        this.batchFunction = batchFunction;
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Looks up one key, batched with whatever other keys are requested within the window.
+     */
+    public Optional<V> get(K key) {
+        return Optional.ofNullable(join(load(key)));
+    }
+
+    /**
+     * Looks up several keys with one batch call (together with any keys other callers have pending).
+     * Keys that were not found are missing from the returned map.
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            futures.computeIfAbsent(key, this::load);
+        }
+        dispatch(takePending());
+
+        Map<K, V> values = new LinkedHashMap<>();
+        futures.forEach((key, future) -> {
+            V value = join(future);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        Map<K, CompletableFuture<V>> full = null;
+        CompletableFuture<V> future;
+        synchronized (lock) {
+            future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                // First key of a new batch: dispatch whatever has gathered once the window closes
+                executor.execute(() -> {
+                    LockSupport.parkNanos(batchWindow.toNanos());
+                    dispatch(takePending());
+                });
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    private Map<K, CompletableFuture<V>> takePending() {
+        synchronized (lock) {
+            Map<K, CompletableFuture<V>> batch = pending;
+            pending = new LinkedHashMap<>();
+            return batch;
+        }
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<K, V> values = batchFunction.apply(batch.keySet());
+            batch.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (Throwable t) {
+            batch.values().forEach(future -> future.completeExceptionally(t));
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
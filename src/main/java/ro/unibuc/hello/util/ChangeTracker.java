@@ -0,0 +1,195 @@
+package ro.unibuc.hello.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Versions the fields of a document that is recomputed over and over, so a client holding one version can
+ * ask for only what changed since. Scalar fields are versioned as a whole and map-valued fields entry by
+ * entry, so one new bid does not resend every category or every day of the week.
+ * <p>
+ * Each recorded document is compared with the previous one; if anything differs the version goes up and
+ * the changed fields and entries are stamped with it. Entries that disappear leave a tombstone, so a delta
+ * can report them as removed. Only the latest {@code maxTombstones} are kept; a client behind the oldest
+ * dropped one gets the whole document again. Versions start from the startup time in milliseconds and never
+ * fall behind the clock, so they keep increasing across restarts; a version this instance cannot account
+ * for also gets the whole document.
+ */
+public class ChangeTracker {
+
+    // Joins a map-valued field and an entry key into the path of the entry
+    private static final char SEPARATOR = '\u0000';
+
+    private final int maxTombstones;
+
+    private final Map<String, Versioned> values = new LinkedHashMap<>();
+    // Map-valued fields, with the version they became one, so empty maps still show up in deltas
+    private final Map<String, Long> mapFields = new LinkedHashMap<>();
+    // Removed paths in the order they were removed, which is also version order
+    private final Map<String, Long> tombstones = new LinkedHashMap<>();
+    private long version;
+    // Deltas since a version older than this would miss dropped tombstones
+    private long horizon;
+
+    public ChangeTracker(int maxTombstones) {
+        this(maxTombstones, System.currentTimeMillis());
+    }
+
+    ChangeTracker(int maxTombstones, long firstVersion) {
+        this.maxTombstones = maxTombstones;
+        this.version = firstVersion;
+        this.horizon = firstVersion;
+    }
+
+    /**
+     * Compares {@code document} with the previously recorded one and returns the resulting version, which
+     * only changes if something in the document did.
+     */
+    public synchronized long record(Map<String, ?> document) {
+        long next = Math.max(version + 1, System.currentTimeMillis());
+        boolean changed = false;
+        Set<String> seen = new HashSet<>();
+
+        for (Map.Entry<String, ?> field : document.entrySet()) {
+            if (field.getValue() instanceof Map<?, ?> map) {
+                changed |= mapFields.putIfAbsent(field.getKey(), next) == null;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    String path = field.getKey() + SEPARATOR + entry.getKey();
+                    seen.add(path);
+                    changed |= put(path, entry.getValue(), next);
+                }
+            } else {
+                changed |= mapFields.remove(field.getKey()) != null;
+                seen.add(field.getKey());
+                changed |= put(field.getKey(), field.getValue(), next);
+            }
+        }
+        mapFields.keySet().retainAll(document.keySet());
+
+        for (Iterator<String> it = values.keySet().iterator(); it.hasNext(); ) {
+            String path = it.next();
+            if (!seen.contains(path)) {
+                it.remove();
+                tombstones.put(path, next);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            version = next;
+            while (tombstones.size() > maxTombstones) {
+                Iterator<Long> oldest = tombstones.values().iterator();
+                horizon = Math.max(horizon, oldest.next());
+                oldest.remove();
+            }
+        }
+        return version;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Fields and entries changed since {@code since}, or the whole document if this tracker cannot tell.
+     */
+    public synchronized Delta changesSince(long since) {
+        boolean full = since < horizon || since > version;
+        long after = full ? Long.MIN_VALUE : since;
+        Delta delta = new Delta(version, full);
+
+        mapFields.forEach((field, becameMap) -> {
+            if (becameMap > after) {
+                delta.changed.put(field, new LinkedHashMap<String, Object>());
+            }
+        });
+        values.forEach((path, value) -> {
+            if (value.version > after) {
+                int separator = path.indexOf(SEPARATOR);
+                if (separator < 0) {
+                    delta.changed.put(path, value.value);
+                } else {
+                    entries(delta.changed, path.substring(0, separator)).put(path.substring(separator + 1), value.value);
+                }
+            }
+        });
+        if (!full) {
+            tombstones.forEach((path, removedAt) -> {
+                if (removedAt > since) {
+                    int separator = path.indexOf(SEPARATOR);
+                    String field = separator < 0 ? path : path.substring(0, separator);
+                    List<String> keys = delta.removed.computeIfAbsent(field, f -> new ArrayList<>());
+                    if (separator >= 0) {
+                        keys.add(path.substring(separator + 1));
+                    }
+                }
+            });
+        }
+        return delta;
+    }
+
+    private boolean put(String path, Object value, long next) {
+        Versioned current = values.get(path);
+        if (current != null && Objects.equals(current.value, value)) {
+            return false;
+        }
+        values.put(path, new Versioned(value, next));
+        tombstones.remove(path);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> entries(Map<String, Object> changed, String field) {
+        return (Map<String, Object>) changed.computeIfAbsent(field, f -> new LinkedHashMap<String, Object>());
+    }
+
+    private static final class Versioned {
+        private final Object value;
+        private final long version;
+
+        private Versioned(Object value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+    /**
+     * What changed between a client's version and {@code version}: new values of scalar fields and of map
+     * entries, and the keys of removed map entries (an empty list for a removed field). A full delta holds
+     * the whole document.
+     */
+    public static class Delta {
+
+        private final long version;
+        private final boolean full;
+        private final Map<String, Object> changed = new LinkedHashMap<>();
+        private final Map<String, List<String>> removed = new LinkedHashMap<>();
+
+        private Delta(long version, boolean full) {
+            this.version = version;
+            this.full = full;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        public Map<String, Object> getChanged() {
+            return changed;
+        }
+
+        public Map<String, List<String>> getRemoved() {
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ro.unibuc.hello.util;
+
+import ro.unibuc.hello.exception.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent queries concurrently under one shared deadline, in the spirit of
+ * {@code StructuredTaskScope} (still a preview API in Java 21).
+ * <p>
+ * Subtasks are forked on the given executor and awaited with {@link #get(Future)}, which only waits for
+ * whatever is left of the deadline. Closing the scope cancels (and interrupts) every subtask that has not
+ * finished yet, so a timeout or a failure in one query never leaves its siblings running.
+ * Subtasks may themselves wait for other subtasks of the same scope.
+ */
+public final class QueryScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final long deadlineNanos;
+    private final List<Future<?>> subtasks = new CopyOnWriteArrayList<>();
+
+    public QueryScope(ExecutorService executor, Duration timeout) {
+        this.executor = executor;
+        this.timeout = timeout;
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    public <T> Future<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(task);
+        subtasks.add(future);
+        return future;
+    }
+
+    /**
+     * Waits for a subtask until the scope deadline.
+     *
+     * @throws QueryTimeoutException if the deadline passes first
+     */
+    public <T> T get(Future<T> subtask) {
+        try {
+            return subtask.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            throw new QueryTimeoutException(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException(timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Future<?> subtask : subtasks) {
+            subtask.cancel(true);
+        }
+    }
+}
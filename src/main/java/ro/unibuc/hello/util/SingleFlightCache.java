@@ -0,0 +1,98 @@
+package ro.unibuc.hello.util;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Per-key cache that collapses concurrent loads of the same key into one computation (single-flight)
+ * and serves stale values while they are refreshed in the background (stale-while-revalidate).
+ * <p>
+ * A value younger than {@code ttl} is returned as is. Between {@code ttl} and {@code ttl + maxStale} it is
+ * still returned immediately, but a background refresh is started (at most one per key). Older values, or
+ * missing ones, are loaded in the foreground; every caller asking for the key meanwhile waits for that same
+ * load instead of starting its own. A failed background refresh keeps the stale value.
+ */
+public class SingleFlightCache<K, V> {
+
+    private final Duration ttl;
+    private final Duration maxStale;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightCache(Duration ttl, Duration maxStale) {
+        this(ttl, maxStale, Executors.newVirtualThreadPerTaskExecutor(), System::nanoTime);
+    }
+
+    SingleFlightCache(Duration ttl, Duration maxStale, Executor executor, LongSupplier nanoClock) {
+        this.ttl = ttl;
+        this.maxStale = maxStale;
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            long age = nanoClock.getAsLong() - entry.loadedAt;
+            if (age <= ttl.toNanos()) {
+                return entry.value;
+            }
+            if (age <= ttl.toNanos() + maxStale.toNanos()) {
+                load(key, loader);
+                return entry.value;
+            }
+        }
+
+        try {
+            return load(key, loader).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<V> load(K key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+
+        executor.execute(() -> {
+            // The key leaves inFlight before the future completes, so a caller woken by the completion (or
+            // arriving just after it) starts a new load instead of joining the finished one
+            try {
+                V value = loader.get();
+                entries.put(key, new Entry<>(value, nanoClock.getAsLong()));
+                inFlight.remove(key, created);
+                created.complete(value);
+            } catch (Throwable t) {
+                inFlight.remove(key, created);
+                created.completeExceptionally(t);
+            }
+        });
+        return created;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
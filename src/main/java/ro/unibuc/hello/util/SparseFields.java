@@ -0,0 +1,107 @@
+package ro.unibuc.hello.util;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The fields of a DTO a client may pick with {@code fields=a,b,c}, each with the document fields it is read
+ * from. A {@link Selection} projects a query onto just the document fields the picked fields need and writes
+ * each DTO as a map of only those fields, so unused fields are neither read from Mongo nor serialized.
+ */
+public class SparseFields<T> {
+
+    private final Map<String, Field<T>> fields = new LinkedHashMap<>();
+
+    /**
+     * Declares a selectable field, written with {@code getter} and read from {@code documentFields} (entity
+     * property names, mapped to document fields by the query mapper).
+     */
+    public SparseFields<T> field(String name, Function<T, ?> getter, String... documentFields) {
+        fields.put(name, new Field<>(name, getter, List.of(documentFields)));
+        return this;
+    }
+
+    /**
+     * The declared fields among {@code names}, written in declaration order whatever order they were given in.
+     *
+     * @throws IllegalArgumentException if no field, or one that was not declared, is named
+     */
+    public Selection<T> select(Collection<String> names) {
+        Set<String> requested = names.stream()
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be given");
+        }
+        for (String name : requested) {
+            if (!fields.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field " + name + "; expected any of " + fields.keySet());
+            }
+        }
+
+        List<Field<T>> selected = new ArrayList<>();
+        for (Field<T> field : fields.values()) {
+            if (requested.contains(field.name)) {
+                selected.add(field);
+            }
+        }
+        return new Selection<>(selected);
+    }
+
+    public static class Selection<T> {
+
+        private final List<Field<T>> fields;
+
+        private Selection(List<Field<T>> fields) {
+            this.fields = fields;
+        }
+
+        public boolean includes(String name) {
+            return fields.stream().anyMatch(field -> field.name.equals(name));
+        }
+
+        /**
+         * Limits {@code query} to the document fields the selection is read from (the id is always returned).
+         */
+        public Query project(Query query) {
+            Set<String> documentFields = new LinkedHashSet<>();
+            fields.forEach(field -> documentFields.addAll(field.documentFields));
+            documentFields.forEach(query.fields()::include);
+            return query;
+        }
+
+        public Map<String, Object> apply(T dto) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (Field<T> field : fields) {
+                values.put(field.name, field.getter.apply(dto));
+            }
+            return values;
+        }
+
+        public List<Map<String, Object>> apply(List<T> dtos) {
+            return dtos.stream().map(this::apply).collect(Collectors.toList());
+        }
+    }
+
+    private static final class Field<T> {
+        private final String name;
+        private final Function<T, ?> getter;
+        private final List<String> documentFields;
+
+        private Field(String name, Function<T, ?> getter, List<String> documentFields) {
+            this.name = name;
+            this.getter = getter;
+            this.documentFields = documentFields;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ro.unibuc.hello.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids (0, 1, 2, ...) to strings, so repeated values are stored once and columns can hold
+ * ints instead of references. Ids are never reused; lookups by string and by id are both O(1).
+ */
+public class StringDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Id of {@code value}, assigning the next free one the first time it is seen.
+     */
+    public int idOf(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : assign(value);
+    }
+
+    private synchronized int assign(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Id of {@code value}, or -1 if it has never been assigned one.
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,83 @@
+package ro.unibuc.hello.util;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Time range {@code [from, to)} that stats are computed over. Either end may be open.
+ */
+public final class TimeWindow {
+
+    public static final TimeWindow ALL = new TimeWindow(null, null);
+
+    // Stand-ins for open ends in range queries; both are representable as BSON dates
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private TimeWindow(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code from} is not before {@code to}
+     */
+    public static TimeWindow of(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return ALL;
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        return new TimeWindow(from, to);
+    }
+
+    public boolean isUnbounded() {
+        return from == null && to == null;
+    }
+
+    public boolean contains(LocalDateTime time) {
+        return !time.isBefore(start()) && time.isBefore(end());
+    }
+
+    /**
+     * Inclusive start, for range queries.
+     */
+    public LocalDateTime start() {
+        return from != null ? from : EARLIEST;
+    }
+
+    /**
+     * Exclusive end, for range queries.
+     */
+    public LocalDateTime end() {
+        return to != null ? to : LATEST;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimeWindow other)) {
+            return false;
+        }
+        return Objects.equals(from, other.from) && Objects.equals(to, other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+}
@@ -0,0 +1,83 @@
+package ro.unibuc.hello.util;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-key version numbers, turned into weak ETags so conditional requests can be answered from memory.
+ * <p>
+ * Whatever changes a resource bumps its key once the change is visible to readers. A tag read before the
+ * resource is loaded therefore never names newer data than was loaded: at worst the client re-downloads a
+ * response it already had. Tags start with an id drawn at startup, so a tag handed out before a restart
+ * never matches after it, when every counter starts over.
+ */
+public class VersionCounters {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String bootId;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    // Part of every tag, for changes that cannot be tied to a key
+    private final AtomicLong generation = new AtomicLong();
+
+    public VersionCounters() {
+        this(Long.toString(RANDOM.nextLong() & Long.MAX_VALUE, 36));
+    }
+
+    VersionCounters(String bootId) {
+        this.bootId = bootId;
+    }
+
+    public void bump(String key) {
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Changes every tag, e.g. after resources were changed without knowing which.
+     */
+    public void bumpAll() {
+        generation.incrementAndGet();
+    }
+
+    public long version(String key) {
+        AtomicLong version = versions.get(key);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Weak ETag for the current version of {@code key}, followed by any further values the resource depends on.
+     */
+    public String eTag(String key, long... parts) {
+        StringBuilder tag = new StringBuilder("W/\"")
+                .append(bootId).append('-')
+                .append(generation.get()).append('-')
+                .append(version(key));
+        for (long part : parts) {
+            tag.append('-').append(part);
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header lists {@code eTag}, with the weak comparison GET requests use.
+     * {@code *} is not matched, since the tag is checked before the resource is known to exist.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaque(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (opaque(candidate.trim()).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,91 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.BidRepository;
+import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.util.VersionCounters;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BidAnalyticsUpdaterTest {
+
+    @Mock
+    private BidRepository bidRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @InjectMocks
+    private BidAnalyticsUpdater updater;
+
+    private final ItemPopularityAccumulator accumulator = new ItemPopularityAccumulator();
+
+    private final VersionCounters versionCounters = new VersionCounters();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(updater, "analytics", List.of(accumulator));
+        ReflectionTestUtils.setField(updater, "versionCounters", versionCounters);
+        when(itemRepository.findAll()).thenReturn(List.of());
+    }
+
+    @Test
+    void rebuild_ShouldKeepServingOldSummariesUntilTheRebuiltOnesAreSwappedIn() {
+        accumulator.record(bid("old", 1), null);
+        accumulator.record(bid("old2", 2), null);
+        BidEntity stored = bid("stored", 3);
+        when(bidRepository.streamAllByOrderByCreatedAtAsc()).thenReturn(Stream.of(stored)
+                .peek(bid -> assertEquals(2, accumulator.summaryOf("item1").getTotalBids())));
+
+        String tagBeforeSwap = versionCounters.eTag("item1");
+        updater.rebuild();
+
+        assertEquals(1, accumulator.summaryOf("item1").getTotalBids());
+        // Tags handed out for the old totals no longer match
+        assertNotEquals(tagBeforeSwap, versionCounters.eTag("item1"));
+    }
+
+    @Test
+    void rebuild_ShouldReplayBidsPlacedMeanwhileUnlessAlreadyStreamed() {
+        BidEntity first = bid("first", 1);
+        BidEntity savedBeforeCursorReachedIt = bid("second", 2);
+        BidEntity savedAfterCursorPassed = bid("third", 3);
+        when(bidRepository.streamAllByOrderByCreatedAtAsc()).thenReturn(Stream.of(first, savedBeforeCursorReachedIt)
+                .peek(bid -> {
+                    if (bid == first) {
+                        updater.onBidPlaced(new BidPlacedEvent(savedBeforeCursorReachedIt, null));
+                    } else {
+                        updater.onBidPlaced(new BidPlacedEvent(savedAfterCursorPassed, null));
+                    }
+                }));
+
+        updater.rebuild();
+
+        // Each bid once: two from the cursor, the third replayed
+        assertEquals(3, accumulator.summaryOf("item1").getTotalBids());
+        updater.onBidPlaced(new BidPlacedEvent(bid("fourth", 4), null));
+        assertEquals(4, accumulator.summaryOf("item1").getTotalBids());
+    }
+
+    private static BidEntity bid(String id, double amount) {
+        BidEntity bid = new BidEntity("item1", "Bidder", amount, "bidder@example.com");
+        bid.setId(id);
+        bid.setCreatedAt(LocalDateTime.now());
+        return bid;
+    }
+}
@@ -0,0 +1,115 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.util.TimeWindow;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BidColumnStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 14, 10, 0);
+
+    private final BidColumnStore store = new BidColumnStore();
+    private final ItemEntity book = item("book", Category.BOOKS);
+    private final ItemEntity phone = item("phone", Category.ELECTRONICS);
+
+    @Test
+    void aggregate_ShouldSumAllBids() {
+        record(book, "a@example.com", 10.0, START);
+        record(book, "b@example.com", 30.0, START.plusHours(1));
+        record(phone, "a@example.com", 50.0, START.plusDays(1));
+        record(phone, "a@example.com", 70.0, START.plusDays(2));
+
+        BidAggregate aggregate = store.aggregate(TimeWindow.ALL, null);
+
+        assertEquals(4, aggregate.getCount());
+        assertEquals(160.0, aggregate.getAmountSum());
+        assertEquals(70.0, aggregate.getMaxAmount());
+        assertEquals(40.0, aggregate.getAverageAmount());
+        assertEquals(2, aggregate.getBidsInCategory(Category.BOOKS));
+        assertEquals(2, aggregate.getBidsInCategory(Category.ELECTRONICS));
+        assertEquals(2, aggregate.getDistinctBidders());
+        assertEquals(List.of("a@example.com", "b@example.com"), List.copyOf(aggregate.getTopBidders(5).keySet()));
+        assertEquals(Map.of("a@example.com", 3), aggregate.getTopBidders(1));
+        assertEquals(0, aggregate.getAmountDistribution().getTotalBids());
+    }
+
+    @Test
+    void aggregate_ShouldFilterByWindowAndCategory() {
+        record(book, "a@example.com", 10.0, START);
+        record(book, "b@example.com", 30.0, START.plusHours(1));
+        record(phone, "c@example.com", 50.0, START.plusHours(1));
+        record(book, "d@example.com", 90.0, START.plusDays(1));
+
+        BidAggregate aggregate = store.aggregate(TimeWindow.of(START.plusMinutes(30), START.plusDays(1)), Category.BOOKS);
+
+        assertEquals(1, aggregate.getCount());
+        assertEquals(30.0, aggregate.getMaxAmount());
+        assertEquals(1, aggregate.getDistinctBidders());
+        assertEquals(1, aggregate.getAmountDistribution().getTotalBids());
+        assertEquals(30.0, aggregate.getAmountDistribution().getMedianBidAmount(), 0.3);
+    }
+
+    @Test
+    void aggregateByCategory_ShouldSplitOneScanByCategory() {
+        record(book, "a@example.com", 10.0, START);
+        record(book, "b@example.com", 30.0, START.plusHours(1));
+        record(phone, "a@example.com", 50.0, START.plusHours(1));
+        record(phone, "c@example.com", 70.0, START.plusDays(1));
+
+        Map<Category, BidAggregate> aggregates = store.aggregateByCategory(TimeWindow.of(null, START.plusDays(1)));
+
+        assertEquals(Category.values().length, aggregates.size());
+        assertEquals(2, aggregates.get(Category.BOOKS).getCount());
+        assertEquals(30.0, aggregates.get(Category.BOOKS).getMaxAmount());
+        assertEquals(2, aggregates.get(Category.BOOKS).getDistinctBidders());
+        assertEquals(1, aggregates.get(Category.ELECTRONICS).getCount());
+        assertEquals(1, aggregates.get(Category.ELECTRONICS).getAmountDistribution().getTotalBids());
+        assertEquals(0, aggregates.get(Category.FASHION).getCount());
+    }
+
+    @Test
+    void record_ShouldGrowColumnsAndBeReplaceable() {
+        for (int i = 0; i < 3000; i++) {
+            record(book, "bidder" + (i % 7) + "@example.com", i, START.plusMinutes(i));
+        }
+
+        assertEquals(3000, store.size());
+        assertEquals(7, store.aggregate(TimeWindow.ALL, Category.BOOKS).getDistinctBidders());
+
+        store.replaceWith(store.emptyCopy());
+        assertEquals(0, store.aggregate(TimeWindow.ALL, null).getCount());
+    }
+
+    @Test
+    void replaceWith_ShouldTakeOverTheRebuiltBidderIds() {
+        record(book, "a@example.com", 10.0, START);
+        BidColumnStore rebuilt = store.emptyCopy();
+        BidEntity bid = new BidEntity(book.getId(), "Bidder", 20.0, "b@example.com");
+        bid.setCreatedAt(START);
+        rebuilt.record(bid, book);
+
+        store.replaceWith(rebuilt);
+
+        assertEquals(Map.of("b@example.com", 1), store.aggregate(TimeWindow.ALL, null).getTopBidders(5));
+    }
+
+    private void record(ItemEntity item, String email, double amount, LocalDateTime createdAt) {
+        BidEntity bid = new BidEntity(item.getId(), "Bidder", amount, email);
+        bid.setCreatedAt(createdAt);
+        store.record(bid, item);
+    }
+
+    private static ItemEntity item(String id, Category category) {
+        ItemEntity item = new ItemEntity(id, "Description", 1.0, START.plusDays(7), "creator@example.com", category);
+        item.setId(id);
+        return item;
+    }
+}
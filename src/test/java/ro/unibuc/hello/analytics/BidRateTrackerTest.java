@@ -0,0 +1,80 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.data.BidEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BidRateTrackerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 15, 0);
+
+    private final BidRateTracker tracker = new BidRateTracker();
+
+    BidRateTrackerTest() {
+        tracker.clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    @Test
+    void rates_ShouldOnlyCountBidsInsideEachWindow() {
+        record("item1", NOW.minusSeconds(20));
+        record("item1", NOW.minusMinutes(30));
+        record("item1", NOW.minusMinutes(90));
+
+        assertEquals(1, tracker.bidsLastMinute("item1"));
+        assertEquals(2, tracker.bidsLastHour("item1"));
+        assertEquals(0, tracker.bidsLastHour("unknown"));
+    }
+
+    @Test
+    void hotItems_ShouldListBusiestItemsAboveThreshold() {
+        for (int i = 0; i < 3; i++) {
+            record("busy", NOW.minusMinutes(i));
+            record("busier", NOW.minusMinutes(i));
+        }
+        record("busier", NOW.minusMinutes(40));
+        record("quiet", NOW.minusMinutes(10));
+
+        assertEquals(List.of("busier", "busy"), tracker.hotItems(3));
+    }
+
+    @Test
+    void hotItems_ShouldEvictIdleItemsAndCountThemAgainOnTheirNextBid() {
+        record("item1", NOW.minusMinutes(50));
+        LocalDateTime later = NOW.plusMinutes(20);
+        tracker.clock = Clock.fixed(later.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+        assertEquals(List.of(), tracker.hotItems(0));
+
+        record("item1", later);
+        assertEquals(List.of("item1"), tracker.hotItems(1));
+        assertEquals(1, tracker.bidsLastHour("item1"));
+    }
+
+    @Test
+    void slidingWindowCounter_ShouldForgetSlotsThatSlideOut() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(4, Duration.ofMinutes(1));
+        counter.add(NOW);
+        counter.add(NOW.plusMinutes(1));
+
+        assertEquals(2, counter.count(NOW.plusMinutes(3)));
+        assertEquals(1, counter.count(NOW.plusMinutes(4)));
+
+        // A new event reuses the ring entry of the oldest slot
+        counter.add(NOW.plusMinutes(4));
+        counter.add(NOW.minusMinutes(1));
+        assertEquals(2, counter.count(NOW.plusMinutes(4)));
+    }
+
+    private void record(String itemId, LocalDateTime createdAt) {
+        BidEntity bid = new BidEntity(itemId, "Bidder", 100.0, "bidder@example.com");
+        bid.setCreatedAt(createdAt);
+        tracker.record(bid, null);
+    }
+}
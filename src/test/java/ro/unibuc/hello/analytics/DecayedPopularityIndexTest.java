@@ -0,0 +1,73 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.data.BidEntity;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecayedPopularityIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 15, 0);
+
+    private final DecayedPopularityIndex index = new DecayedPopularityIndex();
+
+    @Test
+    void decayedScore_ShouldHalveEveryHalfLife() {
+        record("item1", NOW);
+        record("item1", NOW.minusDays(1));
+        record("item2", NOW.minusDays(2));
+        setNow(NOW);
+
+        assertEquals(1.5, index.decayedScore("item1"), 1e-9);
+        assertEquals(0.25, index.decayedScore("item2"), 1e-9);
+        assertEquals(0, index.decayedScore("unknown"));
+
+        setNow(NOW.plusDays(1));
+        assertEquals(0.75, index.decayedScore("item1"), 1e-9);
+    }
+
+    @Test
+    void ranked_ShouldOrderByDecayedActivityAndOnlyMoveItemsWithNewBids() {
+        // Two old bids are worth less than one recent bid
+        record("old", NOW.minusDays(3));
+        record("old", NOW.minusDays(3));
+        record("recent", NOW.minusHours(1));
+        record("middle", NOW.minusDays(1));
+
+        assertEquals(List.of("recent", "middle", "old"), ranking());
+
+        // A fresh bid moves only its own item
+        record("old", NOW);
+        assertEquals(List.of("old", "recent", "middle"), ranking());
+    }
+
+    @Test
+    void scores_ShouldStayFiniteFarFromEpoch() {
+        record("item1", DecayedPopularityIndex.EPOCH.plusYears(50));
+        setNow(DecayedPopularityIndex.EPOCH.plusYears(50));
+
+        assertEquals(1.0, index.decayedScore("item1"), 1e-6);
+    }
+
+    private void record(String itemId, LocalDateTime createdAt) {
+        BidEntity bid = new BidEntity(itemId, "Bidder", 100.0, "bidder@example.com");
+        bid.setCreatedAt(createdAt);
+        index.record(bid, null);
+    }
+
+    private void setNow(LocalDateTime now) {
+        index.clock = Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    private List<String> ranking() {
+        List<String> ids = new ArrayList<>();
+        index.ranked().forEachRemaining(ids::add);
+        return ids;
+    }
+}
@@ -0,0 +1,143 @@
+package ro.unibuc.hello.analytics;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EndingSoonIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 15, 0);
+
+    private final EndingSoonIndex index = new EndingSoonIndex();
+
+    EndingSoonIndexTest() {
+        setNow(NOW);
+    }
+
+    @Test
+    void page_ShouldListActiveItemsSoonestFirstAndContinueFromCursor() {
+        index.index(item("c", Category.BOOKS, NOW.plusHours(3)));
+        index.index(item("a", Category.HOME, NOW.plusHours(1)));
+        index.index(item("b", Category.BOOKS, NOW.plusHours(2)));
+
+        EndingSoonIndex.Page first = index.page(null, null, 2);
+        assertEquals(List.of("a", "b"), first.getItemIds());
+        assertNotNull(first.getNextCursor());
+
+        // Items added before the cursor do not shift the next page
+        index.index(item("d", Category.TOYS, NOW.plusMinutes(30)));
+        EndingSoonIndex.Page second = index.page(null, first.getNextCursor(), 2);
+        assertEquals(List.of("c"), second.getItemIds());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void page_ShouldFilterByCategory() {
+        index.index(item("a", Category.HOME, NOW.plusHours(1)));
+        index.index(item("b", Category.BOOKS, NOW.plusHours(2)));
+
+        assertEquals(List.of("b"), index.page(Category.BOOKS, null, 10).getItemIds());
+    }
+
+    @Test
+    void page_ShouldDropEndedDeactivatedAndRemovedItems() {
+        index.index(item("ending", Category.HOME, NOW.plusMinutes(5)));
+        ItemEntity deactivated = item("deactivated", Category.HOME, NOW.plusHours(1));
+        index.index(deactivated);
+        index.index(item("removed", Category.HOME, NOW.plusHours(2)));
+        index.index(item("open", Category.HOME, NOW.plusHours(3)));
+
+        deactivated.setActive(false);
+        index.index(deactivated);
+        index.remove("removed");
+        setNow(NOW.plusMinutes(10));
+
+        assertEquals(List.of("open"), index.page(Category.HOME, null, 10).getItemIds());
+    }
+
+    @Test
+    void index_WhenEndTimeChanges_ShouldReorderItem() {
+        ItemEntity extended = item("extended", Category.HOME, NOW.plusHours(1));
+        index.index(extended);
+        index.index(item("other", Category.HOME, NOW.plusHours(2)));
+
+        extended.setEndTime(NOW.plusHours(3));
+        index.index(extended);
+
+        assertEquals(List.of("other", "extended"), index.page(null, null, 10).getItemIds());
+    }
+
+    @Test
+    void page_WithMalformedCursor_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> index.page(null, "not a cursor", 10));
+    }
+
+    @Test
+    void rebuild_ShouldKeepServingOldListsAndApplyChangesMadeMeanwhile() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        ReflectionTestUtils.setField(index, "itemRepository", itemRepository);
+        index.index(item("old", Category.HOME, NOW.plusHours(1)));
+        ItemEntity deleted = item("deleted", Category.BOOKS, NOW.plusHours(2));
+        when(itemRepository.findByActive(true)).thenAnswer(invocation -> {
+            // Saved and deleted after the rebuild started, while the active items are being read
+            index.index(item("added", Category.HOME, NOW.plusHours(3)));
+            index.remove("deleted");
+            assertEquals(List.of("old", "added"), index.page(null, null, 10).getItemIds());
+            return List.of(deleted);
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of("added"), index.page(null, null, 10).getItemIds());
+        assertEquals(List.of(), index.page(Category.BOOKS, null, 10).getItemIds());
+    }
+
+    @Test
+    void page_EndingOnTheLastOpenAuction_ShouldHaveNoCursor() {
+        index.index(item("a", Category.HOME, NOW.plusHours(1)));
+        index.index(item("b", Category.HOME, NOW.plusHours(2)));
+
+        assertNull(index.page(null, null, 2).getNextCursor());
+        assertNotNull(index.page(null, null, 1).getNextCursor());
+        setNow(NOW.plusMinutes(90));
+        assertNull(index.page(null, null, 1).getNextCursor());
+    }
+
+    @Test
+    void onAfterDelete_ByQuery_ShouldRebuildInTheBackground() {
+        ExecutorService executor = mock(ExecutorService.class);
+        index.rebuildExecutor = executor;
+
+        index.onAfterDelete(new AfterDeleteEvent<>(new Document("active", false), ItemEntity.class, "items"));
+        index.onAfterDelete(new AfterDeleteEvent<>(new Document("category", "TOYS"), ItemEntity.class, "items"));
+
+        verify(executor, times(1)).execute(any(Runnable.class));
+    }
+
+    private void setNow(LocalDateTime now) {
+        index.clock = Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    private static ItemEntity item(String id, Category category, LocalDateTime endTime) {
+        ItemEntity item = new ItemEntity(id, "", 10, endTime, "seller@example.com", category);
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,65 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_WhenSparse_ShouldBeExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 200; i++) {
+            sketch.add("bidder" + i + "@example.com");
+            sketch.add("bidder" + i + "@example.com");
+        }
+
+        assertEquals(200, sketch.estimate());
+    }
+
+    @Test
+    void estimate_WhenDense_ShouldStayWithinErrorBound() {
+        HyperLogLog sketch = new HyperLogLog();
+        int distinct = 100_000;
+        for (int i = 0; i < distinct; i++) {
+            sketch.add("bidder" + i + "@example.com");
+        }
+
+        // Three standard errors
+        assertEquals(distinct, sketch.estimate(), distinct * 3 * HyperLogLog.RELATIVE_STANDARD_ERROR);
+    }
+
+    @Test
+    void merge_ShouldEstimateUnionOfOverlappingSketches() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 6_000; i++) {
+            first.add("bidder" + i);
+        }
+        for (int i = 4_000; i < 10_000; i++) {
+            second.add("bidder" + i);
+        }
+
+        HyperLogLog union = new HyperLogLog();
+        union.merge(first);
+        union.merge(second);
+
+        assertEquals(10_000, union.estimate(), 10_000 * 3 * HyperLogLog.RELATIVE_STANDARD_ERROR);
+        assertEquals(6_000, first.estimate(), 6_000 * 3 * HyperLogLog.RELATIVE_STANDARD_ERROR);
+    }
+
+    @Test
+    void merge_OfSparseSketches_ShouldStayExact() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        first.add("a@example.com");
+        first.add("b@example.com");
+        second.add("b@example.com");
+        second.add("c@example.com");
+
+        first.merge(second);
+
+        assertEquals(3, first.estimate());
+        assertEquals(2, second.estimate());
+    }
+}
@@ -0,0 +1,168 @@
+package ro.unibuc.hello.analytics;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemFacetIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 15, 0);
+
+    private final ItemFacetIndex index = new ItemFacetIndex();
+
+    ItemFacetIndexTest() {
+        index.clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    @Test
+    void query_ShouldCombineFacetsAndCountEachFacetWithoutItsOwnFilter() {
+        index.index(item("phone", Category.ELECTRONICS, true, 300, NOW.plusMinutes(30)));
+        index.index(item("laptop", Category.ELECTRONICS, true, 1500, NOW.plusDays(3)));
+        index.index(item("novel", Category.BOOKS, true, 15, NOW.plusHours(5)));
+        index.index(item("radio", Category.ELECTRONICS, false, 40, NOW.minusDays(1)));
+
+        ItemFacetFilter filter = new ItemFacetFilter();
+        filter.setCategories(Set.of(Category.ELECTRONICS));
+        filter.setActive(true);
+        ItemFacetIndex.Result result = index.query(filter, 0, 10);
+
+        assertEquals(List.of("phone", "laptop"), result.getIds());
+        assertEquals(2, result.getTotal());
+        Map<String, Map<String, Long>> facets = result.getFacets();
+        assertEquals(1L, facets.get("category").get("BOOKS"));
+        assertEquals(2L, facets.get("category").get("ELECTRONICS"));
+        assertEquals(1L, facets.get("active").get("false"));
+        assertEquals(1L, facets.get("priceBand").get("100-500"));
+        assertEquals(1L, facets.get("priceBand").get("1000-5000"));
+        assertEquals(1L, facets.get("ending").get("1h"));
+        assertEquals(0L, facets.get("ending").get("24h"));
+        assertEquals(1L, facets.get("ending").get("7d"));
+    }
+
+    @Test
+    void query_ShouldFilterByPriceBandAndEndTime() {
+        index.index(item("a", Category.HOME, true, 5, NOW.plusHours(1)));
+        index.index(item("b", Category.HOME, true, 60, NOW.plusDays(2).plusHours(3)));
+        index.index(item("c", Category.TOYS, true, 75, NOW.plusDays(5)));
+
+        ItemFacetFilter filter = new ItemFacetFilter();
+        filter.setPriceBands(Set.of("50-100"));
+        filter.setEndsAfter(NOW.plusDays(1));
+        filter.setEndsBefore(NOW.plusDays(2).plusHours(4));
+        assertEquals(List.of("b"), index.query(filter, 0, 10).getIds());
+
+        filter.setPriceBands(Set.of("bogus"));
+        assertThrows(IllegalArgumentException.class, () -> index.query(filter, 0, 10));
+    }
+
+    @Test
+    void query_ShouldPageThroughMatches() {
+        for (int i = 0; i < 5; i++) {
+            index.index(item("item" + i, Category.OTHER, true, 20, NOW.plusDays(1)));
+        }
+
+        ItemFacetIndex.Result page = index.query(new ItemFacetFilter(), 2, 2);
+
+        assertEquals(List.of("item2", "item3"), page.getIds());
+        assertEquals(5, page.getTotal());
+    }
+
+    @Test
+    void index_WhenItemChangesOrIsRemoved_ShouldMoveOrDropIt() {
+        ItemEntity item = item("phone", Category.ELECTRONICS, true, 300, NOW.plusDays(1));
+        index.index(item);
+        item.setCategory(Category.OTHER);
+        item.setActive(false);
+        index.index(item);
+
+        Map<String, Map<String, Long>> facets = index.query(new ItemFacetFilter(), 0, 10).getFacets();
+        assertEquals(0L, facets.get("category").get("ELECTRONICS"));
+        assertEquals(1L, facets.get("category").get("OTHER"));
+        assertEquals(0L, facets.get("active").get("true"));
+
+        index.remove("phone");
+        assertEquals(0, index.query(new ItemFacetFilter(), 0, 10).getTotal());
+    }
+
+    @Test
+    void priceBandOf_ShouldPickTheBandContainingThePrice() {
+        assertEquals(0, ItemFacetIndex.priceBandOf(9.99));
+        assertEquals(1, ItemFacetIndex.priceBandOf(10));
+        assertEquals(ItemFacetIndex.PRICE_BAND_BOUNDS.length - 1, ItemFacetIndex.priceBandOf(1_000_000));
+    }
+
+    @Test
+    void rebuild_ShouldApplySavesAndDeletesMadeWhileItemsAreRead() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        ReflectionTestUtils.setField(index, "itemRepository", itemRepository);
+        ItemEntity stale = item("stale", Category.BOOKS, true, 15, NOW.plusDays(1));
+        ItemEntity deleted = item("deleted", Category.BOOKS, true, 15, NOW.plusDays(1));
+        when(itemRepository.findAll()).thenAnswer(invocation -> {
+            // Changed after the rebuild started, so the items read back do not show it yet
+            ItemEntity moved = item("stale", Category.TOYS, true, 15, NOW.plusDays(1));
+            index.index(moved);
+            index.index(item("added", Category.TOYS, true, 15, NOW.plusDays(1)));
+            index.remove("deleted");
+            return List.of(stale, deleted);
+        });
+
+        index.rebuild();
+
+        ItemFacetFilter filter = new ItemFacetFilter();
+        assertEquals(List.of("stale", "added"), index.query(filter, 0, 10).getIds());
+        assertEquals(2L, index.query(filter, 0, 10).getFacets().get("category").get("TOYS"));
+        assertEquals(0L, index.query(filter, 0, 10).getFacets().get("category").get("BOOKS"));
+    }
+
+    @Test
+    void raisePrice_ShouldMoveTheItemToTheBandOfItsCurrentPrice() {
+        ItemEntity item = item("phone", Category.ELECTRONICS, true, 80, NOW.plusDays(1));
+        item.setCurrentPrice(120);
+        index.index(item);
+        index.raisePrice("phone", 600);
+        // A bid applied late never lowers the price again
+        index.raisePrice("phone", 200);
+
+        Map<String, Long> bands = index.query(new ItemFacetFilter(), 0, 10).getFacets().get("priceBand");
+        assertEquals(0L, bands.get("50-100"));
+        assertEquals(0L, bands.get("100-500"));
+        assertEquals(1L, bands.get("500-1000"));
+    }
+
+    @Test
+    void onAfterDelete_ByQuery_ShouldRebuildInTheBackground() {
+        ExecutorService executor = mock(ExecutorService.class);
+        index.rebuildExecutor = executor;
+
+        index.onAfterDelete(new AfterDeleteEvent<>(new Document("category", "BOOKS"), ItemEntity.class, "items"));
+        index.onAfterDelete(new AfterDeleteEvent<>(new Document("category", "TOYS"), ItemEntity.class, "items"));
+
+        verify(executor, times(1)).execute(any(Runnable.class));
+    }
+
+    private static ItemEntity item(String id, Category category, boolean active, double price, LocalDateTime endTime) {
+        ItemEntity item = new ItemEntity(id, "", price, endTime, "seller@example.com", category);
+        item.setId(id);
+        item.setActive(active);
+        return item;
+    }
+}
@@ -0,0 +1,52 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.data.BidEntity;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemPopularityAccumulatorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 14, 10, 0);
+
+    private final ItemPopularityAccumulator accumulator = new ItemPopularityAccumulator();
+
+    @Test
+    void summaryOf_ShouldKeepRunningTotalsInPlacementOrder() {
+        record("item1", 100.0, START);
+        record("item1", 150.0, START.plusHours(1));
+        record("item1", 120.0, START.plusDays(1));
+        record("item1", 180.0, START.plusDays(1).plusHours(1));
+        record("item2", 500.0, START);
+
+        ItemBidSummary summary = accumulator.summaryOf("item1");
+
+        assertEquals(4, summary.getTotalBids());
+        assertEquals(START, summary.getFirstBidAt());
+        assertEquals(START.plusDays(1).plusHours(1), summary.getLastBidAt());
+        assertEquals(180.0, summary.getMaxAmount());
+        assertEquals(2.0, summary.getBidFrequency());
+        // 100 -> 150 is +50%, 120 -> 180 is +50%; the drop to 120 is not an increase
+        assertEquals(50.0, summary.getBidIncreaseRate(), 1e-9);
+    }
+
+    @Test
+    void summaryOf_ShouldReturnSnapshotAndEmptySummaryForUnknownItems() {
+        record("item1", 100.0, START);
+        ItemBidSummary snapshot = accumulator.summaryOf("item1");
+
+        record("item1", 200.0, START.plusHours(1));
+
+        assertEquals(1, snapshot.getTotalBids());
+        assertEquals(0, accumulator.summaryOf("unknown").getTotalBids());
+        assertEquals(0, accumulator.summaryOf("unknown").getBidFrequency());
+    }
+
+    private void record(String itemId, double amount, LocalDateTime createdAt) {
+        BidEntity bid = new BidEntity(itemId, "Bidder", amount, "bidder@example.com");
+        bid.setCreatedAt(createdAt);
+        accumulator.record(bid, null);
+    }
+}
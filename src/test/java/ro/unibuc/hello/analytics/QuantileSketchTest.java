@@ -0,0 +1,52 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void quantile_ShouldBeWithinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int amount = 1; amount <= 10_000; amount++) {
+            sketch.add(amount);
+        }
+
+        assertEquals(10_000, sketch.count());
+        assertEquals(5_000, sketch.quantile(0.5), 5_000 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(9_000, sketch.quantile(0.9), 9_000 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(9_900, sketch.quantile(0.99), 9_900 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void quantile_ShouldStayWithinObservedRange() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(42.5);
+
+        assertEquals(42.5, sketch.quantile(0));
+        assertEquals(42.5, sketch.quantile(1));
+    }
+
+    @Test
+    void quantile_WhenEmpty_ShouldBeZero() {
+        assertEquals(0, new QuantileSketch().quantile(0.5));
+    }
+
+    @Test
+    void merge_ShouldCombineDistributions() {
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int amount = 1; amount <= 500; amount++) {
+            low.add(amount);
+            high.add(amount + 500);
+        }
+
+        low.merge(high);
+
+        assertEquals(1_000, low.count());
+        assertEquals(500, low.quantile(0.5), 500 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(990, low.quantile(0.99), 990 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(500, high.count());
+    }
+}
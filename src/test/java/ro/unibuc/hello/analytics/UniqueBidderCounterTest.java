@@ -0,0 +1,42 @@
+package ro.unibuc.hello.analytics;
+
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniqueBidderCounterTest {
+
+    private final UniqueBidderCounter counter = new UniqueBidderCounter();
+
+    @Test
+    void counts_ShouldIgnoreRepeatedBidsFromSameBidder() {
+        ItemEntity book = new ItemEntity("book", "", 10.0, LocalDateTime.now(), "seller@example.com", Category.BOOKS);
+        ItemEntity toy = new ItemEntity("toy", "", 10.0, LocalDateTime.now(), "seller@example.com", Category.TOYS);
+        counter.record(new BidEntity("item1", "A", 10.0, "a@example.com"), book);
+        counter.record(new BidEntity("item1", "A", 20.0, "a@example.com"), book);
+        counter.record(new BidEntity("item1", "B", 30.0, "b@example.com"), book);
+        counter.record(new BidEntity("item2", "A", 10.0, "a@example.com"), book);
+        counter.record(new BidEntity("item3", "C", 10.0, "c@example.com"), toy);
+
+        assertEquals(2, counter.countForItem("item1"));
+        assertEquals(0, counter.countForItem("unknown"));
+        assertEquals(2, counter.countForCategory(Category.BOOKS));
+        assertEquals(0, counter.countForCategory(Category.HOME));
+        assertEquals(3, counter.countAll());
+    }
+
+    @Test
+    void replaceWith_ShouldSwitchToRebuiltSketches() {
+        counter.record(new BidEntity("item1", "A", 10.0, "a@example.com"), null);
+
+        counter.replaceWith(counter.emptyCopy());
+
+        assertEquals(0, counter.countForItem("item1"));
+        assertEquals(0, counter.countAll());
+    }
+}
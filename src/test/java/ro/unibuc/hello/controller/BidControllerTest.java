@@ -9,22 +9,29 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import ro.unibuc.hello.data.BidOrder;
 import ro.unibuc.hello.dto.Bid;
+import ro.unibuc.hello.dto.BidPage;
 import ro.unibuc.hello.exception.BidException;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.service.BidService;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -169,6 +176,31 @@ class BidControllerTest {
                 .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    void getBidsByItem_WithPaging_ShouldReturnPageAndCursor() throws Exception {
+        // Arrange
+        when(bidService.getBidHistory("item1", BidOrder.TIME_DESC, null, 2))
+                .thenReturn(new BidPage(Arrays.asList(testBid, highBid), "next"));
+
+        // Act & Assert
+        mockMvc.perform(get("/bids/item/item1").param("order", "TIME_DESC").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bids", hasSize(2)))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        verify(bidService, never()).getBidsByItem(anyString());
+    }
+
+    @Test
+    void getBidsByItem_WithMalformedCursor_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(bidService.getBidHistory("item1", BidOrder.AMOUNT_DESC, "bogus", 20))
+                .thenThrow(new IllegalArgumentException("Malformed cursor"));
+
+        // Act & Assert
+        mockMvc.perform(get("/bids/item/item1").param("cursor", "bogus"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getBidsByBidder_ShouldReturnBidsFromBidder() throws Exception {
         // Arrange
@@ -335,6 +367,23 @@ class BidControllerTest {
         verify(bidService, times(1)).getBidsByEmail("john@example.com");
     }
 
+    @Test
+    void getBidsByItem_WithFields_ShouldReturnSparseBids() throws Exception {
+        // Arrange
+        when(bidService.getBidsByItem("item1", List.of("amount", "createdAt")))
+                .thenReturn(List.of(Map.of("amount", 150.0)));
+
+        // Act & Assert
+        mockMvc.perform(get("/bids/item/item1").param("fields", "amount,createdAt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].amount").value(150.0))
+                .andExpect(jsonPath("$[0].bidderName").doesNotExist());
+
+        mockMvc.perform(get("/bids/item/item1").param("fields", "amount").param("limit", "5"))
+                .andExpect(status().isBadRequest());
+        verify(bidService, never()).getBidHistory(anyString(), any(), any(), anyInt());
+    }
+
     @Test
     void getBidsByEmail_ShouldReturnEmptyList_WhenNoEmailBids() throws Exception {
         // Arrange
@@ -371,4 +420,31 @@ class BidControllerTest {
 
         fail("Expected exception was not thrown");
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamBidsByItem_ShouldStreamNdjson_WhenRequested() throws Exception {
+        // Arrange
+        when(bidService.streamBidsByItem("item1")).thenReturn(Flux.just(testBid, highBid));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/bids/item/item1").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String body = result.getResponse().getContentAsString();
+        assertEquals(2, body.lines().count());
+        assertTrue(body.lines().findFirst().orElseThrow().contains("\"id\":\"bid1\""));
+        verify(bidService, never()).getBidsByItem(anyString());
+    }
+
+    @Test
+    void streamBidsByEmail_ShouldReturnBadRequest_WhenEmailIsInvalid() throws Exception {
+        // Arrange
+        when(bidService.streamBidsByEmail("invalid-email")).thenThrow(new IllegalArgumentException("Invalid email format"));
+
+        // Act & Assert
+        mockMvc.perform(get("/bids/bidder-email/invalid-email").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -3,24 +3,42 @@ package ro.unibuc.hello.controller;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 
+import ro.unibuc.hello.analytics.ItemFacetFilter;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemSort;
 import ro.unibuc.hello.dto.Item;
+import ro.unibuc.hello.dto.ItemBatch;
+import ro.unibuc.hello.dto.ItemFeed;
+import ro.unibuc.hello.dto.ItemPage;
+import ro.unibuc.hello.dto.PriceUpdate;
 import ro.unibuc.hello.exception.EntityNotFoundException;
 import ro.unibuc.hello.service.ItemService;
+import ro.unibuc.hello.service.PriceStreamService;
+import reactor.core.publisher.Flux;
 
 @ExtendWith(MockitoExtension.class)
 class ItemControllerTest {
@@ -28,6 +46,9 @@ class ItemControllerTest {
     @Mock
     private ItemService itemService;
 
+    @Mock
+    private PriceStreamService priceStreamService;
+
     @InjectMocks
     private ItemController itemController;
 
@@ -41,23 +62,138 @@ class ItemControllerTest {
     @Test
     void getAllItems_ShouldReturnList() {
         when(itemService.getAllItems()).thenReturn(Collections.singletonList(sampleItem));
-        ResponseEntity<List<Item>> response = itemController.getAllItems(false);
+        ResponseEntity<List<Item>> response = itemController.getAllItems(false, null, null, null, null, null, null);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, response.getBody().size());
+    }
+
+    @Test
+    void getItemsByIds_ShouldReturnBatch() {
+        when(itemService.getItemsByIds(List.of("1", "nope"))).thenReturn(new ItemBatch(List.of(sampleItem), List.of("nope")));
+        ResponseEntity<ItemBatch> response = itemController.getItemsByIdsBatch(List.of("1", "nope"));
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(List.of("nope"), response.getBody().getMissingIds());
+    }
+
+    @Test
+    void getItemsByIds_ShouldReturnBadRequestForEmptyList() {
+        when(itemService.getItemsByIds(List.of())).thenThrow(new IllegalArgumentException("Between 1 and 500 ids must be given"));
+        ResponseEntity<ItemBatch> response = itemController.getItemsByIds(List.of());
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void streamPrice_ShouldSendPriceEvents() {
+        PriceUpdate update = new PriceUpdate("1", 150.0, "Ann", 1, LocalDateTime.now());
+        when(priceStreamService.watch(List.of("1"))).thenReturn(Flux.just(update));
+        ResponseEntity<Flux<ServerSentEvent<PriceUpdate>>> response = itemController.streamPrice("1");
+        assertEquals(200, response.getStatusCode().value());
+        ServerSentEvent<PriceUpdate> event = response.getBody().blockFirst();
+        assertEquals("price", event.event());
+        assertEquals(150.0, event.data().getCurrentPrice());
+    }
+
+    @Test
+    void streamPrice_ShouldReturnNotFoundForUnknownItem() {
+        when(priceStreamService.watch(List.of("nope"))).thenThrow(new EntityNotFoundException("nope"));
+        ResponseEntity<Flux<ServerSentEvent<PriceUpdate>>> response = itemController.streamPrice("nope");
+        assertEquals(404, response.getStatusCode().value());
+    }
+
+    @Test
+    void browseItems_ShouldPassFacetsToService() {
+        ItemPage page = new ItemPage(List.of(sampleItem), 1, 0, 20, Map.of());
+        when(itemService.browseItems(argThat(filter -> filter.getCategories().equals(Set.of(Category.BOOKS))
+                && Boolean.TRUE.equals(filter.getActive())), eq(0), eq(20))).thenReturn(page);
+
+        ResponseEntity<ItemPage> response = itemController.browseItems(Set.of(Category.BOOKS), true, null, null, null, 0, 20);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, response.getBody().getTotal());
+    }
+
+    @Test
+    void browseItems_ShouldReturnBadRequestForUnknownPriceBand() {
+        when(itemService.browseItems(any(ItemFacetFilter.class), anyInt(), anyInt()))
+                .thenThrow(new IllegalArgumentException("Unknown price band: bogus"));
+        ResponseEntity<ItemPage> response = itemController.browseItems(null, null, Set.of("bogus"), null, null, 0, 20);
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void getEndingSoon_ShouldReturnFeed() {
+        when(itemService.getEndingSoon(Category.BOOKS, "cursor", 10)).thenReturn(new ItemFeed(List.of(sampleItem), "next"));
+        ResponseEntity<ItemFeed> response = itemController.getEndingSoon(Category.BOOKS, "cursor", 10);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("next", response.getBody().getNextCursor());
+    }
+
+    @Test
+    void getEndingSoon_ShouldReturnBadRequestForMalformedCursor() {
+        when(itemService.getEndingSoon(null, "bogus", 20)).thenThrow(new IllegalArgumentException("Malformed cursor"));
+        ResponseEntity<ItemFeed> response = itemController.getEndingSoon(null, "bogus", 20);
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void getAllItems_WithFilters_ShouldSearchOnePage() {
+        when(itemService.searchItems(Category.ELECTRONICS, 100.0, 500.0, true, ItemSort.PRICE_DESC, 0, 20))
+                .thenReturn(List.of(sampleItem));
+        ResponseEntity<List<Item>> response = itemController.getAllItems(true, Category.ELECTRONICS, 100.0, 500.0, null, null, null);
         assertEquals(200, response.getStatusCode().value());
         assertEquals(1, response.getBody().size());
     }
 
+    @Test
+    void getAllItemFields_ShouldReturnSparseItems() {
+        when(itemService.getItems(false, List.of("id", "name"))).thenReturn(List.of(Map.of("id", "1", "name", "Test Item")));
+        ResponseEntity<List<Map<String, Object>>> response =
+                itemController.getAllItemFields(List.of("id", "name"), false, null, null, null, null, null, null);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("Test Item", response.getBody().get(0).get("name"));
+    }
+
+    @Test
+    void getAllItemFields_WithUnknownField_ShouldReturnBadRequest() {
+        when(itemService.searchItems(null, null, null, false, ItemSort.PRICE_DESC, 1, 20, List.of("secret")))
+                .thenThrow(new IllegalArgumentException("Unknown field secret"));
+        ResponseEntity<List<Map<String, Object>>> response =
+                itemController.getAllItemFields(List.of("secret"), false, null, null, null, null, 1, null);
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    void getAllItems_WithInvalidPriceRange_ShouldReturnBadRequest() {
+        when(itemService.searchItems(null, 500.0, 100.0, false, ItemSort.PRICE_ASC, 0, 20))
+                .thenThrow(new IllegalArgumentException("minPrice must not be greater than maxPrice"));
+        ResponseEntity<List<Item>> response = itemController.getAllItems(false, null, 500.0, 100.0, ItemSort.PRICE_ASC, null, null);
+        assertEquals(400, response.getStatusCode().value());
+    }
+
     @Test
     void getItemById_ShouldReturnItem() {
+        when(itemService.getItemETag("1")).thenReturn("W/\"boot-0-1\"");
         when(itemService.getItemById("1")).thenReturn(sampleItem);
-        ResponseEntity<Item> response = itemController.getItemById("1");
+        ResponseEntity<Item> response = itemController.getItemById("1", null);
         assertEquals(200, response.getStatusCode().value());
         assertNotNull(response.getBody());
+        assertEquals("W/\"boot-0-1\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void getItemById_WithCurrentETag_ShouldReturnNotModifiedWithoutLoading() {
+        when(itemService.getItemETag("1")).thenReturn("W/\"boot-0-1\"");
+        ResponseEntity<Item> response = itemController.getItemById("1", "W/\"boot-0-1\"");
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+        verify(itemService, never()).getItemById(any());
     }
 
     @Test
     void getItemById_ShouldReturnNotFound() {
+        when(itemService.getItemETag("99")).thenReturn("W/\"boot-0-0\"");
         when(itemService.getItemById("99")).thenThrow(new EntityNotFoundException("99"));
-        ResponseEntity<Item> response = itemController.getItemById("99");
+        ResponseEntity<Item> response = itemController.getItemById("99", null);
         assertEquals(404, response.getStatusCode().value());
     }
 
@@ -92,7 +228,7 @@ class ItemControllerTest {
     @Test
     void getAllItems_ActiveOnly_ShouldReturnList() {
         when(itemService.getActiveItems()).thenReturn(Collections.singletonList(sampleItem));
-        ResponseEntity<List<Item>> response = itemController.getAllItems(true);
+        ResponseEntity<List<Item>> response = itemController.getAllItems(true, null, null, null, null, null, null);
         assertEquals(200, response.getStatusCode().value());
         assertEquals(1, response.getBody().size());
     }
@@ -134,4 +270,11 @@ class ItemControllerTest {
         assertEquals(400, response.getStatusCode().value());
     }
 
+    @Test
+    void streamAllItems_ShouldStreamActiveItems() {
+        when(itemService.streamItems(true)).thenReturn(Flux.just(sampleItem));
+        List<Item> items = itemController.streamAllItems(true).collectList().block();
+        assertEquals(1, items.size());
+        assertEquals("Test Item", items.get(0).getName());
+    }
 }
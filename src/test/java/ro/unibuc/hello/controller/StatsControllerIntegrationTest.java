@@ -81,6 +81,9 @@ public class StatsControllerIntegrationTest {
         final String PORT = String.valueOf(mongoDBContainer.getMappedPort(27017));
 
         registry.add("mongodb.connection.url", () -> MONGO_URL + PORT);
+        // Every test reseeds the database, so stats must not be served from a previous test
+        registry.add("stats.cache.ttl", () -> "0s");
+        registry.add("stats.cache.max-stale", () -> "0s");
     }
 
     @BeforeEach
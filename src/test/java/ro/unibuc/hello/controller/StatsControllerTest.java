@@ -8,11 +8,17 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import ro.unibuc.hello.dto.AuctionStats;
+import ro.unibuc.hello.dto.BidAmountDistribution;
 import ro.unibuc.hello.dto.ItemPopularity;
+import ro.unibuc.hello.dto.StatsChanges;
 import ro.unibuc.hello.dto.UserStats;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.exception.QueryTimeoutException;
 import ro.unibuc.hello.service.StatsService;
+import ro.unibuc.hello.util.TimeWindow;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,15 +41,55 @@ class StatsControllerTest {
     void getOverallStats_ShouldReturnStats() {
         // Arrange
         AuctionStats stats = new AuctionStats();
-        when(statsService.getOverallStats()).thenReturn(stats);
+        when(statsService.getOverallStats(TimeWindow.ALL)).thenReturn(stats);
 
         // Act
-        ResponseEntity<AuctionStats> response = statsController.getOverallStats();
+        ResponseEntity<AuctionStats> response = statsController.getOverallStats(null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        verify(statsService).getOverallStats();
+        verify(statsService).getOverallStats(TimeWindow.ALL);
+    }
+
+    @Test
+    void getOverallStats_ShouldReturnServiceUnavailable_WhenQueriesTimeOut() {
+        // Arrange
+        when(statsService.getOverallStats(TimeWindow.ALL)).thenThrow(new QueryTimeoutException(Duration.ofSeconds(10)));
+
+        // Act
+        ResponseEntity<AuctionStats> response = statsController.getOverallStats(null, null);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void getOverallStats_ShouldPassTimeWindow() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 3, 14, 0, 0);
+        LocalDateTime to = from.plusDays(1);
+        when(statsService.getOverallStats(TimeWindow.of(from, to))).thenReturn(new AuctionStats());
+
+        // Act
+        ResponseEntity<AuctionStats> response = statsController.getOverallStats(from, to);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(statsService).getOverallStats(TimeWindow.of(from, to));
+    }
+
+    @Test
+    void getOverallStats_ShouldReturnBadRequest_WhenWindowIsEmpty() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 3, 14, 0, 0);
+
+        // Act
+        ResponseEntity<AuctionStats> response = statsController.getOverallStats(from, from.minusHours(1));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(statsService);
     }
 
     @Test
@@ -87,7 +133,7 @@ class StatsControllerTest {
         when(statsService.getItemPopularity(itemId)).thenReturn(popularity);
 
         // Act
-        ResponseEntity<ItemPopularity> response = statsController.getItemPopularity(itemId);
+        ResponseEntity<ItemPopularity> response = statsController.getItemPopularity(itemId, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -96,6 +142,63 @@ class StatsControllerTest {
         verify(statsService).getItemPopularity(itemId);
     }
 
+    @Test
+    void getItemPopularity_WithCurrentETag_ShouldReturnNotModified() {
+        // Arrange
+        when(statsService.getItemPopularityETag("item1")).thenReturn("W/\"boot-0-3-42\"");
+
+        // Act
+        ResponseEntity<ItemPopularity> response = statsController.getItemPopularity("item1", "\"boot-0-3-42\"");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(statsService, never()).getItemPopularity("item1");
+    }
+
+    @Test
+    void getOverallStatsChanges_ShouldReturnChanges() {
+        // Arrange
+        StatsChanges changes = new StatsChanges(42, false, Map.of("totalBids", 3), Map.of());
+        when(statsService.getOverallStatsChanges(41)).thenReturn(changes);
+
+        // Act
+        ResponseEntity<StatsChanges> response = statsController.getOverallStatsChanges(41);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42, response.getBody().getVersion());
+    }
+
+    @Test
+    void getItemsPopularity_ShouldReturnAllRequestedItems() {
+        // Arrange
+        ItemPopularity first = new ItemPopularity();
+        first.setItemId("item1");
+        ItemPopularity second = new ItemPopularity();
+        second.setItemId("item2");
+        when(statsService.getItemPopularity(List.of("item1", "item2"))).thenReturn(List.of(first, second));
+
+        // Act
+        ResponseEntity<List<ItemPopularity>> response = statsController.getItemsPopularity(List.of("item1", "item2"));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().size());
+    }
+
+    @Test
+    void getItemsPopularity_ShouldReturnBadRequest_WhenIdsAreRejected() {
+        // Arrange
+        when(statsService.getItemPopularity(List.of())).thenThrow(new IllegalArgumentException("Between 1 and 500 ids must be given"));
+
+        // Act
+        ResponseEntity<List<ItemPopularity>> response = statsController.getItemsPopularity(List.of());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     void getItemPopularity_ShouldReturnNotFound_WhenItemNotExists() {
         // Arrange
@@ -103,7 +206,7 @@ class StatsControllerTest {
         when(statsService.getItemPopularity(itemId)).thenThrow(new EntityNotFoundException(itemId));
 
         // Act
-        ResponseEntity<ItemPopularity> response = statsController.getItemPopularity(itemId);
+        ResponseEntity<ItemPopularity> response = statsController.getItemPopularity(itemId, null);
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -115,29 +218,43 @@ class StatsControllerTest {
         // Arrange
         String category = "ELECTRONICS";
         AuctionStats stats = new AuctionStats();
-        when(statsService.getCategoryStats(category)).thenReturn(stats);
+        when(statsService.getCategoryStats(category, TimeWindow.ALL)).thenReturn(stats);
 
         // Act
-        ResponseEntity<AuctionStats> response = statsController.getCategoryStats(category);
+        ResponseEntity<AuctionStats> response = statsController.getCategoryStats(category, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        verify(statsService).getCategoryStats(category);
+        verify(statsService).getCategoryStats(category, TimeWindow.ALL);
     }
 
     @Test
     void getCategoryStats_ShouldReturnBadRequest_WhenCategoryIsInvalid() {
         // Arrange
         String category = "INVALID";
-        when(statsService.getCategoryStats(category)).thenThrow(new IllegalArgumentException("Invalid category"));
+        when(statsService.getCategoryStats(category, TimeWindow.ALL)).thenThrow(new IllegalArgumentException("Invalid category"));
 
         // Act
-        ResponseEntity<AuctionStats> response = statsController.getCategoryStats(category);
+        ResponseEntity<AuctionStats> response = statsController.getCategoryStats(category, null, null);
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        verify(statsService).getCategoryStats(category);
+        verify(statsService).getCategoryStats(category, TimeWindow.ALL);
+    }
+
+    @Test
+    void getAllCategoryStats_ShouldReturnStatsKeyedByCategory() {
+        // Arrange
+        Map<String, AuctionStats> stats = Map.of("ELECTRONICS", new AuctionStats());
+        when(statsService.getAllCategoryStats(TimeWindow.ALL)).thenReturn(stats);
+
+        // Act
+        ResponseEntity<Map<String, AuctionStats>> response = statsController.getAllCategoryStats(null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
     }
 
     @Test
@@ -199,23 +316,48 @@ class StatsControllerTest {
         verify(statsService).getMostActiveUsers(limit);
     }
 
+    @Test
+    void getMostActiveUsers_ShouldReturnServiceUnavailable_WhenQueriesTimeOut() {
+        // Arrange
+        when(statsService.getMostActiveUsers(5)).thenThrow(new QueryTimeoutException(Duration.ofSeconds(10)));
+
+        // Act
+        ResponseEntity<List<UserStats>> response = statsController.getMostActiveUsers(5);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
     @Test
     void getBiddingHourDistribution_ShouldReturnDistribution() {
         // Arrange
         Map<String, Integer> distribution = new HashMap<>();
         distribution.put("9", 10);
         distribution.put("14", 15);
-        when(statsService.getBiddingHourDistribution()).thenReturn(distribution);
+        when(statsService.getBiddingHourDistribution(TimeWindow.ALL)).thenReturn(distribution);
 
         // Act
-        ResponseEntity<Map<String, Integer>> response = statsController.getBiddingHourDistribution();
+        ResponseEntity<Map<String, Integer>> response = statsController.getBiddingHourDistribution(null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
         assertEquals(10, response.getBody().get("9"));
-        verify(statsService).getBiddingHourDistribution();
+        verify(statsService).getBiddingHourDistribution(TimeWindow.ALL);
+    }
+
+    @Test
+    void getBiddingHourDistribution_ShouldReturnBadRequest_WhenWindowIsEmpty() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 3, 14, 0, 0);
+
+        // Act
+        ResponseEntity<Map<String, Integer>> response = statsController.getBiddingHourDistribution(from, from);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(statsService);
     }
 
     @Test
@@ -238,4 +380,42 @@ class StatsControllerTest {
         assertTrue(response.getBody().get(0).isHot());
         verify(statsService).getHotItems();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCategoryBidAmountDistribution_ShouldReturnQuantiles() {
+        // Arrange
+        BidAmountDistribution distribution = new BidAmountDistribution(10, 100.0, 180.0, 250.0);
+        when(statsService.getCategoryBidAmountDistribution("BOOKS")).thenReturn(distribution);
+
+        // Act
+        ResponseEntity<BidAmountDistribution> response = statsController.getCategoryBidAmountDistribution("BOOKS");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(100.0, response.getBody().getMedianBidAmount());
+    }
+
+    @Test
+    void getCategoryBidAmountDistribution_ShouldReturnBadRequest_WhenCategoryInvalid() {
+        // Arrange
+        when(statsService.getCategoryBidAmountDistribution("INVALID")).thenThrow(new IllegalArgumentException("Invalid category: INVALID"));
+
+        // Act
+        ResponseEntity<BidAmountDistribution> response = statsController.getCategoryBidAmountDistribution("INVALID");
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void getItemBidAmountDistribution_ShouldReturnNotFound_WhenItemMissing() {
+        // Arrange
+        when(statsService.getItemBidAmountDistribution("missing")).thenThrow(new EntityNotFoundException("missing"));
+
+        // Act
+        ResponseEntity<BidAmountDistribution> response = statsController.getItemBidAmountDistribution("missing");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+}
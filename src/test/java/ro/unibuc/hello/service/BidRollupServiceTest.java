@@ -0,0 +1,340 @@
+package ro.unibuc.hello.service;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.BidRepository;
+import ro.unibuc.hello.data.BidRollupEntity;
+import ro.unibuc.hello.data.BidRollupRepository;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.data.RollupGranularity;
+import ro.unibuc.hello.analytics.BidActivity;
+import ro.unibuc.hello.event.BidDeletedEvent;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.event.ItemCategoryChangedEvent;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.TimeWindow;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BidRollupServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BidRollupRepository bidRollupRepository;
+
+    @Mock
+    private BidRepository bidRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @InjectMocks
+    private BidRollupService bidRollupService;
+
+    @Test
+    void onBidPlaced_ShouldUpsertMinuteBucketOfItemCategory() {
+        // Arrange
+        ItemEntity item = new ItemEntity("Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
+        item.setId("item1");
+        BidEntity bid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        bid.setCreatedAt(LocalDateTime.of(2025, 3, 14, 15, 9, 26));
+
+        // Act
+        bidRollupService.onBidPlaced(new BidPlacedEvent(bid, item));
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(query.capture(), any(Update.class), eq(BidRollupEntity.class));
+        assertEquals("MINUTE:2025-03-14T15:09:BOOKS", query.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    void compact_ShouldFoldExpiredMinuteBucketsIntoHourBuckets() {
+        // Arrange
+        LocalDateTime hour = LocalDateTime.now().minusDays(1).withMinute(0).withSecond(0).withNano(0);
+        List<BidRollupEntity> minutes = List.of(
+                rollup(RollupGranularity.MINUTE, hour.plusMinutes(5), 2),
+                rollup(RollupGranularity.MINUTE, hour.plusMinutes(40), 3));
+        when(bidRollupRepository.findByGranularityAndBucketStartBefore(eq(RollupGranularity.MINUTE), any())).thenReturn(minutes);
+        when(bidRollupRepository.findByGranularityAndBucketStartBefore(eq(RollupGranularity.HOUR), any())).thenReturn(Collections.emptyList());
+
+        // Act
+        bidRollupService.compact();
+
+        // Assert
+        String hourId = BidRollupEntity.idOf(RollupGranularity.HOUR, hour, Category.BOOKS);
+        ArgumentCaptor<Query> target = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(target.capture(), any(Update.class), eq(BidRollupEntity.class));
+        assertEquals(hourId, target.getValue().getQueryObject().get("_id"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(query.capture(), update.capture(), eq(BidRollupEntity.class));
+        for (int i = 0; i < minutes.size(); i++) {
+            Document filter = query.getAllValues().get(i).getQueryObject();
+            assertEquals(hourId, filter.get("_id"));
+            // A bucket already folded in by an interrupted run is not counted again
+            assertEquals(new Document("$ne", minutes.get(i).getId()), filter.get("compactedFrom"));
+            Document updateObject = update.getAllValues().get(i).getUpdateObject();
+            assertEquals(minutes.get(i).getBidCount(), ((Document) updateObject.get("$inc")).get("bidCount"));
+            assertEquals(minutes.get(i).getId(), ((Document) updateObject.get("$addToSet")).get("compactedFrom"));
+        }
+        verify(bidRollupRepository).deleteAll(minutes);
+    }
+
+    @Test
+    void rebuild_ShouldBucketBidsByAge() {
+        // Arrange
+        ItemEntity item = new ItemEntity("Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
+        item.setId("item1");
+        BidEntity recentBid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        BidEntity oldBid = new BidEntity("item1", "Bidder", 120.0, "bidder@example.com");
+        oldBid.setCreatedAt(LocalDateTime.now().minusDays(10));
+
+        when(itemRepository.findAll()).thenReturn(List.of(item));
+        when(bidRepository.streamAllBy()).thenReturn(Stream.of(oldBid, recentBid));
+
+        // Act
+        bidRollupService.rebuild();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<BidRollupEntity>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(bidRollupRepository).replaceAll(saved.capture());
+        verify(bidRollupRepository, never()).deleteAll();
+
+        List<BidRollupEntity> rollups = new ArrayList<>();
+        saved.getValue().forEach(rollups::add);
+        assertEquals(2, rollups.size());
+        assertEquals(RollupGranularity.DAY, rollups.get(0).getGranularity());
+        assertEquals(Map.of(oldBid.getCreatedAt().getHour(), 1L), rollups.get(0).hourCounts());
+        assertEquals(RollupGranularity.MINUTE, rollups.get(1).getGranularity());
+        assertEquals(Category.BOOKS, rollups.get(1).getCategory());
+    }
+
+    @Test
+    void rebuild_ShouldUpsertBidsPlacedMeanwhileThatItDidNotRead() {
+        // Arrange
+        ItemEntity item = new ItemEntity("Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
+        item.setId("item1");
+        BidEntity streamedBid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        streamedBid.setId("bid1");
+        BidEntity missedBid = new BidEntity("item1", "Bidder", 160.0, "bidder@example.com");
+        missedBid.setId("bid2");
+
+        when(itemRepository.findAll()).thenReturn(List.of(item));
+        // Both bids are placed while the rebuild streams; only the first is saved in time to be read
+        when(bidRepository.streamAllBy()).thenReturn(Stream.of(streamedBid).peek(bid -> {
+            bidRollupService.onBidPlaced(new BidPlacedEvent(streamedBid, item));
+            bidRollupService.onBidPlaced(new BidPlacedEvent(missedBid, item));
+            verifyNoInteractions(mongoTemplate);
+        }));
+
+        // Act
+        bidRollupService.rebuild();
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(BidRollupEntity.class));
+        assertEquals(160.0, ((Document) update.getValue().getUpdateObject().get("$inc")).get("amountSum"));
+
+        // Once done, bids are upserted right away again
+        bidRollupService.onBidPlaced(new BidPlacedEvent(missedBid, item));
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), any(Update.class), eq(BidRollupEntity.class));
+    }
+
+    @Test
+    void onBidDeleted_ShouldDecrementTheBucketThatHoldsTheBid() {
+        // Arrange
+        ItemEntity item = new ItemEntity("Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
+        item.setId("item1");
+        BidEntity bid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        bid.setCreatedAt(LocalDateTime.of(2025, 3, 14, 15, 9, 26));
+        // Compacted into its hour bucket already, so its minute bucket is gone
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(BidRollupEntity.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        // Act
+        bidRollupService.onBidDeleted(new BidDeletedEvent(bid, item));
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(query.capture(), update.capture(), eq(BidRollupEntity.class));
+        assertEquals("MINUTE:2025-03-14T15:09:BOOKS", query.getAllValues().get(0).getQueryObject().get("_id"));
+        Document filter = query.getAllValues().get(1).getQueryObject();
+        assertEquals("HOUR:2025-03-14T15:00:BOOKS", filter.get("_id"));
+        assertEquals(new Document("$gt", 0), filter.get("bidCount"));
+        Document inc = (Document) update.getAllValues().get(1).getUpdateObject().get("$inc");
+        assertEquals(-1, inc.get("bidCount"));
+        assertEquals(-150.0, inc.get("amountSum"));
+        verify(bidRepository, never()).streamAllBy();
+    }
+
+    @Test
+    void rebuild_ShouldRecountBucketsOfBidsDeletedMeanwhile() {
+        // Arrange
+        ItemEntity item = new ItemEntity("Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
+        item.setId("item1");
+        BidEntity kept = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        kept.setId("bid1");
+        BidEntity deleted = new BidEntity("item1", "Bidder", 160.0, "bidder@example.com");
+        deleted.setId("bid2");
+        deleted.setCreatedAt(kept.getCreatedAt());
+        LocalDateTime minute = RollupGranularity.MINUTE.bucketStart(kept.getCreatedAt());
+
+        when(itemRepository.findAll()).thenReturn(List.of(item));
+        // The cursor reads the bid just before it is deleted
+        when(bidRepository.streamAllBy()).thenReturn(Stream.of(kept, deleted)
+                .peek(bid -> {
+                    if (bid == deleted) {
+                        bidRollupService.onBidDeleted(new BidDeletedEvent(deleted, item));
+                    }
+                }));
+        when(bidRollupRepository.existsById(BidRollupEntity.idOf(RollupGranularity.MINUTE, minute, Category.BOOKS))).thenReturn(true);
+        when(bidRepository.findByCreatedAtInRange(minute, minute.plusMinutes(1))).thenReturn(List.of(kept));
+        when(itemLoader.getAll(Set.of("item1"))).thenReturn(Map.of("item1", item));
+
+        // Act
+        bidRollupService.rebuild();
+
+        // Assert
+        ArgumentCaptor<BidRollupEntity> recounted = ArgumentCaptor.forClass(BidRollupEntity.class);
+        verify(bidRollupRepository).save(recounted.capture());
+        assertEquals(1, recounted.getValue().getBidCount());
+        assertEquals(150.0, recounted.getValue().getAmountSum());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void onItemCategoryChanged_ShouldRebuildInTheBackground() {
+        // Arrange
+        ExecutorService executor = mock(ExecutorService.class);
+        bidRollupService.rebuildExecutor = executor;
+
+        // Act
+        bidRollupService.onItemCategoryChanged(new ItemCategoryChangedEvent("item1", Category.BOOKS, Category.TOYS));
+        bidRollupService.onItemCategoryChanged(new ItemCategoryChangedEvent("item1", Category.TOYS, Category.HOME));
+
+        // Assert
+        verify(executor, times(1)).execute(any(Runnable.class));
+        verifyNoInteractions(bidRepository, bidRollupRepository);
+    }
+
+    @Test
+    void getActivity_WithTimeWindow_ShouldAddWholeBucketsAndReadBidsAtEdges() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 3, 13, 12, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 14, 10, 30);
+        LocalDateTime day = LocalDateTime.of(2025, 3, 13, 0, 0);
+        LocalDateTime inside = LocalDateTime.of(2025, 3, 14, 9, 0);
+        LocalDateTime cut = LocalDateTime.of(2025, 3, 14, 10, 0);
+        when(bidRollupRepository.findByBucketStartInRange(from.minusDays(1), to)).thenReturn(List.of(
+                rollup(RollupGranularity.DAY, day, 5),
+                rollup(RollupGranularity.HOUR, inside, 3),
+                rollup(RollupGranularity.HOUR, cut, 4)));
+
+        BidEntity eveningBid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        eveningBid.setCreatedAt(LocalDateTime.of(2025, 3, 13, 20, 15));
+        BidEntity lateBid = new BidEntity("item1", "Bidder", 160.0, "bidder@example.com");
+        lateBid.setCreatedAt(LocalDateTime.of(2025, 3, 14, 10, 10));
+        when(bidRepository.findByCreatedAtInRange(from, day.plusDays(1))).thenReturn(List.of(eveningBid));
+        when(bidRepository.findByCreatedAtInRange(cut, to)).thenReturn(List.of(lateBid));
+
+        // Act
+        BidActivity activity = bidRollupService.getActivity(TimeWindow.of(from, to));
+
+        // Assert
+        assertEquals(5, activity.getTotalBids());
+        assertEquals(3, activity.getBidsByHour().get("9"));
+        assertEquals(1, activity.getBidsByHour().get("10"));
+        assertEquals(1, activity.getBidsByHour().get("20"));
+        assertEquals(eveningBid.getCreatedAt(), activity.getFirstBidAt());
+    }
+
+    @Test
+    void getActivity_WithoutTimeWindow_ShouldSumAllRollups() {
+        // Arrange
+        when(bidRollupRepository.findByCategory(Category.BOOKS)).thenReturn(List.of(
+                rollup(RollupGranularity.DAY, LocalDateTime.of(2025, 3, 13, 0, 0), 2)));
+
+        // Act
+        BidActivity activity = bidRollupService.getActivity(Category.BOOKS, TimeWindow.ALL);
+
+        // Assert
+        assertEquals(2, activity.getTotalBids());
+        verifyNoInteractions(bidRepository);
+    }
+
+    @Test
+    void getActivityByCategory_WithTimeWindow_ShouldGroupBucketsAndEdgeBidsByCategory() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2025, 3, 14, 9, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 14, 10, 30);
+        LocalDateTime inside = LocalDateTime.of(2025, 3, 14, 9, 0);
+        LocalDateTime cut = LocalDateTime.of(2025, 3, 14, 10, 0);
+        BidRollupEntity fashion = new BidRollupEntity(RollupGranularity.HOUR, inside, Category.FASHION);
+        fashion.add(inside, 50.0);
+        when(bidRollupRepository.findByBucketStartInRange(from.minusDays(1), to)).thenReturn(List.of(
+                rollup(RollupGranularity.HOUR, inside, 3),
+                fashion,
+                rollup(RollupGranularity.HOUR, cut, 4)));
+
+        ItemEntity phone = new ItemEntity("Phone", "Description", 100.0, to.plusDays(1), "creator@example.com", Category.ELECTRONICS);
+        phone.setId("phone");
+        BidEntity lateBid = new BidEntity("phone", "Bidder", 160.0, "bidder@example.com");
+        lateBid.setCreatedAt(LocalDateTime.of(2025, 3, 14, 10, 10));
+        when(bidRepository.findByCreatedAtInRange(cut, to)).thenReturn(List.of(lateBid));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("phone", phone));
+
+        // Act
+        Map<Category, BidActivity> activities = bidRollupService.getActivityByCategory(TimeWindow.of(from, to));
+
+        // Assert
+        assertEquals(Category.values().length, activities.size());
+        assertEquals(3, activities.get(Category.BOOKS).getTotalBids());
+        assertEquals(1, activities.get(Category.FASHION).getTotalBids());
+        assertEquals(1, activities.get(Category.ELECTRONICS).getTotalBids());
+        assertEquals(0, activities.get(Category.TOYS).getTotalBids());
+        verify(bidRollupRepository, never()).findByCategoryAndBucketStartInRange(any(), any(), any());
+    }
+
+    private static BidRollupEntity rollup(RollupGranularity granularity, LocalDateTime bucketStart, int bids) {
+        BidRollupEntity rollup = new BidRollupEntity(granularity, bucketStart, Category.BOOKS);
+        for (int i = 0; i < bids; i++) {
+            rollup.add(bucketStart, 100.0);
+        }
+        return rollup;
+    }
+}
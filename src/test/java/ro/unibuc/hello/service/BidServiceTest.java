@@ -3,25 +3,43 @@ package ro.unibuc.hello.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.BidOrder;
 import ro.unibuc.hello.data.BidRepository;
 import ro.unibuc.hello.data.Category;
 import ro.unibuc.hello.data.ItemEntity;
 import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.data.ReactiveBidRepository;
+import ro.unibuc.hello.data.ReactiveItemRepository;
 import ro.unibuc.hello.dto.Bid;
+import ro.unibuc.hello.dto.BidPage;
+import ro.unibuc.hello.event.BidDeletedEvent;
+import ro.unibuc.hello.event.BidPlacedEvent;
 import ro.unibuc.hello.exception.BidException;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -40,6 +58,24 @@ class BidServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @Mock
+    private ReactiveBidRepository reactiveBidRepository;
+
+    @Mock
+    private ReactiveItemRepository reactiveItemRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ItemService itemService;
+
     @InjectMocks
     private BidService bidService;
 
@@ -115,7 +151,7 @@ class BidServiceTest {
                 new BidEntity("item1", "Jane Doe", 200.0, "jane@example.com")
         );
         when(bidRepository.findAll()).thenReturn(bidEntities);
-        when(itemRepository.findById(anyString())).thenReturn(Optional.of(activeItem));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
 
         // Act
         List<Bid> result = bidService.getAllBids();
@@ -146,7 +182,7 @@ class BidServiceTest {
                 new BidEntity("item1", "Jane Doe", 200.0, "jane@example.com")
         );
         when(bidRepository.findByItemId("item1")).thenReturn(bidEntities);
-        when(itemRepository.findById(anyString())).thenReturn(Optional.of(activeItem));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
 
         // Act
         List<Bid> result = bidService.getBidsByItem("item1");
@@ -156,6 +192,22 @@ class BidServiceTest {
         verify(bidRepository).findByItemId("item1");
     }
 
+    @Test
+    void getBidsByItem_WithFields_ShouldSkipItemLookupUnlessItemNameIsAsked() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(BidEntity.class))).thenReturn(List.of(bid));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
+
+        // Act
+        List<Map<String, Object>> amounts = bidService.getBidsByItem("item1", List.of("amount", "createdAt"));
+        List<Map<String, Object>> named = bidService.getBidsByItem("item1", List.of("itemName", "amount"));
+
+        // Assert
+        assertEquals(List.of(Map.of("amount", 150.0, "createdAt", now)), amounts);
+        assertEquals(List.of(Map.of("amount", 150.0, "itemName", "Test Item")), named);
+        verify(itemLoader, times(1)).getAll(any());
+    }
+
     @Test
     void getBidsByItem_ShouldReturnEmptyList_WhenNoItemBids() {
         // Arrange
@@ -174,7 +226,7 @@ class BidServiceTest {
         // Arrange
         List<BidEntity> bidEntities = Collections.singletonList(bid);
         when(bidRepository.findByBidderName("John Doe")).thenReturn(bidEntities);
-        when(itemRepository.findById(anyString())).thenReturn(Optional.of(activeItem));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
 
         // Act
         List<Bid> result = bidService.getBidsByBidder("John Doe");
@@ -202,7 +254,7 @@ class BidServiceTest {
     void getBidById_ShouldReturnBid_WhenExists() {
         // Arrange
         when(bidRepository.findById("bid1")).thenReturn(Optional.of(bid));
-        when(itemRepository.findById(anyString())).thenReturn(Optional.of(activeItem));
+        when(itemLoader.get(anyString())).thenReturn(Optional.of(activeItem));
 
         // Act
         Bid result = bidService.getBidById("bid1");
@@ -227,8 +279,8 @@ class BidServiceTest {
     void placeBid_ShouldSaveBid_WhenValid() {
         // Arrange
         when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(Collections.emptyList());
-        when(bidRepository.findByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com")).thenReturn(Collections.emptyList());
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.empty());
+        when(bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com")).thenReturn(Optional.empty());
         when(bidRepository.save(any(BidEntity.class))).thenReturn(bid);
 
         Bid newBid = new Bid();
@@ -243,16 +295,17 @@ class BidServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("bid1", result.getId());
-        verify(itemRepository, times(2)).findById("item1");
+        verify(itemRepository).findById("item1");
         verify(bidRepository).save(any(BidEntity.class));
+        verify(eventPublisher).publishEvent(any(BidPlacedEvent.class));
     }
 
     @Test
     void placeBid_ShouldSaveBid_WhenHigherThanExistingBids() {
         // Arrange
         when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(Collections.singletonList(bid));
-        when(bidRepository.findByItemIdAndEmailOrderByAmountDesc("item1", "jane@example.com")).thenReturn(Collections.emptyList());
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.of(bid));
+        when(bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc("item1", "jane@example.com")).thenReturn(Optional.empty());
 
         BidEntity savedBid = new BidEntity("item1", "Jane Smith", 200.0, "jane@example.com");
         savedBid.setId("bid2");
@@ -271,7 +324,7 @@ class BidServiceTest {
         assertNotNull(result);
         assertEquals("bid2", result.getId());
         assertEquals(200.0, result.getAmount());
-        verify(bidRepository).findByItemIdOrderByAmountDesc("item1");
+        verify(bidRepository).findFirstByItemIdOrderByAmountDesc("item1");
         verify(bidRepository).save(any(BidEntity.class));
     }
 
@@ -353,7 +406,7 @@ class BidServiceTest {
         when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
 
         BidEntity highestBid = new BidEntity("item1", "Jane Doe", 200.0, "jane@example.com");
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(Collections.singletonList(highestBid));
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.of(highestBid));
 
         Bid newBid = new Bid();
         newBid.setItemId("item1");
@@ -365,7 +418,7 @@ class BidServiceTest {
         BidException exception = assertThrows(BidException.class, () -> bidService.placeBid(newBid));
         assertEquals("Bid amount must be higher than the current highest bid", exception.getMessage());
         verify(itemRepository).findById("item1");
-        verify(bidRepository).findByItemIdOrderByAmountDesc("item1");
+        verify(bidRepository).findFirstByItemIdOrderByAmountDesc("item1");
         verify(bidRepository, never()).save(any(BidEntity.class));
     }
 
@@ -373,11 +426,11 @@ class BidServiceTest {
     void placeBid_ShouldThrowException_WhenUserBidLowerThanPrevious() {
         // Arrange
         when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(Collections.emptyList());
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.empty());
 
         BidEntity previousUserBid = new BidEntity("item1", "John Doe", 200.0, "john@example.com");
-        when(bidRepository.findByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com"))
-                .thenReturn(Collections.singletonList(previousUserBid));
+        when(bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com"))
+                .thenReturn(Optional.of(previousUserBid));
 
         Bid newBid = new Bid();
         newBid.setItemId("item1");
@@ -389,7 +442,7 @@ class BidServiceTest {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bidService.placeBid(newBid));
         assertEquals("Bid amount must be higher than your last bid", exception.getMessage());
         verify(itemRepository).findById("item1");
-        verify(bidRepository).findByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com");
+        verify(bidRepository).findFirstByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com");
         verify(bidRepository, never()).save(any(BidEntity.class));
     }
 
@@ -397,11 +450,11 @@ class BidServiceTest {
     void placeBid_ShouldSaveBid_WhenUserBidHigherThanPrevious() {
         // Arrange
         when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(Collections.emptyList());
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.empty());
 
         BidEntity previousUserBid = new BidEntity("item1", "John Doe", 150.0, "john@example.com");
-        when(bidRepository.findByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com"))
-                .thenReturn(Collections.singletonList(previousUserBid));
+        when(bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com"))
+                .thenReturn(Optional.of(previousUserBid));
 
         BidEntity savedBid = new BidEntity("item1", "John Doe", 200.0, "john@example.com");
         savedBid.setId("bid2");
@@ -420,14 +473,51 @@ class BidServiceTest {
         assertNotNull(result);
         assertEquals("bid2", result.getId());
         assertEquals(200.0, result.getAmount());
-        verify(bidRepository).findByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com");
+        verify(bidRepository).findFirstByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com");
         verify(bidRepository).save(any(BidEntity.class));
     }
 
+    @Test
+    void getBidHistory_ShouldReadOnePageAndContinueFromCursor() {
+        BidEntity high = new BidEntity("item1", "Jane Doe", 300.0, "jane@example.com");
+        high.setId("65f000000000000000000002");
+        BidEntity low = new BidEntity("item1", "John Doe", 200.0, "john@example.com");
+        low.setId("65f000000000000000000001");
+        when(bidRepository.findByItemId(eq("item1"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(high), PageRequest.of(0, 1), true));
+        when(bidRepository.findByItemIdAfterAmount(eq("item1"), eq(300.0), eq(new ObjectId(high.getId())), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(low), PageRequest.of(0, 1), false));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
+
+        BidPage first = bidService.getBidHistory("item1", BidOrder.AMOUNT_DESC, null, 1);
+        BidPage second = bidService.getBidHistory("item1", BidOrder.AMOUNT_DESC, first.getNextCursor(), 1);
+
+        assertEquals(300.0, first.getBids().get(0).getAmount());
+        assertEquals(200.0, second.getBids().get(0).getAmount());
+        assertNull(second.getNextCursor());
+        verify(bidRepository).findByItemId("item1", PageRequest.of(0, 1, BidOrder.AMOUNT_DESC.getSort()));
+    }
+
+    @Test
+    void getBidHistory_WithCursorOfAnotherOrder_ShouldThrow() {
+        BidEntity newest = new BidEntity("item1", "Jane Doe", 300.0, "jane@example.com");
+        newest.setId("65f000000000000000000002");
+        when(bidRepository.findByItemId(eq("item1"), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(newest), PageRequest.of(0, 1), true));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
+        String cursor = bidService.getBidHistory("item1", BidOrder.TIME_DESC, null, 1).getNextCursor();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bidService.getBidHistory("item1", BidOrder.AMOUNT_DESC, cursor, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> bidService.getBidHistory("item1", BidOrder.TIME_DESC, "bm90IGEgY3Vyc29y", 1));
+    }
+
     @Test
     void deleteBid_ShouldDeleteBid_WhenExists() {
         // Arrange
         when(bidRepository.findById("bid1")).thenReturn(Optional.of(bid));
+        when(itemRepository.findById(bid.getItemId())).thenReturn(Optional.of(activeItem));
 
         // Act
         bidService.deleteBid("bid1");
@@ -435,6 +525,11 @@ class BidServiceTest {
         // Assert
         verify(bidRepository).findById("bid1");
         verify(bidRepository).delete(bid);
+        ArgumentCaptor<BidDeletedEvent> event = ArgumentCaptor.forClass(BidDeletedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertSame(bid, event.getValue().getBid());
+        assertSame(activeItem, event.getValue().getItem());
+        verify(itemService).refreshCurrentPrice(bid.getItemId());
     }
 
     @Test
@@ -453,7 +548,7 @@ class BidServiceTest {
         // Arrange
         List<BidEntity> bidEntities = Collections.singletonList(bid);
         when(bidRepository.findByEmail("john@example.com")).thenReturn(bidEntities);
-        when(itemRepository.findById(anyString())).thenReturn(Optional.of(activeItem));
+        when(itemLoader.getAll(any())).thenReturn(Map.of("item1", activeItem));
 
         // Act
         List<Bid> result = bidService.getBidsByEmail("john@example.com");
@@ -490,7 +585,7 @@ class BidServiceTest {
     void convertToDto_ShouldIncludeItemName_WhenItemExists() {
         // Arrange
         when(bidRepository.findById("bid1")).thenReturn(Optional.of(bid));
-        when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
+        when(itemLoader.get("item1")).thenReturn(Optional.of(activeItem));
 
         // Act
         Bid result = bidService.getBidById("bid1");
@@ -498,14 +593,14 @@ class BidServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("Test Item", result.getItemName());
-        verify(itemRepository).findById("item1");
+        verify(itemLoader).get("item1");
     }
 
     @Test
     void convertToDto_ShouldNotIncludeItemName_WhenItemDoesNotExist() {
         // Arrange
         when(bidRepository.findById("bid1")).thenReturn(Optional.of(bid));
-        when(itemRepository.findById("item1")).thenReturn(Optional.empty());
+        when(itemLoader.get("item1")).thenReturn(Optional.empty());
 
         // Act
         Bid result = bidService.getBidById("bid1");
@@ -513,15 +608,15 @@ class BidServiceTest {
         // Assert
         assertNotNull(result);
         assertNull(result.getItemName());
-        verify(itemRepository).findById("item1");
+        verify(itemLoader).get("item1");
     }
 
     @Test
     void placeBid_ShouldThrowException_WhenBidIsExactlyInitialPrice() {
         // Arrange
         when(itemRepository.findById("item1")).thenReturn(Optional.of(activeItem));
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(Collections.emptyList());
-        when(bidRepository.findByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com")).thenReturn(Collections.emptyList());
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.empty());
+        when(bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc("item1", "john@example.com")).thenReturn(Optional.empty());
 
         Bid newBid = new Bid();
         newBid.setItemId("item1");
@@ -559,8 +654,8 @@ class BidServiceTest {
         bidHistory.add(bid2);
         bidHistory.add(bid1);
 
-        when(bidRepository.findByItemIdOrderByAmountDesc("item1")).thenReturn(bidHistory);
-        when(bidRepository.findByItemIdAndEmailOrderByAmountDesc("item1", "user4@example.com")).thenReturn(Collections.emptyList());
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("item1")).thenReturn(Optional.of(bidHistory.get(0)));
+        when(bidRepository.findFirstByItemIdAndEmailOrderByAmountDesc("item1", "user4@example.com")).thenReturn(Optional.empty());
 
         BidEntity newBidEntity = new BidEntity("item1", "User4", 200.0, "user4@example.com");
         newBidEntity.setId("bid4");
@@ -579,7 +674,33 @@ class BidServiceTest {
         assertNotNull(result);
         assertEquals("bid4", result.getId());
         assertEquals(200.0, result.getAmount());
-        verify(bidRepository).findByItemIdOrderByAmountDesc("item1");
+        verify(bidRepository).findFirstByItemIdOrderByAmountDesc("item1");
         verify(bidRepository).save(any(BidEntity.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamBidsByEmail_ShouldLookUpEachItemNameOnce() {
+        // Arrange
+        BidEntity firstBid = new BidEntity("item1", "User", 150.0, "user@example.com");
+        firstBid.setId("bid1");
+        BidEntity secondBid = new BidEntity("item1", "User", 180.0, "user@example.com");
+        secondBid.setId("bid2");
+        when(reactiveBidRepository.findByEmail("user@example.com")).thenReturn(Flux.just(firstBid, secondBid));
+        when(reactiveItemRepository.findById("item1")).thenReturn(Mono.just(activeItem));
+
+        // Act
+        List<Bid> result = bidService.streamBidsByEmail("user@example.com").collectList().block();
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals("bid1", result.get(0).getId());
+        assertEquals("bid2", result.get(1).getId());
+        assertEquals(activeItem.getName(), result.get(1).getItemName());
+        verify(reactiveItemRepository, times(1)).findById("item1");
+    }
+
+    @Test
+    void streamBidsByEmail_WithInvalidEmail_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> bidService.streamBidsByEmail("invalid-email"));
+    }
+}
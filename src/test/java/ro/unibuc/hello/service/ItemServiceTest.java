@@ -4,29 +4,59 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import ro.unibuc.hello.analytics.EndingSoonIndex;
+import ro.unibuc.hello.analytics.ItemFacetFilter;
+import ro.unibuc.hello.analytics.ItemFacetIndex;
 import ro.unibuc.hello.data.BidEntity;
 import ro.unibuc.hello.data.BidRepository;
+import ro.unibuc.hello.data.Category;
 import ro.unibuc.hello.data.ItemEntity;
 import ro.unibuc.hello.data.ItemRepository;
+import ro.unibuc.hello.data.ItemSort;
+import ro.unibuc.hello.data.ReactiveItemRepository;
 import ro.unibuc.hello.dto.Item;
+import ro.unibuc.hello.dto.ItemBatch;
+import ro.unibuc.hello.dto.ItemFeed;
+import ro.unibuc.hello.dto.ItemPage;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.event.ItemCategoryChangedEvent;
 import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.VersionCounters;
+import reactor.core.publisher.Flux;
 
 @ExtendWith(MockitoExtension.class)
 class ItemServiceTest {
@@ -37,9 +67,32 @@ class ItemServiceTest {
     @Mock
     private BidRepository bidRepository;
 
+    @Mock
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @Mock
+    private ReactiveItemRepository reactiveItemRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ItemFacetIndex itemFacetIndex = new ItemFacetIndex();
+
+    @Spy
+    private EndingSoonIndex endingSoonIndex = new EndingSoonIndex();
+
+    @Spy
+    private VersionCounters versionCounters = new VersionCounters();
+
     @InjectMocks
     private ItemService itemService;
 
+    private static final UpdateResult MATCHED = UpdateResult.acknowledged(1, 1L, null);
+
     private ItemEntity sampleItem;
     private BidEntity sampleBid;
 
@@ -62,17 +115,212 @@ class ItemServiceTest {
 
     @Test
     void getItemById_ShouldReturnItem() {
-        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
-        when(bidRepository.findByItemIdOrderByAmountDesc("1")).thenReturn(Collections.singletonList(sampleBid));
+        when(itemLoader.get("1")).thenReturn(Optional.of(sampleItem));
+        sampleItem.setCurrentPrice(150.0);
 
         Item item = itemService.getItemById("1");
         assertEquals("Test Item", item.getName());
         assertEquals(150.0, item.getHighestBid());
     }
 
+    @Test
+    void getItemsByIds_ShouldLoadAllTogetherInRequestedOrderAndReportMissing() {
+        ItemEntity book = new ItemEntity("Book", "Description", 20.0, LocalDateTime.now().plusDays(1), "test@example.com", Category.BOOKS);
+        book.setId("2");
+        when(itemLoader.getAll(Set.of("2", "nope", "1"))).thenReturn(Map.of("1", sampleItem, "2", book));
+
+        ItemBatch batch = itemService.getItemsByIds(List.of("2", "nope", "1", "2"));
+
+        assertEquals(List.of("Book", "Test Item"), batch.getItems().stream().map(Item::getName).toList());
+        assertEquals(List.of("nope"), batch.getMissingIds());
+        verify(itemLoader, never()).get(any());
+    }
+
+    @Test
+    void getItemsByIds_ShouldRejectEmptyList() {
+        assertThrows(IllegalArgumentException.class, () -> itemService.getItemsByIds(List.of()));
+    }
+
+    @Test
+    void browseItems_ShouldLoadOnlyThePageOfMatchingItems() {
+        ItemEntity book = new ItemEntity("Book", "Description", 20.0, LocalDateTime.now().plusDays(1), "test@example.com", Category.BOOKS);
+        book.setId("2");
+        sampleItem.setCategory(Category.ELECTRONICS);
+        itemFacetIndex.index(sampleItem);
+        itemFacetIndex.index(book);
+        when(itemLoader.getAll(List.of("2"))).thenReturn(Map.of("2", book));
+
+        ItemFacetFilter filter = new ItemFacetFilter();
+        filter.setCategories(Set.of(Category.BOOKS));
+        ItemPage page = itemService.browseItems(filter, 0, 10);
+
+        assertEquals(1, page.getTotal());
+        assertEquals("Book", page.getItems().get(0).getName());
+        assertEquals(1L, page.getFacets().get("category").get("ELECTRONICS"));
+    }
+
+    @Test
+    void browseItems_ShouldRejectInvalidPage() {
+        assertThrows(IllegalArgumentException.class, () -> itemService.browseItems(new ItemFacetFilter(), -1, 10));
+    }
+
+    @Test
+    void getEndingSoon_ShouldReturnItemsSoonestFirst() {
+        ItemEntity sooner = new ItemEntity("Sooner", "Description", 20.0, LocalDateTime.now().plusHours(1), "test@example.com", null);
+        sooner.setId("2");
+        endingSoonIndex.index(sampleItem);
+        endingSoonIndex.index(sooner);
+        when(itemLoader.getAll(List.of("2", "1"))).thenReturn(Map.of("1", sampleItem, "2", sooner));
+
+        ItemFeed feed = itemService.getEndingSoon(null, null, 10);
+
+        assertEquals("Sooner", feed.getItems().get(0).getName());
+        assertEquals("Test Item", feed.getItems().get(1).getName());
+    }
+
+    @Test
+    void searchItems_ShouldQueryIndexedFieldsWithSortAndPage() {
+        when(mongoTemplate.find(any(Query.class), eq(ItemEntity.class))).thenReturn(List.of(sampleItem));
+
+        List<Item> items = itemService.searchItems(Category.ELECTRONICS, 100.0, 500.0, true, ItemSort.PRICE_DESC, 2, 10);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(ItemEntity.class));
+        assertEquals(1, items.size());
+        Document filter = query.getValue().getQueryObject();
+        assertEquals(Category.ELECTRONICS, filter.get("category"));
+        assertEquals(new Document("$in", List.of(true)), filter.get("active"));
+        assertEquals(new Document("$gte", 100.0).append("$lte", 500.0), filter.get("currentPrice"));
+        assertEquals("{\"currentPrice\": -1, \"_id\": 1}", query.getValue().getSortObject().toJson());
+        assertEquals(20, query.getValue().getSkip());
+        assertEquals(10, query.getValue().getLimit());
+    }
+
+    @Test
+    void getItems_WithFields_ShouldProjectAndReturnOnlyThoseFields() {
+        sampleItem.setCurrentPrice(150.0);
+        when(mongoTemplate.find(any(Query.class), eq(ItemEntity.class))).thenReturn(List.of(sampleItem));
+
+        List<Map<String, Object>> items = itemService.getItems(true, List.of("name", "highestBid"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(ItemEntity.class));
+        assertEquals(new Document("active", true), query.getValue().getQueryObject());
+        assertEquals(new Document("name", 1).append("currentPrice", 1), query.getValue().getFieldsObject());
+        assertEquals(List.of(Map.of("name", "Test Item", "highestBid", 150.0)), items);
+    }
+
+    @Test
+    void getItems_WithUnknownField_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> itemService.getItems(false, List.of("name", "secret")));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(ItemEntity.class));
+    }
+
+    @Test
+    void searchItems_ShouldRejectInvertedPriceRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> itemService.searchItems(null, 500.0, 100.0, false, ItemSort.PRICE_ASC, 0, 10));
+    }
+
+    @Test
+    void onBidPlaced_ShouldOnlyRaiseTheCurrentPrice() {
+        sampleBid.setItemId("1");
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class))).thenReturn(MATCHED);
+        itemService.onBidPlaced(new BidPlacedEvent(sampleBid, sampleItem));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(ItemEntity.class));
+        assertEquals(150.0, query.getValue().getQueryObject().get("currentPrice", Document.class).get("$lt"));
+        assertEquals(150.0, update.getValue().getUpdateObject().get("$set", Document.class).get("currentPrice"));
+        verify(itemFacetIndex).raisePrice("1", 150.0);
+    }
+
+    @Test
+    void onBidPlaced_WhenPriceIsNotRaised_ShouldLeaveTheFacetIndexAlone() {
+        sampleBid.setItemId("1");
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        itemService.onBidPlaced(new BidPlacedEvent(sampleBid, sampleItem));
+
+        verify(itemFacetIndex, never()).raisePrice(anyString(), anyDouble());
+    }
+
+    @Test
+    void getItemETag_ShouldChangeAfterBidOrSave() {
+        String initial = itemService.getItemETag("1");
+        sampleBid.setItemId("1");
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class))).thenReturn(MATCHED);
+
+        itemService.onBidPlaced(new BidPlacedEvent(sampleBid, sampleItem));
+        String afterBid = itemService.getItemETag("1");
+        itemService.onItemSaved(new AfterSaveEvent<>(sampleItem, new Document(), "items"));
+
+        assertFalse(initial.equals(afterBid));
+        assertFalse(afterBid.equals(itemService.getItemETag("1")));
+        assertEquals(initial, itemService.getItemETag("2"));
+    }
+
+    @Test
+    void refreshCurrentPrice_WithoutBids_ShouldFallBackToInitialPrice() {
+        sampleItem.setCurrentPrice(300.0);
+        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("1")).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class))).thenReturn(MATCHED);
+
+        itemService.refreshCurrentPrice("1");
+
+        assertEquals(100.0, sampleItem.getCurrentPrice());
+        verify(itemFacetIndex).index(sampleItem);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(ItemEntity.class));
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"currentPrice\": 300.0"));
+    }
+
+    @Test
+    void refreshCurrentPrice_WhenPriceChangedMeanwhile_ShouldStartOverFromFreshRead() {
+        ItemEntity raised = new ItemEntity("Test Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "test@example.com", null);
+        raised.setId("1");
+        raised.setCurrentPrice(400.0);
+        BidEntity newBid = new BidEntity("1", "Bidder2", 400.0, "bidder2@example.com");
+        newBid.setId("102");
+        sampleItem.setCurrentPrice(300.0);
+        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem), Optional.of(raised));
+        // The first write loses to a bid raising the price; the retry sees it as the top bid
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("1"))
+                .thenReturn(Optional.of(sampleBid), Optional.of(newBid));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), MATCHED);
+
+        itemService.refreshCurrentPrice("1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), update.capture(), eq(ItemEntity.class));
+        assertEquals(400.0, update.getValue().getUpdateObject().get("$set", Document.class).get("currentPrice"));
+    }
+
+    @Test
+    void refreshCurrentPrice_WhenLowerBidArrivedMeanwhile_ShouldWriteItToo() {
+        BidEntity lateBid = new BidEntity("1", "Bidder2", 120.0, "bidder2@example.com");
+        lateBid.setId("102");
+        sampleItem.setCurrentPrice(300.0);
+        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
+        // A bid below the old price is saved between reading the top bid and writing it
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("1"))
+                .thenReturn(Optional.empty(), Optional.of(lateBid), Optional.of(lateBid), Optional.of(lateBid));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class))).thenReturn(MATCHED);
+
+        itemService.refreshCurrentPrice("1");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), update.capture(), eq(ItemEntity.class));
+        assertEquals(120.0, update.getValue().getUpdateObject().get("$set", Document.class).get("currentPrice"));
+    }
+
     @Test
     void getItemById_ShouldThrowException() {
-        when(itemRepository.findById("99")).thenReturn(Optional.empty());
+        when(itemLoader.get("99")).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(EntityNotFoundException.class, () -> itemService.getItemById("99"));
 
@@ -154,7 +402,7 @@ class ItemServiceTest {
     @Test
     void updateItem_ShouldUpdateAndReturnItem() {
         when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
-        when(itemRepository.save(any(ItemEntity.class))).thenReturn(sampleItem);
+        stubUpdate();
         
         Item updatedItem = new Item("1", "Updated Item", "Updated Description", 
             150.0, LocalDateTime.now().plusDays(2), true, "test@example.com", null);
@@ -165,6 +413,49 @@ class ItemServiceTest {
         assertEquals(150.0, result.getInitialPrice());
     }
 
+    @Test
+    void updateItem_ShouldPublishEvent_WhenCategoryChanges() {
+        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
+        stubUpdate();
+
+        Item updatedItem = new Item("1", "Test Item", "Description",
+            100.0, LocalDateTime.now().plusDays(2), true, "test@example.com", Category.BOOKS);
+
+        itemService.updateItem("1", updatedItem);
+
+        verify(eventPublisher).publishEvent(any(ItemCategoryChangedEvent.class));
+    }
+
+    @Test
+    void updateItem_ShouldNotPublishEvent_WhenCategoryUnchanged() {
+        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
+        stubUpdate();
+
+        Item updatedItem = new Item("1", "Test Item", "Description",
+            100.0, LocalDateTime.now().plusDays(2), true, "test@example.com", null);
+
+        itemService.updateItem("1", updatedItem);
+
+        verify(eventPublisher, never()).publishEvent(any(ItemCategoryChangedEvent.class));
+    }
+
+    @Test
+    void updateItem_ShouldOnlyWriteEditableFields() {
+        when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
+        stubUpdate();
+
+        itemService.updateItem("1", new Item("1", "Renamed", "Description",
+            100.0, LocalDateTime.now().plusDays(2), true, "test@example.com", null));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(ItemEntity.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals("Renamed", set.get("name"));
+        assertFalse(set.containsKey("currentPrice"));
+        assertFalse(set.containsKey("highestBidder"));
+        verify(itemRepository, never()).save(any(ItemEntity.class));
+    }
+
     @Test
     void updateItem_ShouldFailWithInvalidEmail() {
         when(itemRepository.findById("1")).thenReturn(Optional.of(sampleItem));
@@ -209,4 +500,37 @@ class ItemServiceTest {
         
         assertEquals("Entity: 99 was not found", exception.getMessage());
     }
+
+    @Test
+    void streamItems_ShouldAddCurrentPriceAndKeepOrder() {
+        ItemEntity noBidsItem = new ItemEntity("Second Item", "Description", 80.0, LocalDateTime.now().plusDays(1), "test@example.com", null);
+        noBidsItem.setId("2");
+        when(reactiveItemRepository.findByActive(true)).thenReturn(Flux.just(sampleItem, noBidsItem));
+        sampleItem.setCurrentPrice(150.0);
+        sampleItem.setHighestBidder("Bidder1");
+
+        List<Item> items = itemService.streamItems(true).collectList().block();
+
+        assertEquals(2, items.size());
+        assertEquals("1", items.get(0).getId());
+        assertEquals(150.0, items.get(0).getHighestBid());
+        assertEquals("Bidder1", items.get(0).getHighestBidder());
+        assertEquals("2", items.get(1).getId());
+        assertEquals(80.0, items.get(1).getHighestBid());
+    }
+
+    // The update returns the item with the new fields; the price refresh then finds no bids
+    private void stubUpdate() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ItemEntity.class)))
+                .thenAnswer(invocation -> {
+                    Document set = invocation.getArgument(1, Update.class).getUpdateObject().get("$set", Document.class);
+                    sampleItem.setName(set.getString("name"));
+                    sampleItem.setInitialPrice(set.getDouble("initialPrice"));
+                    sampleItem.setEndTime((LocalDateTime) set.get("endTime"));
+                    sampleItem.setCategory((Category) set.get("category"));
+                    return sampleItem;
+                });
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("1")).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ItemEntity.class))).thenReturn(MATCHED);
+    }
 }
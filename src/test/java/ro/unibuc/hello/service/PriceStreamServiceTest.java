@@ -0,0 +1,134 @@
+package ro.unibuc.hello.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import ro.unibuc.hello.analytics.ItemPopularityAccumulator;
+import ro.unibuc.hello.data.BidEntity;
+import ro.unibuc.hello.data.Category;
+import ro.unibuc.hello.data.ItemEntity;
+import ro.unibuc.hello.dto.PriceUpdate;
+import ro.unibuc.hello.event.BidPlacedEvent;
+import ro.unibuc.hello.exception.EntityNotFoundException;
+import ro.unibuc.hello.util.BatchLoader;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceStreamServiceTest {
+
+    @Mock
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    // Bids a test places are recorded explicitly, as the analytics updater would before the stream sees them
+    @Spy
+    private ItemPopularityAccumulator itemPopularityAccumulator = new ItemPopularityAccumulator();
+
+    @InjectMocks
+    private PriceStreamService priceStreamService;
+
+    private ItemEntity item;
+
+    @BeforeEach
+    void setUp() {
+        item = new ItemEntity("Lamp", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.HOME);
+        item.setId("item1");
+    }
+
+    @Test
+    void watch_ShouldStartWithCurrentStateAndFollowAcceptedBids() {
+        when(itemLoader.getAll(Set.of("item1"))).thenReturn(Map.of("item1", item));
+        List<PriceUpdate> updates = new ArrayList<>();
+
+        Disposable subscription = priceStreamService.watch(List.of("item1")).subscribe(updates::add);
+        placeBid("item1", "Ann", 150.0);
+        placeBid("item1", "Bob", 120.0);
+        placeBid("other", "Cid", 500.0);
+
+        assertEquals(3, updates.size());
+        assertEquals(100.0, updates.get(0).getCurrentPrice());
+        assertEquals(0, updates.get(0).getBidCount());
+        assertEquals(150.0, updates.get(1).getCurrentPrice());
+        assertEquals("Ann", updates.get(1).getHighestBidder());
+        assertEquals(150.0, updates.get(2).getCurrentPrice());
+        assertEquals("Ann", updates.get(2).getHighestBidder());
+        assertEquals(2, updates.get(2).getBidCount());
+
+        subscription.dispose();
+        assertEquals(0, priceStreamService.channelCount());
+    }
+
+    @Test
+    void watch_SlowSubscriberShouldSkipSupersededUpdates() {
+        when(itemLoader.getAll(Set.of("item1"))).thenReturn(Map.of("item1", item));
+        List<PriceUpdate> updates = new ArrayList<>();
+        BaseSubscriber<PriceUpdate> slow = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(PriceUpdate update) {
+                updates.add(update);
+            }
+        };
+
+        priceStreamService.watch(List.of("item1")).subscribe(slow);
+        placeBid("item1", "Ann", 150.0);
+        placeBid("item1", "Bob", 200.0);
+        placeBid("item1", "Cid", 250.0);
+        slow.request(Long.MAX_VALUE);
+
+        // The first bid was already handed on when the client stalled; the second was superseded
+        assertEquals(List.of(100.0, 150.0, 250.0), updates.stream().map(PriceUpdate::getCurrentPrice).toList());
+        assertEquals(3, updates.get(2).getBidCount());
+        slow.dispose();
+    }
+
+    @Test
+    void watch_ShouldLetLaterSubscribersJoinAtCurrentState() {
+        when(itemLoader.getAll(Set.of("item1"))).thenReturn(Map.of("item1", item));
+        List<PriceUpdate> first = new ArrayList<>();
+        List<PriceUpdate> second = new ArrayList<>();
+
+        Disposable firstSubscription = priceStreamService.watch(List.of("item1")).subscribe(first::add);
+        placeBid("item1", "Ann", 150.0);
+        Disposable secondSubscription = priceStreamService.watch(List.of("item1")).subscribe(second::add);
+        firstSubscription.dispose();
+        placeBid("item1", "Bob", 175.0);
+
+        assertEquals(2, first.size());
+        assertEquals(List.of(150.0, 175.0), second.stream().map(PriceUpdate::getCurrentPrice).toList());
+        assertEquals(1, priceStreamService.channelCount());
+        secondSubscription.dispose();
+        assertEquals(0, priceStreamService.channelCount());
+    }
+
+    @Test
+    void watch_WithOnlyUnknownIds_ShouldThrowException() {
+        when(itemLoader.getAll(Set.of("nope"))).thenReturn(Map.of());
+        assertThrows(EntityNotFoundException.class, () -> priceStreamService.watch(List.of("nope")));
+    }
+
+    private void placeBid(String itemId, String bidderName, double amount) {
+        BidEntity bid = new BidEntity(itemId, bidderName, amount, bidderName.toLowerCase() + "@example.com");
+        bid.setCreatedAt(LocalDateTime.now());
+        itemPopularityAccumulator.record(bid, null);
+        priceStreamService.onBidPlaced(new BidPlacedEvent(bid, item));
+    }
+}
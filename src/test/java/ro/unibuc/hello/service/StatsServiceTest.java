@@ -1,17 +1,35 @@
 package ro.unibuc.hello.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ro.unibuc.hello.data.*;
 import ro.unibuc.hello.dto.AuctionStats;
+import ro.unibuc.hello.dto.BidAmountDistribution;
 import ro.unibuc.hello.dto.ItemPopularity;
+import ro.unibuc.hello.dto.StatsChanges;
 import ro.unibuc.hello.dto.UserStats;
 import ro.unibuc.hello.exception.EntityNotFoundException;
-
+import ro.unibuc.hello.exception.QueryTimeoutException;
+import ro.unibuc.hello.analytics.BidActivity;
+import ro.unibuc.hello.analytics.BidAmountQuantiles;
+import ro.unibuc.hello.analytics.BidColumnStore;
+import ro.unibuc.hello.analytics.BidRateTracker;
+import ro.unibuc.hello.analytics.DecayedPopularityIndex;
+import ro.unibuc.hello.analytics.ItemPopularityAccumulator;
+import ro.unibuc.hello.analytics.UniqueBidderCounter;
+import ro.unibuc.hello.util.BatchLoader;
+import ro.unibuc.hello.util.SingleFlightCache;
+import ro.unibuc.hello.util.TimeWindow;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -31,6 +49,39 @@ class StatsServiceTest {
     @Mock
     private ItemService itemService;
 
+    @Mock
+    private BatchLoader<String, ItemEntity> itemLoader;
+
+    @Mock
+    private BidRollupService bidRollupService;
+
+    // Never fresh, even for two reads within one clock tick, so every call computes from the stubbed repositories
+    @Spy
+    private SingleFlightCache<String, AuctionStats> auctionStatsCache =
+            new SingleFlightCache<>(Duration.ofNanos(-1), Duration.ZERO);
+
+    // Bids a test places are recorded into the sketches explicitly
+    @Spy
+    private UniqueBidderCounter uniqueBidderCounter = new UniqueBidderCounter();
+
+    @Spy
+    private BidAmountQuantiles bidAmountQuantiles = new BidAmountQuantiles();
+
+    @Spy
+    private BidRateTracker bidRateTracker = new BidRateTracker();
+
+    @Spy
+    private ItemPopularityAccumulator itemPopularityAccumulator = new ItemPopularityAccumulator();
+
+    @Spy
+    private DecayedPopularityIndex decayedPopularityIndex = new DecayedPopularityIndex();
+
+    @Spy
+    private BidColumnStore bidColumnStore = new BidColumnStore();
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
     @InjectMocks
     private StatsService statsService;
 
@@ -42,6 +93,9 @@ class StatsServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(bidRollupService.getActivity(any(TimeWindow.class))).thenReturn(new BidActivity());
+        lenient().when(bidRollupService.getActivity(any(Category.class), any(TimeWindow.class))).thenReturn(new BidActivity());
+
         // Set up test data
         testItem1 = new ItemEntity("Test Item 1", "Description 1", 100.0, LocalDateTime.now().plusDays(1), "creator1@example.com", Category.ELECTRONICS);
         testItem1.setId("item1");
@@ -70,12 +124,9 @@ class StatsServiceTest {
     void getOverallStats_ShouldReturnCompleteStats() {
         // Arrange
         List<ItemEntity> items = Arrays.asList(testItem1, testItem2);
-        List<BidEntity> bids = Arrays.asList(testBid1, testBid2, testBid3);
 
         when(itemRepository.findAll()).thenReturn(items);
-        when(bidRepository.findAll()).thenReturn(bids);
-        when(bidRepository.findByItemId("item1")).thenReturn(Arrays.asList(testBid1, testBid2));
-        when(bidRepository.findByItemId("item2")).thenReturn(Collections.singletonList(testBid3));
+        recordBids(testBid1, testBid2, testBid3);
 
         // Act
         AuctionStats stats = statsService.getOverallStats();
@@ -110,11 +161,31 @@ class StatsServiceTest {
         assertEquals(2, topBidders.size());
     }
 
+    @Test
+    void getOverallStats_WithTimeWindow_ShouldOnlyCountBidsInWindow() {
+        // Arrange
+        TimeWindow window = TimeWindow.of(LocalDateTime.now().minusDays(2).minusHours(1), LocalDateTime.now());
+        when(itemRepository.findAll()).thenReturn(Arrays.asList(testItem1, testItem2));
+        recordBids(testBid1, testBid2, testBid3);
+        when(bidRollupService.getActivity(window)).thenReturn(activityOf(testBid2, testBid3));
+
+        // Act
+        AuctionStats stats = statsService.getOverallStats(window);
+
+        // Assert
+        assertEquals(2, stats.getTotalItems());
+        assertEquals(2, stats.getTotalBids());
+        assertEquals(250.0, stats.getHighestBidAmount());
+        assertEquals(2, stats.getUniqueBidders());
+        assertEquals(1.0, stats.getCategoryPopularity().get(Category.ELECTRONICS.name()));
+        assertEquals(1.0, stats.getCategoryPopularity().get(Category.FASHION.name()));
+        verifyNoInteractions(bidRepository);
+    }
+
     @Test
     void getOverallStats_WithEmptyRepositories_ShouldReturnEmptyStats() {
         // Arrange
         when(itemRepository.findAll()).thenReturn(Collections.emptyList());
-        when(bidRepository.findAll()).thenReturn(Collections.emptyList());
 
         // Act
         AuctionStats stats = statsService.getOverallStats();
@@ -146,11 +217,9 @@ class StatsServiceTest {
         sameDayBid2.setId("bid2");
         sameDayBid2.setCreatedAt(sameBidTime.plusHours(2)); // Same day, different hour
 
-        List<BidEntity> bids = Arrays.asList(sameDayBid1, sameDayBid2);
-
         when(itemRepository.findAll()).thenReturn(items);
-        when(bidRepository.findAll()).thenReturn(bids);
-        when(bidRepository.findByItemId(anyString())).thenReturn(bids);
+        recordBids(sameDayBid1, sameDayBid2);
+        when(bidRollupService.getActivity(TimeWindow.ALL)).thenReturn(activityOf(sameDayBid1, sameDayBid2));
 
         // Act
         AuctionStats stats = statsService.getOverallStats();
@@ -162,6 +231,20 @@ class StatsServiceTest {
 
 
 
+    @Test
+    void getOverallStats_WhenQueriesExceedDeadline_ShouldThrowTimeout() {
+        // Arrange
+        ReflectionTestUtils.setField(statsService, "queryTimeout", Duration.ofMillis(50));
+        when(itemRepository.findAll()).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return Collections.emptyList();
+        });
+        lenient().when(bidRepository.findAll()).thenReturn(Collections.emptyList());
+
+        // Act & Assert
+        assertThrows(QueryTimeoutException.class, () -> statsService.getOverallStats());
+    }
+
     @Test
     void getUserStats_WithInvalidEmail_ShouldThrowException() {
         // Arrange & Act & Assert
@@ -239,7 +322,7 @@ class StatsServiceTest {
 
         when(itemRepository.findAll()).thenReturn(Collections.singletonList(userItem));
         when(bidRepository.findByEmail(email)).thenReturn(Collections.emptyList());
-        when(bidRepository.findByItemIdOrderByAmountDesc("userItem")).thenReturn(Collections.singletonList(highestBid));
+        when(bidRepository.findFirstByItemIdOrderByAmountDesc("userItem")).thenReturn(Optional.of(highestBid));
 
         // Act
         UserStats stats = statsService.getUserStats(email);
@@ -256,10 +339,9 @@ class StatsServiceTest {
     void getItemPopularity_WithBids_ShouldReturnCompleteStats() {
         // Arrange
         String itemId = "item1";
-        List<BidEntity> itemBids = Arrays.asList(testBid1, testBid2);
 
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(testItem1));
-        when(bidRepository.findByItemId(itemId)).thenReturn(itemBids);
+        when(itemLoader.get(itemId)).thenReturn(Optional.of(testItem1));
+        recordBids(testBid1, testBid2);
 
         // Act
         ItemPopularity popularity = statsService.getItemPopularity(itemId);
@@ -286,11 +368,40 @@ class StatsServiceTest {
         assertTrue(popularity.getPopularityScore() > 0);
     }
 
+    @Test
+    void getItemPopularity_ForSeveralItems_ShouldLoadThemTogetherAndKeepOrder() {
+        // Arrange
+        when(itemLoader.getAll(new LinkedHashSet<>(List.of("item2", "missing", "item1"))))
+                .thenReturn(new LinkedHashMap<>(Map.of("item2", testItem2)));
+        recordBids(testBid1, testBid2, testBid3);
+
+        // Act
+        List<ItemPopularity> popularity = statsService.getItemPopularity(List.of("item2", "missing", "item1", "item2"));
+
+        // Assert
+        assertEquals(1, popularity.size());
+        assertEquals("item2", popularity.get(0).getItemId());
+        assertEquals(1, popularity.get(0).getTotalBids());
+        verify(itemLoader, never()).get(anyString());
+    }
+
+    @Test
+    void getItemPopularity_ForNoOrTooManyItems_ShouldThrowException() {
+        // Arrange
+        ReflectionTestUtils.setField(statsService, "maxBatchIds", 2);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> statsService.getItemPopularity(List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> statsService.getItemPopularity(List.of("item1", "item2", "item3")));
+        verifyNoInteractions(itemLoader);
+    }
+
     @Test
     void getItemPopularity_WithNonexistentItem_ShouldThrowException() {
         // Arrange
         String itemId = "nonexistent";
-        when(itemRepository.findById(itemId)).thenReturn(Optional.empty());
+        when(itemLoader.get(itemId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () -> statsService.getItemPopularity(itemId));
@@ -303,8 +414,7 @@ class StatsServiceTest {
         ItemEntity itemWithNoBids = new ItemEntity("No Bids Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.ELECTRONICS);
         itemWithNoBids.setId(itemId);
 
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(itemWithNoBids));
-        when(bidRepository.findByItemId(itemId)).thenReturn(Collections.emptyList());
+        when(itemLoader.get(itemId)).thenReturn(Optional.of(itemWithNoBids));
 
         // Act
         ItemPopularity popularity = statsService.getItemPopularity(itemId);
@@ -332,8 +442,8 @@ class StatsServiceTest {
         singleBid.setId("singleBid");
         singleBid.setCreatedAt(LocalDateTime.now().minusHours(1));
 
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
-        when(bidRepository.findByItemId(itemId)).thenReturn(Collections.singletonList(singleBid));
+        when(itemLoader.get(itemId)).thenReturn(Optional.of(item));
+        recordBids(singleBid);
 
         // Act
         ItemPopularity popularity = statsService.getItemPopularity(itemId);
@@ -349,46 +459,83 @@ class StatsServiceTest {
     @Test
     void getItemPopularity_WithRecentBids_ShouldHaveHigherRecencyScore() {
         // Arrange
-        String itemId = "recentBidItem";
-        ItemEntity item = new ItemEntity("Recent Bid Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.ELECTRONICS);
-        item.setId(itemId);
+        ItemEntity recentItem = new ItemEntity("Recent Bid Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.ELECTRONICS);
+        recentItem.setId("recentBidItem");
+        ItemEntity olderItem = new ItemEntity("Older Bid Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.ELECTRONICS);
+        olderItem.setId("olderBidItem");
 
-        BidEntity recentBid = new BidEntity(itemId, "Bidder", 150.0, "bidder@example.com");
+        BidEntity recentBid = new BidEntity("recentBidItem", "Bidder", 150.0, "bidder@example.com");
         recentBid.setId("recentBid");
         recentBid.setCreatedAt(LocalDateTime.now().minusHours(1)); // Very recent bid
 
-        BidEntity olderBid = new BidEntity(itemId, "Bidder", 120.0, "bidder@example.com");
+        BidEntity olderBid = new BidEntity("olderBidItem", "Bidder", 150.0, "bidder@example.com");
         olderBid.setId("olderBid");
         olderBid.setCreatedAt(LocalDateTime.now().minusDays(5)); // Older bid
 
-        // First test with recent bid only
-        when(itemRepository.findById(itemId)).thenReturn(Optional.of(item));
-        when(bidRepository.findByItemId(itemId)).thenReturn(Collections.singletonList(recentBid));
+        when(itemLoader.get("recentBidItem")).thenReturn(Optional.of(recentItem));
+        when(itemLoader.get("olderBidItem")).thenReturn(Optional.of(olderItem));
+        recordBids(recentBid, olderBid);
 
         // Act
-        ItemPopularity recentPopularity = statsService.getItemPopularity(itemId);
-
-        // Now test with older bid
-        when(bidRepository.findByItemId(itemId)).thenReturn(Collections.singletonList(olderBid));
-
-        // Act again
-        ItemPopularity olderPopularity = statsService.getItemPopularity(itemId);
+        ItemPopularity recentPopularity = statsService.getItemPopularity("recentBidItem");
+        ItemPopularity olderPopularity = statsService.getItemPopularity("olderBidItem");
 
         // Assert
         assertTrue(recentPopularity.getPopularityScore() > olderPopularity.getPopularityScore(),
                 "Recent bid should result in higher popularity score");
     }
 
+    @Test
+    void getItemPopularity_ShouldNotReadItemBids() {
+        // Arrange
+        BidEntity lowerBid = new BidEntity("item1", "Bidder 3", 120.0, "bidder3@example.com");
+        lowerBid.setCreatedAt(LocalDateTime.now().minusDays(1));
+        when(itemLoader.get("item1")).thenReturn(Optional.of(testItem1));
+        recordBids(testBid1, testBid2, lowerBid);
+
+        // Act
+        ItemPopularity popularity = statsService.getItemPopularity("item1");
+
+        // Assert
+        assertEquals(3, popularity.getTotalBids());
+        assertEquals(1.0, popularity.getBidFrequency()); // 3 bids over 3 days
+        assertEquals(33.33, popularity.getBidIncreaseRate(), 0.1); // Only 150 -> 200 was an increase
+        assertEquals(100.0, popularity.getPriceIncrease(), 0.1); // Highest bid 200, not the last one
+        assertEquals(lowerBid.getCreatedAt(), popularity.getLastBidTime());
+        verifyNoInteractions(bidRepository);
+    }
+
+    @Test
+    void getOverallStatsChanges_ShouldOnlyReturnWhatChangedSinceClientVersion() {
+        // Arrange
+        when(itemRepository.findAll()).thenReturn(Arrays.asList(testItem1, testItem2));
+        recordBids(testBid1, testBid2);
+        long version = statsService.getOverallStats().getVersion();
+        recordBids(testBid3);
+
+        // Act
+        StatsChanges changes = statsService.getOverallStatsChanges(version);
+
+        // Assert
+        assertFalse(changes.isFull());
+        assertTrue(changes.getVersion() > version);
+        assertEquals(3, changes.getChanged().get("totalBids"));
+        assertEquals(Map.of("bidder1@example.com", 2), changes.getChanged().get("topBidders"));
+        assertFalse(changes.getChanged().containsKey("totalItems"));
+        assertFalse(changes.getChanged().containsKey("generatedAt"));
+        assertTrue(statsService.getOverallStatsChanges(changes.getVersion()).getChanged().isEmpty());
+    }
+
     @Test
     void getCategoryStats_WithValidCategory_ShouldReturnCompleteStats() {
         // Arrange
         String category = "ELECTRONICS";
 
         List<ItemEntity> allItems = Collections.singletonList(testItem1);
-        List<BidEntity> itemBids = Arrays.asList(testBid1, testBid2);
 
         when(itemRepository.findAll()).thenReturn(allItems);
-        when(bidRepository.findByItemId("item1")).thenReturn(itemBids);
+        when(bidRollupService.getActivity(Category.ELECTRONICS, TimeWindow.ALL)).thenReturn(activityOf(testBid1, testBid2));
+        recordBids(testBid1, testBid2);
 
         // Act
         AuctionStats stats = statsService.getCategoryStats(category);
@@ -411,6 +558,61 @@ class StatsServiceTest {
         assertNotNull(bidsByDay);
     }
 
+    @Test
+    void getCategoryStats_WithTimeWindow_ShouldOnlyCountCategoryBidsInWindow() {
+        // Arrange
+        TimeWindow window = TimeWindow.of(LocalDateTime.now().minusDays(2).minusHours(1), null);
+        when(itemRepository.findAll()).thenReturn(Arrays.asList(testItem1, testItem2));
+        recordBids(testBid1, testBid2, testBid3);
+
+        // Act
+        AuctionStats stats = statsService.getCategoryStats("ELECTRONICS", window);
+
+        // Assert
+        assertEquals(1, stats.getTotalItems());
+        assertEquals(1, stats.getTotalBids());
+        assertEquals(200.0, stats.getHighestBidAmount());
+        assertEquals(1, stats.getUniqueBidders());
+        verify(bidRollupService).getActivity(Category.ELECTRONICS, window);
+        verifyNoInteractions(bidRepository);
+    }
+
+    @Test
+    void getAllCategoryStats_ShouldComputeEveryCategoryFromOneLoadOfItems() {
+        // Arrange
+        Map<Category, BidActivity> activities = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            activities.put(category, new BidActivity());
+        }
+        activities.put(Category.ELECTRONICS, activityOf(testBid1, testBid2));
+        activities.put(Category.FASHION, activityOf(testBid3));
+
+        when(itemRepository.findAll()).thenReturn(Arrays.asList(testItem1, testItem2));
+        when(bidRollupService.getActivityByCategory(TimeWindow.ALL)).thenReturn(activities);
+        recordBids(testBid1, testBid2, testBid3);
+
+        // Act
+        Map<String, AuctionStats> stats = statsService.getAllCategoryStats(TimeWindow.ALL);
+
+        // Assert
+        assertEquals(Category.values().length, stats.size());
+        AuctionStats electronics = stats.get("ELECTRONICS");
+        assertEquals(1, electronics.getTotalItems());
+        assertEquals(2, electronics.getTotalBids());
+        assertEquals(200.0, electronics.getHighestBidAmount());
+        assertEquals(2, electronics.getUniqueBidders());
+        AuctionStats fashion = stats.get("FASHION");
+        assertEquals(1, fashion.getCompletedAuctions());
+        assertEquals(1, fashion.getTotalBids());
+        assertEquals(250.0, fashion.getHighestBidAmount());
+        assertEquals(0, stats.get("BOOKS").getTotalItems());
+        assertEquals(0, stats.get("BOOKS").getTotalBids());
+
+        verify(itemRepository, times(1)).findAll();
+        verify(bidColumnStore, never()).aggregate(any(), any());
+        verifyNoInteractions(bidRepository);
+    }
+
     @Test
     void getCategoryStats_WithInvalidCategory_ShouldThrowException() {
         // Arrange & Act & Assert
@@ -455,11 +657,8 @@ class StatsServiceTest {
         BidEntity bid2 = new BidEntity("popular1", "Bidder2", 200.0, "bidder2@example.com");
         BidEntity bid3 = new BidEntity("popular2", "Bidder1", 150.0, "bidder1@example.com");
 
-        when(itemRepository.findByActive(true)).thenReturn(activeItems);
-        when(itemRepository.findById("popular1")).thenReturn(Optional.of(item1));
-        when(itemRepository.findById("popular2")).thenReturn(Optional.of(item2));
-        when(bidRepository.findByItemId("popular1")).thenReturn(Arrays.asList(bid1, bid2));
-        when(bidRepository.findByItemId("popular2")).thenReturn(Collections.singletonList(bid3));
+        when(itemLoader.getAll(List.of("popular1", "popular2"))).thenReturn(Map.of("popular1", item1, "popular2", item2));
+        recordBids(bid3, bid1, bid2);
 
         // Act
         List<ItemPopularity> popularItems = statsService.getPopularItems(limit);
@@ -473,10 +672,28 @@ class StatsServiceTest {
     }
 
     @Test
-    void getPopularItems_WithNoActiveItems_ShouldReturnEmptyList() {
+    void getPopularItems_ShouldSkipEndedAuctions() {
         // Arrange
-        when(itemRepository.findByActive(true)).thenReturn(Collections.emptyList());
+        BidEntity endedBid = new BidEntity("item2", "Bidder", 300.0, "bidder@example.com");
+        BidEntity activeBid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        activeBid.setCreatedAt(LocalDateTime.now().minusDays(2));
+        recordBids(endedBid, activeBid);
+
+        when(itemLoader.getAll(List.of("item2"))).thenReturn(Map.of("item2", testItem2));
+        when(itemLoader.getAll(List.of("item1"))).thenReturn(Map.of("item1", testItem1));
 
+        // Act
+        List<ItemPopularity> popularItems = statsService.getPopularItems(1);
+
+        // Assert
+        assertEquals(1, popularItems.size());
+        assertEquals("item1", popularItems.get(0).getItemId());
+        assertEquals(0.25, popularItems.get(0).getDecayedBidScore(), 0.01);
+        verify(itemRepository, never()).findByActive(anyBoolean());
+    }
+
+    @Test
+    void getPopularItems_WithNoBids_ShouldReturnEmptyList() {
         // Act
         List<ItemPopularity> popularItems = statsService.getPopularItems(5);
 
@@ -582,11 +799,21 @@ class StatsServiceTest {
         assertEquals(validEmail, activeUsers.get(0).getEmail());
     }
 
+    @Test
+    void getMostActiveUsers_WhenUserStatsTimeOut_ShouldThrow() {
+        // Arrange
+        StatsService spyService = spy(statsService);
+        when(bidRepository.findAll()).thenReturn(List.of(testBid1));
+        doThrow(new QueryTimeoutException(Duration.ofSeconds(10))).when(spyService).getUserStats(testBid1.getEmail());
+
+        // Act & Assert
+        assertThrows(QueryTimeoutException.class, () -> spyService.getMostActiveUsers(5));
+    }
+
     @Test
     void getBiddingHourDistribution_ShouldReturnAllHours() {
         // Arrange
-        List<BidEntity> allBids = Arrays.asList(testBid1, testBid2);
-        when(bidRepository.findAll()).thenReturn(allBids);
+        when(bidRollupService.getActivity(TimeWindow.ALL)).thenReturn(activityOf(testBid1, testBid2));
 
         // Act
         Map<String, Integer> distribution = statsService.getBiddingHourDistribution();
@@ -616,73 +843,130 @@ class StatsServiceTest {
     }
 
     @Test
-    void getHotItems_ShouldReturnOnlyHotItems() {
-        // Arrange - We need to spy the service to mock getItemPopularity
-        StatsService spyService = spy(statsService);
-
+    void getHotItems_ShouldReturnOnlyItemsWithRecentBids() {
+        // Arrange
         ItemEntity item1 = new ItemEntity("Hot Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.ELECTRONICS);
         item1.setId("hot1");
         item1.setActive(true);
 
-        ItemEntity item2 = new ItemEntity("Cold Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
-        item2.setId("cold1");
-        item2.setActive(true);
-
-        List<ItemEntity> activeItems = Arrays.asList(item1, item2);
-
-        // Create popularity objects - one hot, one not
-        ItemPopularity hotPopularity = new ItemPopularity();
-        hotPopularity.setItemId("hot1");
-        hotPopularity.setItemName("Hot Item");
-        hotPopularity.setHot(true);
-        hotPopularity.setBidFrequency(10.0); // Above threshold
-
-        ItemPopularity coldPopularity = new ItemPopularity();
-        coldPopularity.setItemId("cold1");
-        coldPopularity.setItemName("Cold Item");
-        coldPopularity.setHot(false);
-        coldPopularity.setBidFrequency(2.0); // Below threshold
+        // Six bids in the last hour on the hot item, one on the cold one
+        for (int i = 0; i < 6; i++) {
+            BidEntity bid = new BidEntity("hot1", "Bidder", 110.0 + i, "bidder" + i + "@example.com");
+            bid.setCreatedAt(LocalDateTime.now().minusMinutes(i));
+            bidRateTracker.record(bid, item1);
+        }
+        BidEntity coldBid = new BidEntity("cold1", "Bidder", 110.0, "bidder@example.com");
+        coldBid.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+        bidRateTracker.record(coldBid, null);
 
-        when(itemRepository.findByActive(true)).thenReturn(activeItems);
-        doReturn(hotPopularity).when(spyService).getItemPopularity("hot1");
-        doReturn(coldPopularity).when(spyService).getItemPopularity("cold1");
+        when(itemLoader.getAll(List.of("hot1"))).thenReturn(Map.of("hot1", item1));
 
         // Act
-        List<ItemPopularity> hotItems = spyService.getHotItems();
+        List<ItemPopularity> hotItems = statsService.getHotItems();
 
         // Assert
         assertNotNull(hotItems);
         assertEquals(1, hotItems.size());
         assertEquals("hot1", hotItems.get(0).getItemId());
+        assertEquals("Hot Item", hotItems.get(0).getItemName());
+        assertEquals(6, hotItems.get(0).getBidsLastHour());
         assertTrue(hotItems.get(0).isHot());
+        verify(itemRepository, never()).findByActive(anyBoolean());
+        // The batch-loaded items are used as they are, not looked up again one by one
+        verify(itemLoader, never()).get(anyString());
     }
 
     @Test
-    void getHotItems_WithNoHotItems_ShouldReturnEmptyList() {
-        // Arrange - We need to spy the service to mock getItemPopularity
-        StatsService spyService = spy(statsService);
+    void getHotItems_WithOnlyOldBids_ShouldReturnEmptyList() {
+        // Arrange
+        BidEntity oldBid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        oldBid.setCreatedAt(LocalDateTime.now().minusHours(3));
+        for (int i = 0; i < 10; i++) {
+            bidRateTracker.record(oldBid, testItem1);
+        }
 
-        ItemEntity item = new ItemEntity("Cold Item", "Description", 100.0, LocalDateTime.now().plusDays(1), "creator@example.com", Category.BOOKS);
-        item.setId("cold1");
-        item.setActive(true);
+        // Act
+        List<ItemPopularity> hotItems = statsService.getHotItems();
 
-        List<ItemEntity> activeItems = Collections.singletonList(item);
+        // Assert
+        assertNotNull(hotItems);
+        assertTrue(hotItems.isEmpty());
+    }
 
-        // Create cold popularity object
-        ItemPopularity coldPopularity = new ItemPopularity();
-        coldPopularity.setItemId("cold1");
-        coldPopularity.setItemName("Cold Item");
-        coldPopularity.setHot(false);
-        coldPopularity.setBidFrequency(2.0); // Below threshold
+    @Test
+    void getItemPopularity_ShouldReportCurrentBidRate() {
+        // Arrange
+        BidEntity recentBid = new BidEntity("item1", "Bidder", 150.0, "bidder@example.com");
+        recentBid.setCreatedAt(LocalDateTime.now().minusMinutes(10));
+        when(itemLoader.get("item1")).thenReturn(Optional.of(testItem1));
+        recordBids(recentBid);
+        bidRateTracker.record(recentBid, testItem1);
 
-        when(itemRepository.findByActive(true)).thenReturn(activeItems);
-        doReturn(coldPopularity).when(spyService).getItemPopularity("cold1");
+        // Act
+        ItemPopularity popularity = statsService.getItemPopularity("item1");
+
+        // Assert
+        assertEquals(0, popularity.getBidsLastMinute());
+        assertEquals(1, popularity.getBidsLastHour());
+        assertFalse(popularity.isHot());
+    }
+
+    @Test
+    void getItemBidAmountDistribution_ShouldReturnQuantilesOfItemBids() {
+        // Arrange
+        when(itemLoader.get("item1")).thenReturn(Optional.of(testItem1));
+        recordBids(testBid1, testBid2, testBid3);
 
         // Act
-        List<ItemPopularity> hotItems = spyService.getHotItems();
+        BidAmountDistribution distribution = statsService.getItemBidAmountDistribution("item1");
 
         // Assert
-        assertNotNull(hotItems);
-        assertTrue(hotItems.isEmpty());
+        assertEquals(2, distribution.getTotalBids());
+        assertEquals(150.0, distribution.getMedianBidAmount(), 150.0 * 0.01);
+        assertTrue(distribution.getP99BidAmount() <= 200.0);
+    }
+
+    @Test
+    void getItemBidAmountDistribution_WithNonExistentItem_ShouldThrowException() {
+        // Arrange
+        when(itemLoader.get("missing")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(EntityNotFoundException.class, () -> statsService.getItemBidAmountDistribution("missing"));
+    }
+
+    @Test
+    void getCategoryBidAmountDistribution_ShouldOnlyCountCategoryBids() {
+        // Arrange
+        recordBids(testBid1, testBid2, testBid3);
+
+        // Act
+        BidAmountDistribution distribution = statsService.getCategoryBidAmountDistribution("fashion");
+
+        // Assert
+        assertEquals(1, distribution.getTotalBids());
+        assertEquals(250.0, distribution.getMedianBidAmount(), 250.0 * 0.01);
+    }
+
+    private void recordBids(BidEntity... bids) {
+        for (BidEntity bid : bids) {
+            ItemEntity item = Map.of("item1", testItem1, "item2", testItem2).get(bid.getItemId());
+            uniqueBidderCounter.record(bid, item);
+            bidAmountQuantiles.record(bid, item);
+            itemPopularityAccumulator.record(bid, item);
+            decayedPopularityIndex.record(bid, item);
+            bidColumnStore.record(bid, item);
+        }
+    }
+
+    private static BidActivity activityOf(BidEntity... bids) {
+        BidActivity activity = new BidActivity();
+        for (BidEntity bid : bids) {
+            RollupGranularity granularity = RollupGranularity.MINUTE;
+            BidRollupEntity rollup = new BidRollupEntity(granularity, granularity.bucketStart(bid.getCreatedAt()), null);
+            rollup.add(bid.getCreatedAt(), bid.getAmount());
+            activity.add(rollup);
+        }
+        return activity;
     }
-}
\ No newline at end of file
+}
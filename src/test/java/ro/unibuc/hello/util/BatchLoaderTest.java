@@ -0,0 +1,120 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    private final List<Set<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final List<Runnable> windowTasks = new ArrayList<>();
+
+    // Values are the upper-cased keys; "missing" is never found
+    private final Function<Set<String>, Map<String, String>> batchFunction = keys -> {
+        batches.add(Set.copyOf(keys));
+        return keys.stream()
+                .filter(key -> !key.equals("missing"))
+                .collect(Collectors.toMap(key -> key, String::toUpperCase));
+    };
+
+    // Windows are queued so the test decides when they close
+    private final BatchLoader<String, String> loader =
+            new BatchLoader<>(batchFunction, Duration.ofMillis(2), 3, windowTasks::add);
+
+    @Test
+    void load_WithinOneWindow_ShouldResolveAllKeysWithOneBatch() {
+        CompletableFuture<String> first = loader.load("a");
+        CompletableFuture<String> second = loader.load("b");
+        CompletableFuture<String> duplicate = loader.load("a");
+        assertFalse(first.isDone());
+        assertEquals(1, windowTasks.size());
+
+        windowTasks.get(0).run();
+
+        assertEquals("A", first.join());
+        assertEquals("B", second.join());
+        assertSame(first, duplicate);
+        assertEquals(List.of(Set.of("a", "b")), batches);
+    }
+
+    @Test
+    void load_WhenBatchIsFull_ShouldDispatchWithoutWaitingForWindow() {
+        CompletableFuture<String> a = loader.load("a");
+        loader.load("b");
+        loader.load("c");
+
+        assertEquals("A", a.join());
+        assertEquals(List.of(Set.of("a", "b", "c")), batches);
+
+        // The next key opens a new window
+        loader.load("d");
+        assertEquals(2, windowTasks.size());
+    }
+
+    @Test
+    void getAll_ShouldDispatchImmediatelyTogetherWithPendingKeys() {
+        CompletableFuture<String> pending = loader.load("a");
+
+        Map<String, String> values = loader.getAll(List.of("b", "missing"));
+
+        assertEquals(Map.of("b", "B"), values);
+        assertEquals("A", pending.join());
+        assertEquals(List.of(Set.of("a", "b", "missing")), batches);
+    }
+
+    @Test
+    void get_WhenKeyNotFound_ShouldReturnEmpty() {
+        CompletableFuture<String> missing = loader.load("missing");
+        windowTasks.get(0).run();
+
+        assertNull(missing.join());
+        assertTrue(loader.getAll(List.of("missing")).isEmpty());
+    }
+
+    @Test
+    void get_WhenBatchFails_ShouldRethrowToEveryCaller() {
+        BatchLoader<String, String> failing = new BatchLoader<>(keys -> {
+            throw new IllegalStateException("batch failed");
+        }, Duration.ofMillis(2), 10, windowTasks::add);
+
+        CompletableFuture<String> pending = failing.load("a");
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> failing.getAll(List.of("b")));
+
+        assertEquals("batch failed", exception.getMessage());
+        assertTrue(pending.isCompletedExceptionally());
+    }
+
+    @Test
+    void get_FromConcurrentCallers_ShouldShareBatches() throws Exception {
+        BatchLoader<String, String> concurrent = new BatchLoader<>(batchFunction, Duration.ofMillis(50), 100);
+
+        List<Thread> callers = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String key = "key" + i;
+            callers.add(Thread.ofVirtual().start(() -> {
+                String value = concurrent.get(key).orElseThrow();
+                synchronized (results) {
+                    results.add(value);
+                }
+            }));
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        assertEquals(10, results.size());
+        assertTrue(batches.size() < 10);
+    }
+}
@@ -0,0 +1,71 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeTrackerTest {
+
+    private final ChangeTracker tracker = new ChangeTracker(2, 1000);
+
+    @Test
+    void record_ShouldOnlyBumpVersionWhenSomethingChanged() {
+        long first = tracker.record(document(3, Map.of("BOOKS", 1)));
+        long same = tracker.record(document(3, Map.of("BOOKS", 1)));
+        long changed = tracker.record(document(4, Map.of("BOOKS", 1)));
+
+        assertTrue(first > 1000);
+        assertEquals(first, same);
+        assertTrue(changed > first);
+    }
+
+    @Test
+    void changesSince_ShouldReturnOnlyChangedFieldsAndEntries() {
+        long first = tracker.record(document(3, Map.of("BOOKS", 1, "TOYS", 2)));
+        long second = tracker.record(document(3, Map.of("BOOKS", 1, "TOYS", 5)));
+
+        ChangeTracker.Delta delta = tracker.changesSince(first);
+
+        assertFalse(delta.isFull());
+        assertEquals(second, delta.getVersion());
+        assertEquals(Map.of("itemsByCategory", Map.of("TOYS", 5)), delta.getChanged());
+        assertTrue(delta.getRemoved().isEmpty());
+        assertTrue(tracker.changesSince(second).getChanged().isEmpty());
+    }
+
+    @Test
+    void changesSince_ShouldReportRemovedEntries() {
+        long first = tracker.record(document(3, Map.of("BOOKS", 1, "TOYS", 2)));
+        tracker.record(document(3, Map.of("BOOKS", 1)));
+
+        ChangeTracker.Delta delta = tracker.changesSince(first);
+
+        assertTrue(delta.getChanged().isEmpty());
+        assertEquals(Map.of("itemsByCategory", List.of("TOYS")), delta.getRemoved());
+    }
+
+    @Test
+    void changesSince_ShouldReturnWholeDocumentForUnknownOrForgottenVersions() {
+        long first = tracker.record(document(3, Map.of("A", 1, "B", 2, "C", 3)));
+        tracker.record(document(3, Map.of()));
+
+        // Only two of the three tombstones are kept, so a client at the first version cannot be caught up
+        ChangeTracker.Delta behind = tracker.changesSince(first);
+        assertTrue(behind.isFull());
+        assertEquals(Map.of("totalBids", 3, "itemsByCategory", Map.of()), behind.getChanged());
+
+        assertTrue(tracker.changesSince(0).isFull());
+        assertTrue(tracker.changesSince(Long.MAX_VALUE).isFull());
+    }
+
+    private static Map<String, Object> document(int totalBids, Map<String, Integer> itemsByCategory) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("totalBids", totalBids);
+        document.put("itemsByCategory", itemsByCategory);
+        return document;
+    }
+}
@@ -0,0 +1,96 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ro.unibuc.hello.exception.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryScopeTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void get_ShouldRunSubtasksConcurrently() {
+        // Arrange
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        // Act
+        try (QueryScope scope = new QueryScope(executor, Duration.ofSeconds(5))) {
+            Future<String> first = scope.fork(() -> awaitPeer(bothStarted, "first"));
+            Future<String> second = scope.fork(() -> awaitPeer(bothStarted, "second"));
+
+            // Assert - each subtask only finishes once the other one has started
+            assertEquals("first", scope.get(first));
+            assertEquals("second", scope.get(second));
+        }
+    }
+
+    @Test
+    void get_ShouldLetSubtasksDependOnEachOther() {
+        try (QueryScope scope = new QueryScope(executor, Duration.ofSeconds(5))) {
+            Future<Integer> base = scope.fork(() -> 20);
+            Future<Integer> derived = scope.fork(() -> scope.get(base) + 1);
+
+            assertEquals(21, scope.get(derived));
+        }
+    }
+
+    @Test
+    void get_WhenDeadlinePasses_ShouldThrowAndCancelSiblings() throws Exception {
+        // Arrange
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Future<?> sibling;
+
+        // Act & Assert
+        try (QueryScope scope = new QueryScope(executor, Duration.ofMillis(50))) {
+            Future<String> slow = scope.fork(() -> {
+                Thread.sleep(5_000);
+                return "late";
+            });
+            sibling = scope.fork(() -> {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            assertThrows(QueryTimeoutException.class, () -> scope.get(slow));
+        }
+        assertTrue(sibling.isCancelled());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void get_WhenSubtaskFails_ShouldRethrowItsException() {
+        try (QueryScope scope = new QueryScope(executor, Duration.ofSeconds(5))) {
+            Future<Object> failing = scope.fork(() -> {
+                throw new IllegalArgumentException("boom");
+            });
+
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> scope.get(failing));
+            assertEquals("boom", exception.getMessage());
+        }
+    }
+
+    private static String awaitPeer(CountDownLatch bothStarted, String result) throws InterruptedException {
+        bothStarted.countDown();
+        if (!bothStarted.await(2, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("subtasks did not run concurrently");
+        }
+        return result;
+    }
+}
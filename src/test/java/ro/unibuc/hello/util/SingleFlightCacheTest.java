@@ -0,0 +1,134 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+
+    // Background refreshes are queued so the test decides when they run
+    private final SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(
+            Duration.ofSeconds(5), Duration.ofSeconds(60), this::runOrQueue, now::get);
+
+    private boolean queueBackgroundTasks;
+
+    @Test
+    void get_WhenFresh_ShouldNotReload() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, cache.get("key", loads::incrementAndGet));
+        now.addAndGet(Duration.ofSeconds(4).toNanos());
+
+        assertEquals(1, cache.get("key", loads::incrementAndGet));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_WhenStale_ShouldServeStaleValueAndRefreshInBackground() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("key", loads::incrementAndGet);
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        queueBackgroundTasks = true;
+
+        // Two stale reads trigger a single refresh
+        assertEquals(1, cache.get("key", loads::incrementAndGet));
+        assertEquals(1, cache.get("key", loads::incrementAndGet));
+        assertEquals(1, backgroundTasks.size());
+
+        backgroundTasks.get(0).run();
+        assertEquals(2, cache.get("key", loads::incrementAndGet));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_WhenOlderThanMaxStale_ShouldReloadBeforeAnswering() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("key", loads::incrementAndGet);
+        now.addAndGet(Duration.ofSeconds(66).toNanos());
+
+        assertEquals(2, cache.get("key", loads::incrementAndGet));
+    }
+
+    @Test
+    void get_WhenBackgroundRefreshFails_ShouldKeepStaleValue() {
+        cache.get("key", () -> 1);
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertEquals(1, cache.get("key", () -> {
+            throw new IllegalStateException("refresh failed");
+        }));
+        assertEquals(1, cache.get("key", () -> 3));
+    }
+
+    @Test
+    void get_WhenLoadFails_ShouldRethrowToCaller() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> cache.get("key", () -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertEquals("load failed", exception.getMessage());
+    }
+
+    @Test
+    void get_RightAfterLoadFinished_ShouldStartNewLoad() {
+        // Loads run on another thread, so each caller wakes up while that thread is still finishing the load
+        SingleFlightCache<String, Integer> realCache = new SingleFlightCache<>(
+                Duration.ofSeconds(5), Duration.ofSeconds(60), Executors.newVirtualThreadPerTaskExecutor(), now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 1; i <= 2000; i++) {
+            now.addAndGet(Duration.ofSeconds(66).toNanos());
+            assertEquals(i, realCache.get("key", loads::incrementAndGet));
+        }
+    }
+
+    @Test
+    void get_WithConcurrentCallers_ShouldComputeOnce() throws Exception {
+        SingleFlightCache<String, Integer> realCache = new SingleFlightCache<>(Duration.ofSeconds(5), Duration.ofSeconds(60));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(callers.submit(() -> realCache.get("key", () -> {
+                loads.incrementAndGet();
+                try {
+                    release.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 42;
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertEquals(42, result.get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        callers.shutdown();
+    }
+
+    private void runOrQueue(Runnable task) {
+        if (queueBackgroundTasks) {
+            backgroundTasks.add(task);
+        } else {
+            task.run();
+        }
+    }
+}
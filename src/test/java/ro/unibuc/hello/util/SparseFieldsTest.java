@@ -0,0 +1,43 @@
+package ro.unibuc.hello.util;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseFieldsTest {
+
+    private final SparseFields<Map<String, Object>> fields = new SparseFields<Map<String, Object>>()
+            .field("name", row -> row.get("name"), "name")
+            .field("price", row -> row.get("price"), "currentPrice")
+            .field("label", row -> row.get("name") + "@" + row.get("price"), "name", "currentPrice");
+
+    @Test
+    void select_ShouldWriteOnlySelectedFieldsInDeclarationOrder() {
+        SparseFields.Selection<Map<String, Object>> selection = fields.select(List.of("price", " name"));
+
+        Map<String, Object> written = selection.apply(Map.of("name", "Lamp", "price", 12.5));
+
+        assertEquals(List.of("name", "price"), List.copyOf(written.keySet()));
+        assertEquals("Lamp", written.get("name"));
+        assertTrue(selection.includes("price"));
+        assertFalse(selection.includes("label"));
+    }
+
+    @Test
+    void project_ShouldIncludeEachDocumentFieldOnce() {
+        Query query = fields.select(List.of("label", "price")).project(new Query());
+
+        assertEquals(new Document("name", 1).append("currentPrice", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void select_ShouldRejectUnknownOrMissingFields() {
+        assertThrows(IllegalArgumentException.class, () -> fields.select(List.of("name", "secret")));
+        assertThrows(IllegalArgumentException.class, () -> fields.select(List.of(" ")));
+    }
+}
@@ -0,0 +1,56 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    @Test
+    void idOf_ShouldAssignDenseIdsOncePerValue() {
+        assertEquals(0, dictionary.idOf("a"));
+        assertEquals(1, dictionary.idOf("b"));
+        assertEquals(0, dictionary.idOf("a"));
+
+        assertEquals(2, dictionary.size());
+        assertEquals("b", dictionary.valueOf(1));
+    }
+
+    @Test
+    void find_WhenValueUnknown_ShouldReturnMinusOneWithoutAssigning() {
+        dictionary.idOf("a");
+
+        assertEquals(-1, dictionary.find("b"));
+        assertEquals(0, dictionary.find("a"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void idOf_FromConcurrentCallers_ShouldAgreeOnIds() throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(Thread.ofVirtual().start(() -> {
+                for (int value = 0; value < 1000; value++) {
+                    ids.add(dictionary.idOf("value" + value));
+                }
+            }));
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        assertEquals(1000, dictionary.size());
+        assertEquals(1000, ids.size());
+        for (int value = 0; value < 1000; value++) {
+            assertEquals("value" + value, dictionary.valueOf(dictionary.find("value" + value)));
+        }
+    }
+}
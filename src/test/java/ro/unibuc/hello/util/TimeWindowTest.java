@@ -0,0 +1,43 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeWindowTest {
+
+    private final LocalDateTime from = LocalDateTime.of(2025, 3, 14, 0, 0);
+
+    @Test
+    void of_WithoutBounds_ShouldBeUnbounded() {
+        assertSame(TimeWindow.ALL, TimeWindow.of(null, null));
+        assertTrue(TimeWindow.ALL.isUnbounded());
+    }
+
+    @Test
+    void of_WhenFromIsNotBeforeTo_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> TimeWindow.of(from, from));
+        assertThrows(IllegalArgumentException.class, () -> TimeWindow.of(from, from.minusDays(1)));
+    }
+
+    @Test
+    void contains_ShouldIncludeFromAndExcludeTo() {
+        TimeWindow window = TimeWindow.of(from, from.plusDays(1));
+
+        assertTrue(window.contains(from));
+        assertTrue(window.contains(from.plusHours(23)));
+        assertFalse(window.contains(from.plusDays(1)));
+        assertFalse(window.contains(from.minusSeconds(1)));
+    }
+
+    @Test
+    void contains_WithOpenEnd_ShouldIncludeEverythingAfterFrom() {
+        TimeWindow window = TimeWindow.of(from, null);
+
+        assertFalse(window.isUnbounded());
+        assertTrue(window.contains(from.plusYears(50)));
+        assertFalse(window.contains(from.minusDays(1)));
+    }
+}
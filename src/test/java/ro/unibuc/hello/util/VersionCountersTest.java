@@ -0,0 +1,46 @@
+package ro.unibuc.hello.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionCountersTest {
+
+    private final VersionCounters versions = new VersionCounters("boot");
+
+    @Test
+    void eTag_ShouldChangeWhenKeyIsBumped() {
+        String before = versions.eTag("item:1");
+        versions.bump("item:2");
+        assertEquals(before, versions.eTag("item:1"));
+
+        versions.bump("item:1");
+        assertNotEquals(before, versions.eTag("item:1"));
+        assertEquals("W/\"boot-0-1\"", versions.eTag("item:1"));
+        assertEquals("W/\"boot-0-1-7\"", versions.eTag("item:1", 7));
+    }
+
+    @Test
+    void bumpAll_ShouldChangeEveryTag() {
+        String before = versions.eTag("item:1");
+        versions.bumpAll();
+        assertNotEquals(before, versions.eTag("item:1"));
+    }
+
+    @Test
+    void eTag_ShouldNotMatchTagsFromAnotherStartup() {
+        String tag = new VersionCounters().eTag("item:1");
+        assertFalse(VersionCounters.matches(tag, new VersionCounters().eTag("item:1")));
+    }
+
+    @Test
+    void matches_ShouldCompareWeaklyAcrossTagList() {
+        String tag = versions.eTag("item:1");
+
+        assertTrue(VersionCounters.matches(tag, tag));
+        assertTrue(VersionCounters.matches("\"other\", \"boot-0-0\"", tag));
+        assertFalse(VersionCounters.matches("W/\"boot-0-1\"", tag));
+        assertFalse(VersionCounters.matches("*", tag));
+        assertFalse(VersionCounters.matches(null, tag));
+    }
+}